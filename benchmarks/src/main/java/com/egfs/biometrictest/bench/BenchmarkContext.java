@@ -0,0 +1,27 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.BiometrictestApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application without a web server against its own in-memory H2
+ * database, migrated by Flyway like production.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(BiometrictestApplication.class)
+                .web(WebApplicationType.NONE)
+                // Arguments, unlike default properties, win over application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.main.banner-mode=off",
+                        "--zkteco.scheduler.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,40 @@
+package com.egfs.biometrictest.bench;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in milliseconds from any thread and reports
+ * exact percentiles; a load test keeps at most a few million samples, so
+ * no histogram is needed.
+ */
+final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+
+    synchronized void record(long millis) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = millis;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /** {@code count p50 p95 p99 max} in milliseconds, or a dash when nothing was recorded. */
+    synchronized String summary() {
+        if (count == 0) {
+            return "-";
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return String.format("n=%d p50=%d ms p95=%d ms p99=%d ms max=%d ms", count,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,281 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.BiometrictestApplication;
+import com.egfs.biometrictest.biometric.DeviceSyncResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test against simulated terminals ({@code backend: sim}),
+ * runnable on any machine. Boots the whole application on a random port and
+ * an in-memory H2 database, then drives it over HTTP like production:
+ * <ol>
+ *   <li>fleet template sync, then the initial fleet punch sync of every
+ *       terminal's log ({@code records} in total);</li>
+ *   <li>a live phase of {@code seconds}: SSE clients on
+ *       {@code /zkteco/punches/realtime} (which starts the realtime monitor
+ *       of the first terminal), a fleet punch sync every
+ *       {@code sync-interval} seconds, and a dashboard polling the punch list
+ *       and current stats, while every terminal punches steadily with a
+ *       shift-change burst every {@code burst-every} seconds.</li>
+ * </ol>
+ * Reports throughput, and p50/p95/p99 of per-device sync time, request
+ * latency and punch-to-SSE-client latency (device punch time to receipt).
+ * <p>
+ * Arguments are {@code key=value}, e.g.
+ * {@code terminals=50 records=200000 sse-clients=20 seconds=60}.
+ */
+public final class LoadTest {
+    private static final Pattern PUNCH_TIME = Pattern.compile("Time: (\\S+),");
+    private static final Set<String> FINISHED = Set.of("SUCCEEDED", "FAILED", "CANCELLED");
+
+    private final Map<String, String> options;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper json = new ObjectMapper();
+    private String baseUrl;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("terminals", "50");
+        options.put("records", "200000");
+        options.put("users", "1000");
+        options.put("fingers", "1");
+        options.put("sse-clients", "20");
+        options.put("seconds", "60");
+        options.put("sync-interval", "5");
+        options.put("rate", "0.5");
+        options.put("burst-every", "30");
+        options.put("burst-seconds", "10");
+        options.put("burst-rate", "20");
+        options.put("call-latency-ms", "2");
+        options.put("concurrency", "8");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown argument " + arg + "; known: " + options);
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        int terminals = intOption("terminals");
+        System.out.println("Load test " + options);
+        try (ConfigurableApplicationContext context = start(terminals)) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            fleetSync("Template sync", "/zkteco/fleet/sync", "templates");
+            fleetSync("Initial punch sync", "/zkteco/fleet/sync-punches", "punches");
+            live(context.getBean(MeterRegistry.class));
+        }
+    }
+
+    private ConfigurableApplicationContext start(int terminals) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--zkteco.backend=sim",
+                // Syncs are driven by the test, not by the background scheduler
+                "--zkteco.scheduler.enabled=false",
+                "--zkteco.fleet.max-concurrency=" + options.get("concurrency"),
+                "--zkteco.simulation.users=" + options.get("users"),
+                "--zkteco.simulation.fingers-per-user=" + options.get("fingers"),
+                "--zkteco.simulation.template-bytes=512",
+                "--zkteco.simulation.log-size=" + intOption("records") / terminals,
+                "--zkteco.simulation.punches-per-second=" + options.get("rate"),
+                "--zkteco.simulation.burst-every-seconds=" + options.get("burst-every"),
+                "--zkteco.simulation.burst-seconds=" + options.get("burst-seconds"),
+                "--zkteco.simulation.burst-punches-per-second=" + options.get("burst-rate"),
+                "--zkteco.simulation.call-latency-ms=" + options.get("call-latency-ms")));
+        for (int i = 0; i < terminals; i++) {
+            args.add(String.format("--zkteco.devices[%d].id=sim-%02d", i, i + 1));
+            args.add(String.format("--zkteco.devices[%d].ip=127.0.0.1", i));
+        }
+        return new SpringApplicationBuilder(BiometrictestApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private void fleetSync(String phase, String path, String unit) throws Exception {
+        long start = System.nanoTime();
+        List<DeviceSyncResult> results = syncFleet(path);
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        LatencyRecorder perDevice = new LatencyRecorder();
+        long rows = 0;
+        long failed = 0;
+        for (DeviceSyncResult result : results) {
+            perDevice.record(result.durationMs());
+            rows += result.count();
+            failed += result.success() ? 0 : 1;
+        }
+        System.out.printf("%-20s %d %s from %d devices (%d failed) in %d ms, %.0f %s/s%n",
+                phase, rows, unit, results.size(), failed, elapsedMs, rows * 1000.0 / elapsedMs, unit);
+        System.out.printf("%-20s per device: %s%n", "", perDevice.summary());
+    }
+
+    private void live(MeterRegistry registry) throws Exception {
+        long seconds = intOption("seconds");
+        AtomicBoolean running = new AtomicBoolean(true);
+        LatencyRecorder sseLatency = new LatencyRecorder();
+        LatencyRecorder syncLatency = new LatencyRecorder();
+        LatencyRecorder apiLatency = new LatencyRecorder();
+        AtomicLong synced = new AtomicLong();
+        double storedBefore = storedPunches(registry);
+        System.out.printf("Live phase           %d s, %s SSE clients, fleet sync every %s s%n",
+                seconds, options.get("sse-clients"), options.get("sync-interval"));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < intOption("sse-clients"); i++) {
+            threads.add(start("sse-client-" + i, () -> readEvents(running, sseLatency)));
+        }
+        long syncIntervalMs = TimeUnit.SECONDS.toMillis(intOption("sync-interval"));
+        threads.add(start("fleet-sync", () -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                synced.addAndGet(syncFleet("/zkteco/fleet/sync-punches").stream()
+                        .mapToLong(DeviceSyncResult::count).sum());
+                long tookMs = (System.nanoTime() - start) / 1_000_000;
+                syncLatency.record(tookMs);
+                Thread.sleep(Math.max(0, syncIntervalMs - tookMs));
+            }
+        }));
+        threads.add(start("dashboard", () -> {
+            while (running.get()) {
+                for (String path : List.of("/zkteco/punches?limit=50", "/zkteco/punches/stats/current")) {
+                    long start = System.nanoTime();
+                    get(path);
+                    apiLatency.record((System.nanoTime() - start) / 1_000_000);
+                }
+                Thread.sleep(200);
+            }
+        }));
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        double stored = storedPunches(registry) - storedBefore;
+        System.out.printf("%-20s %.0f punches (%d by fleet sync), %.0f punches/s%n", "Live ingest",
+                stored, synced.get(), stored / seconds);
+        System.out.printf("%-20s %s%n", "Fleet sync job", syncLatency.summary());
+        System.out.printf("%-20s %s%n", "Dashboard request", apiLatency.summary());
+        System.out.printf("%-20s %s, %.0f deliveries/s%n", "Punch to SSE client", sseLatency.summary(),
+                sseLatency.count() / (double) seconds);
+        System.out.printf("%-20s %.0f dropped, %.0f disconnects%n", "SSE overflow",
+                functionCount(registry, "zkteco.sse.events", "result", "dropped"),
+                functionCount(registry, "zkteco.sse.disconnects", null, null));
+    }
+
+    /** Punches stored so far, by the fleet syncs and the realtime monitor alike. */
+    private static double storedPunches(MeterRegistry registry) {
+        return registry.find("zkteco.ingest.rows").tag("kind", "punches").counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+
+    /** Reads one SSE stream until the live phase ends, timing every punch event. */
+    private void readEvents(AtomicBoolean running, LatencyRecorder latency) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/zkteco/punches/realtime"))
+                .header("Accept", "text/event-stream").build();
+        HttpResponse<Stream<String>> response = http.send(request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            String[] event = {null};
+            lines.takeWhile(line -> running.get()).forEach(line -> {
+                if (line.startsWith("event:")) {
+                    event[0] = line.substring(6).trim();
+                } else if (line.startsWith("data:") && "punch".equals(event[0])) {
+                    Matcher m = PUNCH_TIME.matcher(line);
+                    if (m.find()) {
+                        long punchMillis = OffsetDateTime.parse(m.group(1)).toInstant().toEpochMilli();
+                        latency.record(Math.max(0, System.currentTimeMillis() - punchMillis));
+                    }
+                } else if (line.isEmpty()) {
+                    event[0] = null;
+                }
+            });
+        }
+    }
+
+    /** Starts a fleet sync job and waits for its per-device results. */
+    private List<DeviceSyncResult> syncFleet(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+        JsonNode job = json.readTree(http.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        String id = job.get("id").asText();
+        while (!FINISHED.contains(job.get("status").asText())) {
+            Thread.sleep(20);
+            HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + "/zkteco/jobs/" + id)).build();
+            job = json.readTree(http.send(poll, HttpResponse.BodyHandlers.ofString()).body());
+        }
+        return json.convertValue(job.get("results"), new TypeReference<>() {
+        });
+    }
+
+    private void get(String path) throws IOException, InterruptedException {
+        http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static double functionCount(MeterRegistry registry, String name, String tag, String value) {
+        FunctionCounter counter = tag == null ? registry.find(name).functionCounter()
+                : registry.find(name).tag(tag, value).functionCounter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static Thread start(String name, Task task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println(name + " failed: " + e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+}
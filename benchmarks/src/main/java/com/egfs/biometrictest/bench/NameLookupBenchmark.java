@@ -0,0 +1,92 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.biometric.BiometricTemplate;
+import com.egfs.biometrictest.biometric.BiometricTemplateRepository;
+import com.egfs.biometrictest.biometric.BulkIngestWriter;
+import com.egfs.biometrictest.biometric.UserDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Labelling a punch with the user's name: a template table query per record,
+ * as before the directory existed, against a {@link UserDirectory} lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NameLookupBenchmark {
+    private static final int USERS = 5000;
+    private static final int LOOKUPS = 100;
+
+    private ConfigurableApplicationContext context;
+    private BiometricTemplateRepository templateRepo;
+    private UserDirectory directory;
+    private String[] userIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("name-lookup");
+        templateRepo = context.getBean(BiometricTemplateRepository.class);
+        directory = context.getBean(UserDirectory.class);
+        List<BiometricTemplate> templates = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            BiometricTemplate template = new BiometricTemplate();
+            template.setDeviceId("bench");
+            template.setUserId(SimulatedPunchSource.userId(i));
+            template.setName("User " + i);
+            template.setFingerIndex(0);
+            template.setEnabled(true);
+            template.setTemplateData("AAAA");
+            templates.add(template);
+        }
+        BulkIngestWriter writer = context.getBean(BulkIngestWriter.class);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> writer.writeTemplates(templates));
+        directory.refresh();
+        userIds = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            userIds[i] = SimulatedPunchSource.userId((i * 37) % USERS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void repositoryPerRecord(Blackhole bh) {
+        for (String userId : userIds) {
+            bh.consume(templateRepo.findByDeviceIdAndUserIdAndFingerIndex("bench", userId, 0)
+                    .map(BiometricTemplate::getName).orElse(null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void userDirectory(Blackhole bh) {
+        for (String userId : userIds) {
+            bh.consume(directory.resolveName(userId));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.egfs.biometrictest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The realtime event text, built with {@code String.format} as
+ * {@code PunchBroadcaster.formatPunch} does, against plain concatenation.
+ * Multiply by the subscriber count for the old per-emitter formatting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PunchFormatBenchmark {
+    private final String userId = "1042";
+    private final String name = "Jane Doe";
+    private final OffsetDateTime time = OffsetDateTime.of(2024, 5, 6, 8, 1, 2, 0, ZoneOffset.ofHours(3));
+    private final Integer verifyMode = 1;
+    private final Integer inOutMode = 0;
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("User: %s (%s), Time: %s, Mode: %d, InOut: %d",
+                userId, name != null ? name : "Unknown", time, verifyMode, inOutMode);
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return "User: " + userId + " (" + (name != null ? name : "Unknown") + "), Time: " + time
+                + ", Mode: " + verifyMode + ", InOut: " + inOutMode;
+    }
+}
@@ -0,0 +1,74 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.device.AttendanceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a device's local time into the stored {@code OffsetDateTime},
+ * per record. {@code systemDefaultPerRecord} is what {@code PunchService.toPunchLog}
+ * does today; the others resolve the zone once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PunchTimeBenchmark {
+    private static final int RECORDS = 1024;
+
+    private List<AttendanceRecord> records;
+    private ZoneId zone;
+    private ZoneRules rules;
+
+    @Setup
+    public void setUp() {
+        records = SimulatedPunchSource.records(RECORDS, 200, 42);
+        zone = ZoneId.systemDefault();
+        rules = zone.getRules();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void systemDefaultPerRecord(Blackhole bh) {
+        for (AttendanceRecord record : records) {
+            LocalDateTime time = record.time();
+            bh.consume(OffsetDateTime.of(time, ZoneId.systemDefault().getRules().getOffset(time)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void cachedRules(Blackhole bh) {
+        for (AttendanceRecord record : records) {
+            LocalDateTime time = record.time();
+            bh.consume(OffsetDateTime.of(time, rules.getOffset(time)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void atZone(Blackhole bh) {
+        for (AttendanceRecord record : records) {
+            bh.consume(record.time().atZone(zone).toOffsetDateTime());
+        }
+    }
+}
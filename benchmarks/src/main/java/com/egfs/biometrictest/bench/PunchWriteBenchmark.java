@@ -0,0 +1,138 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.biometric.BulkIngestWriter;
+import com.egfs.biometrictest.biometric.PunchLog;
+import com.egfs.biometrictest.biometric.PunchLogRepository;
+import com.egfs.biometrictest.device.AttendanceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second stored into embedded H2 through the running application:
+ * a {@code repo.save} transaction per row (the original sync loop), one
+ * {@code saveAll} transaction, and {@link BulkIngestWriter} as used by the
+ * batched ingest, for new punches and for a batch read again whose natural
+ * keys are all stored already. Each invocation writes its batch under a
+ * device id of its own, so new punches never collide on the natural key.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PunchWriteBenchmark {
+    private static final int BATCH = 500;
+
+    private ConfigurableApplicationContext context;
+    private PunchLogRepository repo;
+    private BulkIngestWriter writer;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbc;
+    private List<AttendanceRecord> records;
+    private List<PunchLog> stored;
+    private int round;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("punch-write");
+        repo = context.getBean(PunchLogRepository.class);
+        writer = context.getBean(BulkIngestWriter.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        records = SimulatedPunchSource.records(BATCH, 100, 7);
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        jdbc.update("delete from punch_logs");
+        stored = punches();
+        writer.writePunches(stored);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void repoSavePerRow() {
+        for (PunchLog punch : punches()) {
+            repo.save(punch);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void repoSaveAll() {
+        repo.saveAll(punches());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void bulkWriter() {
+        List<PunchLog> batch = punches();
+        transactionTemplate.executeWithoutResult(status -> writer.writePunches(batch));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void bulkWriterAlreadyStored() {
+        List<PunchLog> batch = copies(stored);
+        transactionTemplate.executeWithoutResult(status -> writer.writePunches(batch));
+    }
+
+    private List<PunchLog> punches() {
+        String deviceId = "bench-" + round++;
+        List<PunchLog> punches = new ArrayList<>(records.size());
+        for (AttendanceRecord record : records) {
+            LocalDateTime time = record.time();
+            PunchLog punch = new PunchLog();
+            punch.setDeviceId(deviceId);
+            punch.setUserId(record.userId());
+            punch.setPunchTime(OffsetDateTime.of(time, ZoneId.systemDefault().getRules().getOffset(time)));
+            punch.setVerifyMode(record.verifyMode());
+            punch.setInOutMode(record.inOutMode());
+            punch.setWorkCode(record.workCode());
+            punches.add(punch);
+        }
+        return punches;
+    }
+
+    private static List<PunchLog> copies(List<PunchLog> punches) {
+        List<PunchLog> copies = new ArrayList<>(punches.size());
+        for (PunchLog punch : punches) {
+            PunchLog copy = new PunchLog();
+            copy.setDeviceId(punch.getDeviceId());
+            copy.setUserId(punch.getUserId());
+            copy.setPunchTime(punch.getPunchTime());
+            copy.setVerifyMode(punch.getVerifyMode());
+            copy.setInOutMode(punch.getInOutMode());
+            copy.setWorkCode(punch.getWorkCode());
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
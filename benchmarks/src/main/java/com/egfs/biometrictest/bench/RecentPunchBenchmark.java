@@ -0,0 +1,126 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.biometric.BulkIngestWriter;
+import com.egfs.biometrictest.biometric.PunchHotStore;
+import com.egfs.biometrictest.biometric.PunchLog;
+import com.egfs.biometrictest.biometric.PunchQuery;
+import com.egfs.biometrictest.biometric.PunchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard reads over a week of punches: a keyset page from
+ * {@code punch_logs} through JPA against the same scan of
+ * {@link PunchHotStore}, for the last hour and for one user's week, and the
+ * hot store's presence view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecentPunchBenchmark {
+    private static final int USERS = 2000;
+    private static final int DAYS = 7;
+    private static final int LIMIT = 100;
+
+    private ConfigurableApplicationContext context;
+    private PunchService punchService;
+    private PunchHotStore hotStore;
+    private Instant now;
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("recent-punches");
+        punchService = context.getBean(PunchService.class);
+        hotStore = context.getBean(PunchHotStore.class);
+        BulkIngestWriter writer = context.getBean(BulkIngestWriter.class);
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        now = Instant.now();
+        userId = SimulatedPunchSource.userId(USERS / 2);
+
+        // An in and an out per user and day, plus a steady trickle over the last hour
+        SplittableRandom random = new SplittableRandom(11);
+        List<PunchLog> punches = new ArrayList<>();
+        Instant today = now.truncatedTo(ChronoUnit.DAYS);
+        for (int day = DAYS - 1; day >= 0; day--) {
+            for (int user = 0; user < USERS; user++) {
+                Instant start = today.minus(day, ChronoUnit.DAYS);
+                punches.add(punch(user, start.plusSeconds(8 * 3600 + random.nextInt(-1800, 1800)), 0));
+                punches.add(punch(user, start.plusSeconds(17 * 3600 + random.nextInt(-1800, 1800)), 1));
+            }
+        }
+        for (int i = 0; i < 600; i++) {
+            punches.add(punch(random.nextInt(USERS), now.minusSeconds(random.nextInt(3600)), random.nextInt(2)));
+        }
+        for (int from = 0; from < punches.size(); from += 1000) {
+            List<PunchLog> batch = punches.subList(from, Math.min(from + 1000, punches.size()));
+            transactionTemplate.executeWithoutResult(status -> writer.writePunches(batch));
+            hotStore.record(batch);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object databaseLastHour() {
+        return punchService.findPunches(new PunchQuery(OffsetDateTime.ofInstant(now.minusSeconds(3600), ZoneOffset.UTC),
+                null, null, null, null, null), null, LIMIT);
+    }
+
+    @Benchmark
+    public Object hotStoreLastHour() {
+        return hotStore.find(now.minusSeconds(3600), now.plusSeconds(1), null, LIMIT);
+    }
+
+    @Benchmark
+    public Object databaseUserWeek() {
+        return punchService.findPunches(new PunchQuery(null, null, userId, null, null, null), null, LIMIT);
+    }
+
+    @Benchmark
+    public Object hotStoreUserWeek() {
+        return hotStore.find(hotStore.windowStart(now), now.plusSeconds(1), userId, LIMIT);
+    }
+
+    @Benchmark
+    public Object hotStorePresence() {
+        return hotStore.presence();
+    }
+
+    private static PunchLog punch(int user, Instant time, int inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setDeviceId("bench");
+        punch.setUserId(SimulatedPunchSource.userId(user));
+        punch.setName("User " + user);
+        punch.setPunchTime(time.atOffset(ZoneOffset.UTC));
+        punch.setVerifyMode(1);
+        punch.setInOutMode(inOutMode);
+        return punch;
+    }
+}
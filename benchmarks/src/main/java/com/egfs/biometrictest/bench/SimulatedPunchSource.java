@@ -0,0 +1,41 @@
+package com.egfs.biometrictest.bench;
+
+import com.egfs.biometrictest.device.AttendanceRecord;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic stand-in for a terminal's attendance log: users clock in
+ * around 08:00 and out around 17:00, day after day, with the verify and
+ * in/out modes a real device reports. The same seed gives the same records,
+ * so runs are comparable.
+ */
+public final class SimulatedPunchSource {
+    public static final LocalDateTime FIRST_DAY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private SimulatedPunchSource() {
+    }
+
+    public static List<AttendanceRecord> records(int count, int users, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<AttendanceRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int user = i % users;
+            int shiftEvent = i / users;                       // 0 = in of day 0, 1 = out of day 0, ...
+            boolean out = shiftEvent % 2 == 1;
+            LocalDateTime time = FIRST_DAY.plusDays(shiftEvent / 2)
+                    .withHour(out ? 17 : 8)
+                    .plusSeconds(random.nextInt(-1800, 1800));
+            int verifyMode = random.nextInt(10) < 8 ? 1 : 15;  // mostly fingerprint, some face
+            records.add(new AttendanceRecord(String.valueOf(1000 + user), verifyMode, out ? 1 : 0, time, "0"));
+        }
+        return records;
+    }
+
+    public static String userId(int user) {
+        return String.valueOf(1000 + user);
+    }
+}
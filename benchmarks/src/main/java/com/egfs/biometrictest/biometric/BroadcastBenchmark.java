@@ -0,0 +1,82 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost on the ingest thread of publishing a punch to N realtime subscribers.
+ * Emitters discard what they are sent, so this is the broadcaster's own work:
+ * formatting once and queueing per subscriber. Lives in the broadcaster's
+ * package to attach such emitters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    private PunchBroadcaster broadcaster;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        broadcaster = new PunchBroadcaster(new ZktecoProperties(), null);
+        for (int i = 0; i < subscribers; i++) {
+            broadcaster.subscribe(null, new DiscardingEmitter());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publish() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<PunchLog> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            PunchLog punch = new PunchLog();
+            punch.setId(++nextId);
+            punch.setUserId(String.valueOf(1000 + i));
+            punch.setName("User " + i);
+            punch.setPunchTime(now);
+            punch.setSyncedAt(now);
+            punch.setVerifyMode(1);
+            punch.setInOutMode(0);
+            batch.add(punch);
+        }
+        broadcaster.publish(batch);
+    }
+
+    private static class DiscardingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) {
+        }
+    }
+}
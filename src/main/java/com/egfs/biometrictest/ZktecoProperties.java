@@ -2,12 +2,36 @@ package com.egfs.biometrictest;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "zkteco")
 public class ZktecoProperties {
     private String ip;
     private int port = 4370;
     private String password;
     private int machineNumber = 1;
+    private boolean clearLogAfterSync = false; // ClearGLog once punches are safely stored
+    private boolean bulkTemplateRead = true; // ReadAllTemplate before iterating users
+    private String backend = "jacob"; // jacob (COM SDK, Windows), tcp (pure Java protocol client) or sim (simulated terminal)
+    private long timeoutMs = 10_000; // socket timeout of the tcp backend
+    private List<Device> devices = new ArrayList<>(); // fleet; when empty the top-level ip/port is the only device
+    private final Fleet fleet = new Fleet();
+    private final Session session = new Session();
+    private final Ingest ingest = new Ingest();
+    private final Directory directory = new Directory();
+    private final Realtime realtime = new Realtime();
+    private final Sse sse = new Sse();
+    private final Export export = new Export();
+    private final Retention retention = new Retention();
+    private final Attendance attendance = new Attendance();
+    private final Stats stats = new Stats();
+    private final HotStore hotStore = new HotStore();
+    private final Jobs jobs = new Jobs();
+    private final Push push = new Push();
+    private final Scheduler scheduler = new Scheduler();
+    private final Simulation simulation = new Simulation();
 
     public String getIp() { return ip; }
     public void setIp(String ip) { this.ip = ip; }
@@ -17,5 +41,295 @@ public class ZktecoProperties {
     public void setPassword(String password) { this.password = password; }
     public int getMachineNumber() { return machineNumber; }
     public void setMachineNumber(int machineNumber) { this.machineNumber = machineNumber; }
-}
+    public boolean isClearLogAfterSync() { return clearLogAfterSync; }
+    public void setClearLogAfterSync(boolean clearLogAfterSync) { this.clearLogAfterSync = clearLogAfterSync; }
+    public boolean isBulkTemplateRead() { return bulkTemplateRead; }
+    public void setBulkTemplateRead(boolean bulkTemplateRead) { this.bulkTemplateRead = bulkTemplateRead; }
+    public String getBackend() { return backend; }
+    public void setBackend(String backend) { this.backend = backend; }
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public List<Device> getDevices() { return devices; }
+    public void setDevices(List<Device> devices) { this.devices = devices; }
+    public Fleet getFleet() { return fleet; }
+    public Session getSession() { return session; }
+    public Ingest getIngest() { return ingest; }
+    public Directory getDirectory() { return directory; }
+    public Realtime getRealtime() { return realtime; }
+    public Sse getSse() { return sse; }
+    public Export getExport() { return export; }
+    public Retention getRetention() { return retention; }
+    public Attendance getAttendance() { return attendance; }
+    public Stats getStats() { return stats; }
+    public HotStore getHotStore() { return hotStore; }
+    public Jobs getJobs() { return jobs; }
+    public Push getPush() { return push; }
+    public Scheduler getScheduler() { return scheduler; }
+    public Simulation getSimulation() { return simulation; }
+
+    /** The single device described by the top-level ip/port/password/machine-number. */
+    public Device toDefaultDevice() {
+        Device device = new Device();
+        device.setId(Device.DEFAULT_ID);
+        device.setIp(ip);
+        device.setPort(port);
+        device.setPassword(password);
+        device.setMachineNumber(machineNumber);
+        return device;
+    }
+
+    public static class Device {
+        public static final String DEFAULT_ID = "default";
+
+        private String id; // stored in device_id columns, keep it stable
+        private String ip;
+        private int port = 4370;
+        private String password;
+        private int machineNumber = 1;
+        private String backend; // overrides zkteco.backend for this device
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getIp() { return ip; }
+        public void setIp(String ip) { this.ip = ip; }
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        public int getMachineNumber() { return machineNumber; }
+        public void setMachineNumber(int machineNumber) { this.machineNumber = machineNumber; }
+        public String getBackend() { return backend; }
+        public void setBackend(String backend) { this.backend = backend; }
+
+        @Override
+        public String toString() { return id + " (" + ip + ":" + port + ")"; }
+    }
+
+    public static class Fleet {
+        private int maxConcurrency = 4; // devices synced at the same time
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+    }
+
+    public static class Session {
+        private long keepaliveSeconds = 30; // ping sessions idle this long
+        private long idleTimeoutSeconds = 600; // close sessions idle this long
+
+        public long getKeepaliveSeconds() { return keepaliveSeconds; }
+        public void setKeepaliveSeconds(long keepaliveSeconds) { this.keepaliveSeconds = keepaliveSeconds; }
+        public long getIdleTimeoutSeconds() { return idleTimeoutSeconds; }
+        public void setIdleTimeoutSeconds(long idleTimeoutSeconds) { this.idleTimeoutSeconds = idleTimeoutSeconds; }
+    }
+
+    public static class Ingest {
+        private int batchSize = 500; // rows per JDBC batch / multi-row INSERT
+        private int ringSize = 1024; // punch batches between device readers and the database writer
+        private int groupCommitRows = 5000; // most punches stored by one transaction of the writer
+        private int recentKeys = 100_000; // punch keys remembered to drop records read again before the database
+
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public int getRingSize() { return ringSize; }
+        public void setRingSize(int ringSize) { this.ringSize = ringSize; }
+        public int getGroupCommitRows() { return groupCommitRows; }
+        public void setGroupCommitRows(int groupCommitRows) { this.groupCommitRows = groupCommitRows; }
+        public int getRecentKeys() { return recentKeys; }
+        public void setRecentKeys(int recentKeys) { this.recentKeys = recentKeys; }
+    }
+
+    public static class Directory {
+        private int maxSize = 100_000; // users kept in the in-memory name directory
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+    }
+
+    public static class Realtime {
+        private long pollIntervalMs = 500; // longest wait for a new punch when no device event arrives
+
+        public long getPollIntervalMs() { return pollIntervalMs; }
+        public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+    }
+
+    public static class Sse {
+        /** What happens when a subscriber's queue is full. */
+        public enum OverflowPolicy { DROP_OLDEST, COALESCE, DISCONNECT }
+
+        private int queueCapacity = 256; // events buffered per subscriber
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private long heartbeatSeconds = 15; // comment sent to every subscriber to detect dead clients
+        private int dispatchThreads = 4; // threads writing to subscribers, shared by all of them
+        private int replayBufferSize = 1024; // recent events kept for Last-Event-ID resume
 
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+        public long getHeartbeatSeconds() { return heartbeatSeconds; }
+        public void setHeartbeatSeconds(long heartbeatSeconds) { this.heartbeatSeconds = heartbeatSeconds; }
+        public int getDispatchThreads() { return dispatchThreads; }
+        public void setDispatchThreads(int dispatchThreads) { this.dispatchThreads = dispatchThreads; }
+        public int getReplayBufferSize() { return replayBufferSize; }
+        public void setReplayBufferSize(int replayBufferSize) { this.replayBufferSize = replayBufferSize; }
+    }
+
+    public static class Export {
+        private int fetchSize = 1000; // rows per JDBC round trip while streaming an export
+
+        public int getFetchSize() { return fetchSize; }
+        public void setFetchSize(int fetchSize) { this.fetchSize = fetchSize; }
+    }
+
+    public static class Retention {
+        private int months = 0; // punch logs older than this are removed; 0 keeps everything
+        private boolean dropPartitions = false; // PostgreSQL: drop expired partitions, otherwise only detach them
+        private int partitionsAhead = 3; // PostgreSQL: monthly partitions created in advance
+        private long intervalHours = 24; // maintenance period
+
+        public int getMonths() { return months; }
+        public void setMonths(int months) { this.months = months; }
+        public boolean isDropPartitions() { return dropPartitions; }
+        public void setDropPartitions(boolean dropPartitions) { this.dropPartitions = dropPartitions; }
+        public int getPartitionsAhead() { return partitionsAhead; }
+        public void setPartitionsAhead(int partitionsAhead) { this.partitionsAhead = partitionsAhead; }
+        public long getIntervalHours() { return intervalHours; }
+        public void setIntervalHours(long intervalHours) { this.intervalHours = intervalHours; }
+    }
+
+    public static class Attendance {
+        private String zone = ""; // time zone of a working day; empty uses the JVM zone, like punch times
+        private long duplicateWindowSeconds = 60; // repeated punches of the same state within this are one punch
+
+        public String getZone() { return zone; }
+        public void setZone(String zone) { this.zone = zone; }
+        public long getDuplicateWindowSeconds() { return duplicateWindowSeconds; }
+        public void setDuplicateWindowSeconds(long duplicateWindowSeconds) { this.duplicateWindowSeconds = duplicateWindowSeconds; }
+
+        /** The configured zone, or the JVM zone when none is set. */
+        public ZoneId toZoneId() {
+            return zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        }
+    }
+
+    public static class Stats {
+        private long flushSeconds = 10; // in-memory counters are written to punch_stats this often
+        private long sseIntervalSeconds = 5; // period of the stats event on /punches/realtime
+
+        public long getFlushSeconds() { return flushSeconds; }
+        public void setFlushSeconds(long flushSeconds) { this.flushSeconds = flushSeconds; }
+        public long getSseIntervalSeconds() { return sseIntervalSeconds; }
+        public void setSseIntervalSeconds(long sseIntervalSeconds) { this.sseIntervalSeconds = sseIntervalSeconds; }
+    }
+
+    public static class HotStore {
+        private boolean enabled = true; // keep recent punches in memory for /punches/recent and /presence
+        private int days = 7; // UTC days held, today included
+        private long presenceHours = 16; // an in punch older than this no longer counts as present
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getDays() { return days; }
+        public void setDays(int days) { this.days = days; }
+        public long getPresenceHours() { return presenceHours; }
+        public void setPresenceHours(long presenceHours) { this.presenceHours = presenceHours; }
+    }
+
+    public static class Jobs {
+        private int threads = 4; // sync jobs running at the same time
+        private int historySize = 100; // finished jobs kept for GET /zkteco/jobs
+        private long progressIntervalMs = 1000; // period of progress events on /zkteco/jobs/{id}/events
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public int getHistorySize() { return historySize; }
+        public void setHistorySize(int historySize) { this.historySize = historySize; }
+        public long getProgressIntervalMs() { return progressIntervalMs; }
+        public void setProgressIntervalMs(long progressIntervalMs) { this.progressIntervalMs = progressIntervalMs; }
+    }
+
+    public static class Push {
+        private int batchSize = 500; // templates per BeginBatchUpdate/BatchUpdate round on the device
+
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    }
+
+    public static class Scheduler {
+        private boolean enabled = false; // sync every device in the background
+        private int threads = 4; // scheduled syncs running at the same time
+        private long initialDelaySeconds = 30; // first sync after startup, spread over one base interval
+        private long minIntervalSeconds = 10; // punch sync interval at peaks
+        private long baseIntervalSeconds = 60; // punch sync interval while punches come in
+        private long maxIntervalSeconds = 600; // longest interval for idle or failing devices
+        private double peakPunchesPerMinute = 20; // a device this busy, now or at this time on earlier days, is at a peak
+        private double jitter = 0.2; // intervals vary randomly by this fraction
+        private long templateIntervalMinutes = 60; // template sync interval; 0 disables scheduled template syncs
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public long getInitialDelaySeconds() { return initialDelaySeconds; }
+        public void setInitialDelaySeconds(long initialDelaySeconds) { this.initialDelaySeconds = initialDelaySeconds; }
+        public long getMinIntervalSeconds() { return minIntervalSeconds; }
+        public void setMinIntervalSeconds(long minIntervalSeconds) { this.minIntervalSeconds = minIntervalSeconds; }
+        public long getBaseIntervalSeconds() { return baseIntervalSeconds; }
+        public void setBaseIntervalSeconds(long baseIntervalSeconds) { this.baseIntervalSeconds = baseIntervalSeconds; }
+        public long getMaxIntervalSeconds() { return maxIntervalSeconds; }
+        public void setMaxIntervalSeconds(long maxIntervalSeconds) { this.maxIntervalSeconds = maxIntervalSeconds; }
+        public double getPeakPunchesPerMinute() { return peakPunchesPerMinute; }
+        public void setPeakPunchesPerMinute(double peakPunchesPerMinute) { this.peakPunchesPerMinute = peakPunchesPerMinute; }
+        public double getJitter() { return jitter; }
+        public void setJitter(double jitter) { this.jitter = jitter; }
+        public long getTemplateIntervalMinutes() { return templateIntervalMinutes; }
+        public void setTemplateIntervalMinutes(long templateIntervalMinutes) { this.templateIntervalMinutes = templateIntervalMinutes; }
+    }
+
+    public static class Simulation {
+        private int users = 500; // users enrolled on every simulated terminal
+        private int fingersPerUser = 2; // templates per user
+        private int templateBytes = 1024; // decoded size of one template
+        private int logSize = 4000; // records already in each terminal's log at startup
+        private int logDays = 30; // days the initial log is spread over, ending now
+        private double punchesPerSecond = 0.5; // steady punch rate of each terminal
+        private long burstEverySeconds = 0; // a shift-change burst starts this often; 0 disables bursts
+        private long burstSeconds = 60; // length of a burst
+        private double burstPunchesPerSecond = 20; // punch rate of each terminal during a burst
+        private long callLatencyMs = 0; // added to every device call
+        private int recordsPerSecond = 0; // log and template download speed; 0 is unlimited
+        private double failureRate = 0; // share of device calls that fail
+        private double eventLossRate = 0; // share of realtime events never pushed; the punches stay in the log
+        private long seed = 42; // same seed, same users, templates and logs
+
+        public int getUsers() { return users; }
+        public void setUsers(int users) { this.users = users; }
+        public int getFingersPerUser() { return fingersPerUser; }
+        public void setFingersPerUser(int fingersPerUser) { this.fingersPerUser = fingersPerUser; }
+        public int getTemplateBytes() { return templateBytes; }
+        public void setTemplateBytes(int templateBytes) { this.templateBytes = templateBytes; }
+        public int getLogSize() { return logSize; }
+        public void setLogSize(int logSize) { this.logSize = logSize; }
+        public int getLogDays() { return logDays; }
+        public void setLogDays(int logDays) { this.logDays = logDays; }
+        public double getPunchesPerSecond() { return punchesPerSecond; }
+        public void setPunchesPerSecond(double punchesPerSecond) { this.punchesPerSecond = punchesPerSecond; }
+        public long getBurstEverySeconds() { return burstEverySeconds; }
+        public void setBurstEverySeconds(long burstEverySeconds) { this.burstEverySeconds = burstEverySeconds; }
+        public long getBurstSeconds() { return burstSeconds; }
+        public void setBurstSeconds(long burstSeconds) { this.burstSeconds = burstSeconds; }
+        public double getBurstPunchesPerSecond() { return burstPunchesPerSecond; }
+        public void setBurstPunchesPerSecond(double burstPunchesPerSecond) { this.burstPunchesPerSecond = burstPunchesPerSecond; }
+        public long getCallLatencyMs() { return callLatencyMs; }
+        public void setCallLatencyMs(long callLatencyMs) { this.callLatencyMs = callLatencyMs; }
+        public int getRecordsPerSecond() { return recordsPerSecond; }
+        public void setRecordsPerSecond(int recordsPerSecond) { this.recordsPerSecond = recordsPerSecond; }
+        public double getFailureRate() { return failureRate; }
+        public void setFailureRate(double failureRate) { this.failureRate = failureRate; }
+        public double getEventLossRate() { return eventLossRate; }
+        public void setEventLossRate(double eventLossRate) { this.eventLossRate = eventLossRate; }
+        public long getSeed() { return seed; }
+        public void setSeed(long seed) { this.seed = seed; }
+    }
+}
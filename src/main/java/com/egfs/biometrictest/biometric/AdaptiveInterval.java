@@ -0,0 +1,101 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Interval between punch syncs of one device, adapted to its traffic.
+ * <ul>
+ *   <li>While punches come in, the device is synced every base interval.</li>
+ *   <li>At a peak, every minimum interval. The device is at a peak while it
+ *       punches at {@code peak-punches-per-minute} or more. It is also at a
+ *       peak when its earlier days reached that rate at this time of day or
+ *       one base interval ahead, so shift changes are caught as they start.</li>
+ *   <li>Each sync that finds nothing, or fails, doubles the interval up to
+ *       the maximum.</li>
+ * </ul>
+ * The profile of earlier days is learned per 15-minute slot of the day, as
+ * a moving average of the rates measured in that slot. Not thread safe; a
+ * device's syncs are scheduled one after the other.
+ */
+final class AdaptiveInterval {
+    private static final int SLOT_MINUTES = 15;
+    private static final int SLOTS = 24 * 60 / SLOT_MINUTES;
+    /** Weight of a new measurement in a slot's average. */
+    private static final double LEARNING_RATE = 0.3;
+    private static final int MAX_DOUBLINGS = 16;
+
+    private final ZktecoProperties.Scheduler config;
+    private final ZoneId zone;
+    private final double[] slotRates = new double[SLOTS];
+    private Instant lastSync;
+    private int failures;
+    private int idleSyncs;
+    private boolean peak;
+
+    AdaptiveInterval(ZktecoProperties.Scheduler config, ZoneId zone) {
+        this.config = config;
+        this.zone = zone;
+        Arrays.fill(slotRates, -1);
+    }
+
+    /** Learns from a sync that finished at {@code now} and returns the delay before the next one. */
+    Duration next(DeviceSyncResult result, Instant now) {
+        long seconds;
+        if (!result.success()) {
+            failures++;
+            peak = false;
+            seconds = backoff(failures);
+        } else {
+            failures = 0;
+            double rate = 0;
+            // The first sync imports the whole backlog, which says nothing about the rate
+            if (lastSync != null) {
+                double minutes = Math.max(1, Duration.between(lastSync, now).toSeconds()) / 60.0;
+                rate = result.count() / minutes;
+                learn(now, rate);
+            }
+            idleSyncs = result.count() == 0 ? idleSyncs + 1 : 0;
+            peak = rate >= config.getPeakPunchesPerMinute() || isLearnedPeak(now)
+                    || isLearnedPeak(now.plusSeconds(config.getBaseIntervalSeconds()));
+            seconds = peak ? config.getMinIntervalSeconds() : backoff(idleSyncs);
+        }
+        lastSync = now;
+        return Duration.ofSeconds(seconds);
+    }
+
+    boolean isPeak() {
+        return peak;
+    }
+
+    int getFailures() {
+        return failures;
+    }
+
+    /** The base interval doubled {@code times} times, capped at the maximum. */
+    private long backoff(int times) {
+        long base = Math.max(1, config.getBaseIntervalSeconds());
+        long max = Math.max(base, config.getMaxIntervalSeconds());
+        int doublings = Math.min(times, MAX_DOUBLINGS);
+        return Math.min(max, base << doublings);
+    }
+
+    private void learn(Instant now, double rate) {
+        int slot = slotOf(now);
+        slotRates[slot] = slotRates[slot] < 0 ? rate : slotRates[slot] + LEARNING_RATE * (rate - slotRates[slot]);
+    }
+
+    private boolean isLearnedPeak(Instant time) {
+        return slotRates[slotOf(time)] >= config.getPeakPunchesPerMinute();
+    }
+
+    private int slotOf(Instant time) {
+        LocalTime local = time.atZone(zone).toLocalTime();
+        return (local.getHour() * 60 + local.getMinute()) / SLOT_MINUTES;
+    }
+}
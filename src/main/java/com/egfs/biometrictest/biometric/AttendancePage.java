@@ -0,0 +1,9 @@
+package com.egfs.biometrictest.biometric;
+
+import java.util.List;
+
+/**
+ * One page of daily attendance; {@code nextCursor} is null on the last page.
+ */
+public record AttendancePage(List<DailyAttendance> items, String nextCursor) {
+}
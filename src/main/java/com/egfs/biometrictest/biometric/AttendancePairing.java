@@ -0,0 +1,97 @@
+package com.egfs.biometrictest.biometric;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Pairs one user's punches of one day into worked intervals.
+ * <p>
+ * A punch repeated in the same state within the duplicate window counts once.
+ * Check-in, break-in and overtime-in open an interval; check-out, break-out and
+ * overtime-out close it, and the time from a break-out to the next in is break.
+ * An out with nothing open is a missing in, an in while one is open (or still
+ * open at the end of the day) a missing out; both are counted, never guessed.
+ * Terminals without a state key report every punch as check-in, so a day
+ * with no out at all is paired alternately, first with second and so on.
+ */
+final class AttendancePairing {
+
+    private static final Comparator<PunchLog> BY_TIME = Comparator.comparing(PunchLog::getPunchTime)
+            .thenComparing(PunchLog::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private AttendancePairing() {
+    }
+
+    /** Totals of one day, as stored in {@link DailyAttendance}. */
+    record DayTotals(OffsetDateTime firstIn, OffsetDateTime lastOut, long workedSeconds, long breakSeconds,
+                     int punchCount, int duplicatePunches, int missingIn, int missingOut) {
+    }
+
+    static DayTotals pair(List<PunchLog> punches, Duration duplicateWindow) {
+        List<PunchLog> sorted = new ArrayList<>(punches);
+        sorted.sort(BY_TIME);
+
+        List<PunchLog> kept = new ArrayList<>(sorted.size());
+        for (PunchLog punch : sorted) {
+            PunchLog previous = kept.isEmpty() ? null : kept.get(kept.size() - 1);
+            if (previous != null && mode(previous) == mode(punch)
+                    && !punch.getPunchTime().isAfter(previous.getPunchTime().plus(duplicateWindow))) {
+                continue;
+            }
+            kept.add(punch);
+        }
+        boolean stateless = kept.stream().noneMatch(p -> isOut(mode(p)));
+
+        OffsetDateTime firstIn = null;
+        OffsetDateTime lastOut = null;
+        OffsetDateTime open = null;
+        OffsetDateTime breakStart = null;
+        long worked = 0;
+        long onBreak = 0;
+        int missingIn = 0;
+        int missingOut = 0;
+        for (int i = 0; i < kept.size(); i++) {
+            PunchLog punch = kept.get(i);
+            OffsetDateTime time = punch.getPunchTime();
+            boolean in = stateless ? i % 2 == 0 : !isOut(mode(punch));
+            if (in) {
+                if (open != null) {
+                    missingOut++;
+                } else if (breakStart != null) {
+                    onBreak += Duration.between(breakStart, time).toSeconds();
+                }
+                open = time;
+                breakStart = null;
+                if (firstIn == null) {
+                    firstIn = time;
+                }
+            } else {
+                if (open == null) {
+                    missingIn++;
+                } else {
+                    worked += Duration.between(open, time).toSeconds();
+                    open = null;
+                }
+                lastOut = time;
+                breakStart = mode(punch) == 2 ? time : null;
+            }
+        }
+        if (open != null) {
+            missingOut++;
+        }
+        return new DayTotals(firstIn, lastOut, worked, onBreak, sorted.size(), sorted.size() - kept.size(),
+                missingIn, missingOut);
+    }
+
+    private static int mode(PunchLog punch) {
+        return punch.getInOutMode() != null ? punch.getInOutMode() : 0;
+    }
+
+    /** 1=check-out, 2=break-out, 5=overtime-out; everything else opens an interval. */
+    private static boolean isOut(int mode) {
+        return mode == 1 || mode == 2 || mode == 5;
+    }
+}
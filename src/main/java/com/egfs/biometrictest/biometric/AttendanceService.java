@@ -0,0 +1,214 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import jakarta.persistence.criteria.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains {@link DailyAttendance}. Each ingested batch re-pairs only the
+ * (user, day) pairs it touched, from those users' punches of those days, in
+ * the same transaction as the punches themselves; a day is a handful of
+ * punches, so late or out-of-order punches cost no more than new ones.
+ * Timesheet reads then never touch {@code punch_logs}.
+ */
+@Service
+public class AttendanceService {
+    private static final Logger log = LoggerFactory.getLogger(AttendanceService.class);
+
+    static final int MAX_PAGE_SIZE = 5000;
+    private static final Sort ORDER = Sort.by("userId", "workDate");
+
+    private final PunchLogRepository punchRepo;
+    private final DailyAttendanceRepository attendanceRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+    private final Duration duplicateWindow;
+
+    public AttendanceService(ZktecoProperties props, PunchLogRepository punchRepo,
+                             DailyAttendanceRepository attendanceRepo, TransactionTemplate transactionTemplate) {
+        this.punchRepo = punchRepo;
+        this.attendanceRepo = attendanceRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.zone = props.getAttendance().toZoneId();
+        this.duplicateWindow = Duration.ofSeconds(props.getAttendance().getDuplicateWindowSeconds());
+    }
+
+    /**
+     * Updates the days touched by a batch of stored punches. Runs in the
+     * caller's transaction, so summaries commit together with the punches.
+     */
+    public void apply(List<PunchLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<DayKey> touched = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (PunchLog punch : batch) {
+            LocalDate day = dayOf(punch);
+            touched.add(new DayKey(punch.getUserId(), day));
+            userIds.add(punch.getUserId());
+            first = first == null || day.isBefore(first) ? day : first;
+            last = last == null || day.isAfter(last) ? day : last;
+        }
+        List<PunchLog> punches = punchRepo.findByUserIdInAndPunchTimeGreaterThanEqualAndPunchTimeLessThan(
+                userIds, startOf(first), startOf(last.plusDays(1)));
+        store(touched, punches, attendanceRepo.findByUserIdInAndWorkDateBetween(userIds, first, last));
+    }
+
+    /**
+     * Recomputes every summary from {@code from} to {@code to}, one day per
+     * transaction, e.g. for punches stored before summaries existed.
+     *
+     * @return number of summaries written
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        int written = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            written += transactionTemplate.execute(status -> {
+                List<PunchLog> punches = punchRepo.findByPunchTimeGreaterThanEqualAndPunchTimeLessThan(
+                        startOf(current), startOf(current.plusDays(1)));
+                List<DailyAttendance> existing = attendanceRepo.findByWorkDate(current);
+                Set<DayKey> keys = new HashSet<>();
+                punches.forEach(p -> keys.add(new DayKey(p.getUserId(), current)));
+                existing.forEach(a -> keys.add(new DayKey(a.getUserId(), current)));
+                return store(keys, punches, existing);
+            });
+        }
+        log.info("Rebuilt {} daily attendance summaries from {} to {}", written, from, to);
+        return written;
+    }
+
+    /**
+     * Summaries from {@code from} to {@code to} (both inclusive), ordered by
+     * user and day and paged by keyset on {@code (user_id, work_date)}.
+     *
+     * @param userId optional, a single user's timesheet
+     * @throws IllegalArgumentException if the cursor is not a valid token
+     */
+    public AttendancePage findDays(LocalDate from, LocalDate to, String userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        DayKey after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+        Specification<DailyAttendance> spec = (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            where.add(cb.between(root.get("workDate"), from, to));
+            if (userId != null) {
+                where.add(cb.equal(root.get("userId"), userId));
+            }
+            if (after != null) {
+                where.add(cb.or(
+                        cb.greaterThan(root.get("userId"), after.userId()),
+                        cb.and(cb.equal(root.get("userId"), after.userId()),
+                                cb.greaterThan(root.get("workDate"), after.day()))));
+            }
+            return cb.and(where.toArray(new Predicate[0]));
+        };
+        List<DailyAttendance> rows = attendanceRepo.findBy(spec, q -> q.sortBy(ORDER).limit(size + 1).all());
+        if (rows.size() <= size) {
+            return new AttendancePage(rows, null);
+        }
+        List<DailyAttendance> items = rows.subList(0, size);
+        DailyAttendance lastItem = items.get(size - 1);
+        return new AttendancePage(items, encodeCursor(new DayKey(lastItem.getUserId(), lastItem.getWorkDate())));
+    }
+
+    /** Re-pairs {@code keys} from {@code punches}; a key left without punches loses its summary. */
+    private int store(Set<DayKey> keys, List<PunchLog> punches, List<DailyAttendance> existing) {
+        Map<DayKey, List<PunchLog>> byDay = new HashMap<>();
+        for (PunchLog punch : punches) {
+            DayKey key = new DayKey(punch.getUserId(), dayOf(punch));
+            if (keys.contains(key)) {
+                byDay.computeIfAbsent(key, k -> new ArrayList<>()).add(punch);
+            }
+        }
+        Map<DayKey, DailyAttendance> stored = new HashMap<>();
+        existing.forEach(a -> stored.put(new DayKey(a.getUserId(), a.getWorkDate()), a));
+
+        List<DailyAttendance> changed = new ArrayList<>(keys.size());
+        for (DayKey key : keys) {
+            List<PunchLog> dayPunches = byDay.get(key);
+            DailyAttendance summary = stored.get(key);
+            if (dayPunches == null) {
+                if (summary != null) {
+                    attendanceRepo.delete(summary);
+                }
+                continue;
+            }
+            if (summary == null) {
+                summary = new DailyAttendance(key.userId(), key.day());
+            }
+            AttendancePairing.DayTotals totals = AttendancePairing.pair(dayPunches, duplicateWindow);
+            summary.setName(latestName(dayPunches, summary.getName()));
+            summary.setFirstIn(totals.firstIn());
+            summary.setLastOut(totals.lastOut());
+            summary.setWorkedSeconds(totals.workedSeconds());
+            summary.setBreakSeconds(totals.breakSeconds());
+            summary.setPunchCount(totals.punchCount());
+            summary.setDuplicatePunches(totals.duplicatePunches());
+            summary.setMissingIn(totals.missingIn());
+            summary.setMissingOut(totals.missingOut());
+            summary.setUpdatedAt(OffsetDateTime.now());
+            changed.add(summary);
+        }
+        attendanceRepo.saveAll(changed);
+        return changed.size();
+    }
+
+    private static String latestName(List<PunchLog> punches, String fallback) {
+        String name = fallback;
+        OffsetDateTime latest = null;
+        for (PunchLog punch : punches) {
+            if (punch.getName() != null && (latest == null || punch.getPunchTime().isAfter(latest))) {
+                name = punch.getName();
+                latest = punch.getPunchTime();
+            }
+        }
+        return name;
+    }
+
+    private LocalDate dayOf(PunchLog punch) {
+        return punch.getPunchTime().atZoneSameInstant(zone).toLocalDate();
+    }
+
+    private OffsetDateTime startOf(LocalDate day) {
+        return day.atStartOfDay(zone).toOffsetDateTime();
+    }
+
+    private static String encodeCursor(DayKey key) {
+        String raw = key.day() + "|" + key.userId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DayKey decodeCursor(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new DayKey(raw.substring(sep + 1), LocalDate.parse(raw.substring(0, sep)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    private record DayKey(String userId, LocalDate day) {
+    }
+}
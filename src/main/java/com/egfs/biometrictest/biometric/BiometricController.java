@@ -1,13 +1,24 @@
 package com.egfs.biometrictest.biometric;
 
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/zkteco")
@@ -15,39 +26,379 @@ public class BiometricController {
 
     private final ZktecoSyncService templateService;
     private final PunchService punchService;
+    private final UserDirectory userDirectory;
+    private final DeviceRegistry devices;
+    private final DeviceSessionPool sessions;
+    private final PunchBroadcaster broadcaster;
+    private final PunchExportService exportService;
+    private final AttendanceService attendanceService;
+    private final PunchStatsService statsService;
+    private final PunchHotStore hotStore;
+    private final PunchIngestPipeline pipeline;
+    private final SyncJobService jobService;
+    private final SyncScheduler scheduler;
 
-    public BiometricController(ZktecoSyncService templateService, PunchService punchService) {
+    public BiometricController(ZktecoSyncService templateService, PunchService punchService,
+                               UserDirectory userDirectory, DeviceRegistry devices, DeviceSessionPool sessions,
+                               PunchBroadcaster broadcaster, PunchExportService exportService,
+                               AttendanceService attendanceService, PunchStatsService statsService,
+                               PunchHotStore hotStore, PunchIngestPipeline pipeline,
+                               SyncJobService jobService, SyncScheduler scheduler) {
         this.templateService = templateService;
         this.punchService = punchService;
+        this.userDirectory = userDirectory;
+        this.devices = devices;
+        this.sessions = sessions;
+        this.broadcaster = broadcaster;
+        this.exportService = exportService;
+        this.attendanceService = attendanceService;
+        this.statsService = statsService;
+        this.hotStore = hotStore;
+        this.pipeline = pipeline;
+        this.jobService = jobService;
+        this.scheduler = scheduler;
     }
 
+    /** Starts a template sync job on the default device; see {@code /jobs/{id}}. */
     @PostMapping("/sync")
     public ResponseEntity<String> sync() {
-        int count = templateService.syncTemplates();
-        return ResponseEntity.ok("Imported templates: " + count);
+        SyncJob job = jobService.submit(SyncJob.Type.TEMPLATES, devices.getDefault());
+        return ResponseEntity.accepted().location(jobLocation(job)).body("Template sync started: job " + job.getId());
     }
 
+    /** Starts a punch sync job on the default device; see {@code /jobs/{id}}. */
     @PostMapping("/sync-punches")
     public ResponseEntity<String> syncPunches() {
-        int count = punchService.syncPunches();
-        return ResponseEntity.ok("Imported punch logs: " + count);
+        SyncJob job = jobService.submit(SyncJob.Type.PUNCHES, devices.getDefault());
+        return ResponseEntity.accepted().location(jobLocation(job)).body("Punch sync started: job " + job.getId());
+    }
+
+    @GetMapping("/devices")
+    public ResponseEntity<List<Map<String, Object>>> getDevices() {
+        List<Map<String, Object>> result = devices.getAll().stream()
+                .map(d -> Map.<String, Object>of("id", d.getId(), "ip", String.valueOf(d.getIp()),
+                        "port", d.getPort(), "machineNumber", d.getMachineNumber()))
+                .toList();
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/devices/sessions")
+    public ResponseEntity<Map<String, Object>> getSessions() {
+        return ResponseEntity.ok(sessions.getStatus());
+    }
+
+    /** Starts a template sync job on one device; see {@code /jobs/{id}}. */
+    @PostMapping("/devices/{deviceId}/sync")
+    public ResponseEntity<SyncJob> syncDevice(@PathVariable String deviceId) {
+        return devices.find(deviceId)
+                .map(device -> accepted(jobService.submit(SyncJob.Type.TEMPLATES, device)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Starts a punch sync job on one device; see {@code /jobs/{id}}. */
+    @PostMapping("/devices/{deviceId}/sync-punches")
+    public ResponseEntity<SyncJob> syncDevicePunches(@PathVariable String deviceId) {
+        return devices.find(deviceId)
+                .map(device -> accepted(jobService.submit(SyncJob.Type.PUNCHES, device)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/devices/{deviceId}/test-connection")
+    public ResponseEntity<Map<String, Object>> testDeviceConnection(@PathVariable String deviceId) {
+        return devices.find(deviceId)
+                .map(device -> ResponseEntity.ok(templateService.testConnection(device)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Starts a template sync job of every device; its {@code results} hold one entry per device. */
+    @PostMapping("/fleet/sync")
+    public ResponseEntity<SyncJob> syncFleet() {
+        return accepted(jobService.submitFleet(SyncJob.Type.TEMPLATES));
+    }
+
+    /** Starts a punch sync job of every device; its {@code results} hold one entry per device. */
+    @PostMapping("/fleet/sync-punches")
+    public ResponseEntity<SyncJob> syncFleetPunches() {
+        return accepted(jobService.submitFleet(SyncJob.Type.PUNCHES));
+    }
+
+    /**
+     * Starts a job pushing the stored templates of {@code sourceDeviceId} (the
+     * default device without it) to {@code targetDeviceId}s, or to every other
+     * device. {@code userId}s limit the push to those users.
+     */
+    @PostMapping("/fleet/push-templates")
+    public ResponseEntity<SyncJob> pushTemplates(
+            @RequestParam(required = false) String sourceDeviceId,
+            @RequestParam(name = "targetDeviceId", required = false) List<String> targetDeviceIds,
+            @RequestParam(name = "userId", required = false) List<String> userIds) {
+        Optional<Device> source = sourceDeviceId == null ? Optional.of(devices.getDefault()) : devices.find(sourceDeviceId);
+        if (source.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<Device> targets;
+        if (targetDeviceIds == null || targetDeviceIds.isEmpty()) {
+            targets = devices.getAll().stream().filter(d -> !d.getId().equals(source.get().getId())).toList();
+        } else {
+            targets = targetDeviceIds.stream().map(devices::find).flatMap(Optional::stream).toList();
+            if (targets.size() < targetDeviceIds.size()) {
+                return ResponseEntity.notFound().build();
+            }
+        }
+        return accepted(jobService.submitPush(source.get(), targets, userIds));
+    }
+
+    /**
+     * Starts a background sync of one device (the default one without
+     * {@code deviceId}), or returns the one already running.
+     *
+     * @param type {@code punches} or {@code templates}
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<SyncJob> startJob(@RequestParam(defaultValue = "punches") String type,
+                                            @RequestParam(required = false) String deviceId) {
+        SyncJob.Type jobType;
+        try {
+            jobType = SyncJob.Type.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (jobType == SyncJob.Type.TEMPLATE_PUSH) {
+            return ResponseEntity.badRequest().build(); // started through /fleet/push-templates
+        }
+        Optional<Device> device = deviceId != null ? devices.find(deviceId) : Optional.of(devices.getDefault());
+        return device.map(d -> accepted(jobService.submit(jobType, d)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<SyncJob>> getJobs() {
+        return ResponseEntity.ok(jobService.list());
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<SyncJob> getJob(@PathVariable String id) {
+        return ResponseEntity.of(jobService.find(id));
+    }
+
+    /** Progress of a job as server-sent events, closed after the final {@code done} event. */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        return jobService.find(id)
+                .map(job -> ResponseEntity.ok(jobService.stream(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<SyncJob> cancelJob(@PathVariable String id) {
+        return ResponseEntity.of(jobService.cancel(id));
+    }
+
+    /** Continues a failed or cancelled job from its last committed chunk, as a new job. */
+    @PostMapping("/jobs/{id}/resume")
+    public ResponseEntity<SyncJob> resumeJob(@PathVariable String id) {
+        try {
+            return jobService.resume(id)
+                    .map(BiometricController::accepted)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /** State of the background sync scheduler per device; empty when it is disabled. */
+    @GetMapping("/scheduler")
+    public ResponseEntity<List<Map<String, Object>>> getSchedulerStatus() {
+        return ResponseEntity.ok(scheduler.getStatus());
+    }
+
+    private static URI jobLocation(SyncJob job) {
+        return URI.create("/zkteco/jobs/" + job.getId());
+    }
+
+    private static ResponseEntity<SyncJob> accepted(SyncJob job) {
+        return ResponseEntity.accepted().location(jobLocation(job)).body(job);
     }
 
     @GetMapping("/punches")
-    public ResponseEntity<List<PunchLog>> getAllPunches() {
-        List<PunchLog> punches = punchService.getAllPunches();
-        return ResponseEntity.ok(punches);
+    public ResponseEntity<PunchPage> getPunches(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) Integer verifyMode,
+            @RequestParam(required = false) Integer inOutMode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return findPunches(new PunchQuery(from, to, userId, deviceId, verifyMode, inOutMode), cursor, limit);
+    }
+
+    /**
+     * Streams every matching punch, oldest first, as CSV or NDJSON; with
+     * {@code gzip=true} the file is compressed on the fly.
+     */
+    @GetMapping("/punches/export")
+    public ResponseEntity<StreamingResponseBody> exportPunches(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) Integer verifyMode,
+            @RequestParam(required = false) Integer inOutMode,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        PunchExportService.Format exportFormat;
+        try {
+            exportFormat = PunchExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        PunchQuery query = new PunchQuery(from, to, userId, deviceId, verifyMode, inOutMode);
+        String fileName = "punches." + exportFormat.name().toLowerCase() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == PunchExportService.Format.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream zip = new GZIPOutputStream(out, 64 * 1024);
+                exportService.export(query, exportFormat, zip);
+                zip.finish();
+            } else {
+                exportService.export(query, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /**
+     * Punch counts per minute, hour or day from the rollup table. Without a
+     * range the last 60 buckets are returned.
+     */
+    @GetMapping("/punches/stats")
+    public ResponseEntity<List<PunchStatsBucket>> punchStats(
+            @RequestParam(defaultValue = "hour") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+        try {
+            PunchStatsService.Granularity unit = PunchStatsService.Granularity.valueOf(granularity.toUpperCase());
+            Instant end = to != null ? to.toInstant() : Instant.now();
+            Instant start = from != null ? from.toInstant() : end.minus(unit.getUnit().getDuration().multipliedBy(60));
+            return ResponseEntity.ok(statsService.query(unit, start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Counts of the current minute, hour and day, as sent in the realtime {@code stats} event. */
+    @GetMapping("/punches/stats/current")
+    public ResponseEntity<Map<String, PunchStatsBucket>> currentPunchStats() {
+        return ResponseEntity.ok(statsService.current());
+    }
+
+    /**
+     * Punches of the last {@code zkteco.hot-store.days} from memory, newest
+     * first; {@code from} defaults to the start of that window and older
+     * punches are not held.
+     */
+    @GetMapping("/punches/recent")
+    public ResponseEntity<List<PunchHotStore.HotPunch>> recentPunches(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String userId,
+            @RequestParam(defaultValue = "100") int limit) {
+        Instant now = Instant.now();
+        Instant start = from != null ? from.toInstant() : hotStore.windowStart(now);
+        Instant end = to != null ? to.toInstant() : now.plusSeconds(1);
+        return ResponseEntity.ok(hotStore.find(start, end, userId,
+                Math.max(1, Math.min(limit, PunchService.MAX_PAGE_SIZE))));
+    }
+
+    /** Size and window of the in-memory punch store. */
+    @GetMapping("/punches/recent/stats")
+    public ResponseEntity<Map<String, Object>> recentPunchStats() {
+        return ResponseEntity.ok(hotStore.getStats());
     }
 
     @GetMapping("/punches/{userId}")
-    public ResponseEntity<List<PunchLog>> getPunchesByUser(@PathVariable String userId) {
-        List<PunchLog> punches = punchService.getPunchesByUser(userId);
-        return ResponseEntity.ok(punches);
+    public ResponseEntity<PunchPage> getPunchesByUser(
+            @PathVariable String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return findPunches(new PunchQuery(from, to, userId, null, null, null), cursor, limit);
+    }
+
+    private ResponseEntity<PunchPage> findPunches(PunchQuery query, String cursor, int limit) {
+        try {
+            return ResponseEntity.ok(punchService.findPunches(query, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping(value = "/punches/realtime", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamRealtimePunches() {
-        return punchService.registerForRealtimeUpdates();
+    public SseEmitter streamRealtimePunches(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+        // EventSource sends the header on its own reconnects; the parameter serves a fresh EventSource
+        return punchService.registerForRealtimeUpdates(lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    @GetMapping("/punches/realtime/stats")
+    public ResponseEntity<Map<String, Object>> realtimeStats() {
+        return ResponseEntity.ok(broadcaster.getStats());
+    }
+
+    /** Batches waiting in each stage of the ingest pipeline, and what it stored. */
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<Map<String, Object>> ingestStats() {
+        return ResponseEntity.ok(pipeline.getStats());
+    }
+
+    /** Daily worked hours per user from {@code from} to {@code to}, both inclusive. */
+    @GetMapping("/attendance")
+    public ResponseEntity<AttendancePage> getAttendance(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            return ResponseEntity.ok(attendanceService.findDays(from, to, userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Recomputes the summaries of a date range from the stored punches. */
+    @PostMapping("/attendance/rebuild")
+    public ResponseEntity<String> rebuildAttendance(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int count = attendanceService.rebuild(from, to);
+        return ResponseEntity.ok("Rebuilt attendance summaries: " + count);
+    }
+
+    /** Users checked in right now, by their latest punch; see {@link PunchHotStore#presence()}. */
+    @GetMapping("/presence")
+    public ResponseEntity<List<PunchHotStore.Presence>> presence() {
+        return ResponseEntity.ok(hotStore.presence());
+    }
+
+    /** Stored users per device with their template counts; {@code deviceId} narrows it to one device. */
+    @GetMapping("/users")
+    public ResponseEntity<List<UserListing>> users(@RequestParam(required = false) String deviceId) {
+        return ResponseEntity.ok(templateService.listUsers(deviceId));
+    }
+
+    @GetMapping("/directory/stats")
+    public ResponseEntity<Map<String, Object>> directoryStats() {
+        return ResponseEntity.ok(userDirectory.getStats());
     }
 
     @GetMapping("/test-connection")
@@ -1,16 +1,24 @@
 package com.egfs.biometrictest.biometric;
 
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.HexFormat;
 
 @Entity
 @Table(name = "biometric_templates",
-       uniqueConstraints = @UniqueConstraint(name = "uk_user_finger", columnNames = {"user_id","finger_index"}))
+       uniqueConstraints = @UniqueConstraint(name = "uk_device_user_finger", columnNames = {"device_id","user_id","finger_index"}))
 public class BiometricTemplate {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "biometric_templates_seq")
+    @SequenceGenerator(name = "biometric_templates_seq", sequenceName = "biometric_templates_seq", allocationSize = 50)
     private Long id;
 
+    @Column(name = "device_id", length = 32)
+    private String deviceId;
+
     @Column(name = "user_id", nullable = false, length = 32)
     private String userId;
 
@@ -20,9 +28,12 @@ public class BiometricTemplate {
     @Column(name = "finger_index")
     private Integer fingerIndex; // 0..9 for fingerprints (iFace702 may also include face templates)
 
-    @Lob
-    @Column(name = "template_data", nullable = false)
-    private String templateData; // zkemkeeper returns Base64-like string; store as text
+    @OneToOne(fetch = FetchType.LAZY, optional = false, cascade = CascadeType.ALL)
+    @JoinColumn(name = "payload_id", nullable = false)
+    private TemplatePayload payload; // template bytes, only loaded when the data is read
+
+    @Column(name = "template_hash", length = 64)
+    private String templateHash; // SHA-256 of the template text, used to skip unchanged templates on re-sync
 
     @Column(name = "alg_version", length = 32)
     private String algorithmVersion;
@@ -35,19 +46,42 @@ public class BiometricTemplate {
 
     // getters/setters...
     public Long getId() { return id; }
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public Integer getFingerIndex() { return fingerIndex; }
     public void setFingerIndex(Integer fingerIndex) { this.fingerIndex = fingerIndex; }
-    public String getTemplateData() { return templateData; }
-    public void setTemplateData(String templateData) { this.templateData = templateData; }
+    public TemplatePayload getPayload() { return payload; }
+    public String getTemplateData() { return payload != null ? payload.getTemplateData() : null; }
+    public void setTemplateData(String templateData) {
+        if (payload == null) {
+            payload = new TemplatePayload(templateData);
+        } else {
+            payload.setTemplateData(templateData);
+        }
+        this.templateHash = hashOf(templateData);
+    }
+    public String getTemplateHash() { return templateHash; }
     public String getAlgorithmVersion() { return algorithmVersion; }
     public void setAlgorithmVersion(String algorithmVersion) { this.algorithmVersion = algorithmVersion; }
     public Boolean getEnabled() { return enabled; }
     public void setEnabled(Boolean enabled) { this.enabled = enabled; }
     public OffsetDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+
+    public static String hashOf(String templateData) {
+        if (templateData == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(templateData.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
 
@@ -1,10 +1,33 @@
 package com.egfs.biometrictest.biometric;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BiometricTemplateRepository extends JpaRepository<BiometricTemplate, Long> {
-    Optional<BiometricTemplate> findByUserIdAndFingerIndex(String userId, Integer fingerIndex);
-}
+    Optional<BiometricTemplate> findByDeviceIdAndUserIdAndFingerIndex(String deviceId, String userId, Integer fingerIndex);
+
+    @Query("select distinct t.userId as userId, t.name as name, t.enabled as enabled from BiometricTemplate t")
+    List<UserSummary> findAllUsers();
+
+    @Query("select t.deviceId as deviceId, t.userId as userId, t.name as name, t.enabled as enabled, "
+            + "count(t) as templateCount from BiometricTemplate t "
+            + "where :deviceId is null or t.deviceId = :deviceId "
+            + "group by t.deviceId, t.userId, t.name, t.enabled order by t.deviceId, t.userId")
+    List<UserListing> findUserListings(@Param("deviceId") String deviceId);
 
+    @Query("select t.id as id, t.userId as userId, t.fingerIndex as fingerIndex, t.templateHash as templateHash, "
+            + "t.name as name, t.enabled as enabled from BiometricTemplate t where t.deviceId = :deviceId")
+    List<TemplateDigest> findDigestsByDeviceId(@Param("deviceId") String deviceId);
+
+    /** Templates with their data, for updating them in place. */
+    @Query("select t from BiometricTemplate t join fetch t.payload where t.id in :ids")
+    List<BiometricTemplate> findAllWithPayloadByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select t.payload.id from BiometricTemplate t where t.id in :ids")
+    List<Long> findPayloadIds(@Param("ids") Collection<Long> ids);
+}
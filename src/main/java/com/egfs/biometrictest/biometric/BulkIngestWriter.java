@@ -0,0 +1,216 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes imported punches and templates in batches instead of one
+ * {@code repo.save()} round trip per row.
+ * <p>
+ * Punch ids are reserved in blocks from {@code punch_logs_seq}, by the ingest
+ * pipeline before the punches are streamed or here for punches without one.
+ * A punch whose natural key (user, time, device, verify and in/out mode) is
+ * already stored is skipped: on PostgreSQL punches go through a multi-row
+ * {@code INSERT ... ON CONFLICT DO NOTHING}, other databases (H2) get a JDBC
+ * batch of {@code MERGE ... WHEN NOT MATCHED} of {@code zkteco.ingest.batch-size}
+ * rows. Templates are JPA persists flushed every {@code zkteco.ingest.batch-size} rows.
+ */
+@Component
+public class BulkIngestWriter {
+    private static final Logger log = LoggerFactory.getLogger(BulkIngestWriter.class);
+
+    // PostgreSQL caps bind parameters per statement at 65535
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    private static final String PUNCH_COLUMNS =
+            "id, device_id, user_id, name, punch_time, verify_mode, in_out_mode, work_code, synced_at";
+    private static final int PUNCH_COLUMN_COUNT = 9;
+    private static final String MERGE_PUNCH = "MERGE INTO punch_logs t USING (VALUES (CAST(? AS BIGINT),"
+            + " CAST(? AS VARCHAR(32)), CAST(? AS VARCHAR(32)), CAST(? AS VARCHAR(64)),"
+            + " CAST(? AS TIMESTAMP(6) WITH TIME ZONE), CAST(? AS INTEGER), CAST(? AS INTEGER),"
+            + " CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP(6) WITH TIME ZONE)))"
+            + " s (" + PUNCH_COLUMNS + ")"
+            // NULLs match like values, as in the NULLS NOT DISTINCT key
+            + " ON t.user_id = s.user_id AND t.punch_time = s.punch_time"
+            + " AND t.device_id IS NOT DISTINCT FROM s.device_id"
+            + " AND t.verify_mode IS NOT DISTINCT FROM s.verify_mode"
+            + " AND t.in_out_mode IS NOT DISTINCT FROM s.in_out_mode"
+            + " WHEN NOT MATCHED THEN INSERT (" + PUNCH_COLUMNS + ") VALUES (s.id, s.device_id, s.user_id,"
+            + " s.name, s.punch_time, s.verify_mode, s.in_out_mode, s.work_code, s.synced_at)";
+
+    private final ZktecoProperties props;
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public BulkIngestWriter(ZktecoProperties props, JdbcTemplate jdbc) {
+        this.props = props;
+        this.jdbc = jdbc;
+    }
+
+    /** Stores the punches not stored yet; returns how many were. */
+    @Transactional
+    public int writePunches(List<PunchLog> punches) {
+        return insertNewPunches(punches).size();
+    }
+
+    /** Stores the punches whose natural key is not stored yet; returns those, in order. */
+    @Transactional
+    public List<PunchLog> insertNewPunches(List<PunchLog> punches) {
+        if (punches.isEmpty()) {
+            return List.of();
+        }
+        assignMissingIds(punches);
+        return isPostgres() ? insertPunchesPostgres(punches) : insertPunchesBatched(punches);
+    }
+
+    @Transactional
+    public int writeTemplates(List<BiometricTemplate> templates) {
+        int batchSize = props.getIngest().getBatchSize();
+        int written = 0;
+        for (BiometricTemplate template : templates) {
+            if (template.getId() == null) {
+                em.persist(template);
+            } else {
+                em.merge(template);
+            }
+            if (++written % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return written;
+    }
+
+    private List<PunchLog> insertPunchesBatched(List<PunchLog> punches) {
+        int[][] counts = jdbc.batchUpdate(MERGE_PUNCH, punches, Math.max(1, props.getIngest().getBatchSize()),
+                (ps, punch) -> setPunch(ps, 1, punch));
+        List<PunchLog> inserted = new ArrayList<>(punches.size());
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    inserted.add(punches.get(i));
+                }
+                i++;
+            }
+        }
+        return inserted;
+    }
+
+    private List<PunchLog> insertPunchesPostgres(List<PunchLog> punches) {
+        int rowsPerInsert = Math.max(1, Math.min(props.getIngest().getBatchSize(), MAX_ROWS_PER_INSERT));
+        Set<Long> insertedIds = new HashSet<>();
+        for (int from = 0; from < punches.size(); from += rowsPerInsert) {
+            List<PunchLog> chunk = punches.subList(from, Math.min(from + rowsPerInsert, punches.size()));
+            jdbc.query(multiRowInsert(chunk.size()), ps -> {
+                int i = 1;
+                for (PunchLog punch : chunk) {
+                    i = setPunch(ps, i, punch);
+                }
+            }, (RowCallbackHandler) rs -> insertedIds.add(rs.getLong(1)));
+        }
+        if (insertedIds.size() == punches.size()) {
+            return punches;
+        }
+        return punches.stream().filter(p -> insertedIds.contains(p.getId())).toList();
+    }
+
+    private static int setPunch(PreparedStatement ps, int i, PunchLog punch) throws SQLException {
+        ps.setLong(i++, punch.getId());
+        ps.setString(i++, punch.getDeviceId());
+        ps.setString(i++, punch.getUserId());
+        ps.setString(i++, punch.getName());
+        ps.setObject(i++, punch.getPunchTime());
+        setNullableInt(ps, i++, punch.getVerifyMode());
+        setNullableInt(ps, i++, punch.getInOutMode());
+        ps.setString(i++, punch.getWorkCode());
+        ps.setObject(i++, punch.getSyncedAt());
+        return i;
+    }
+
+    private void assignMissingIds(List<PunchLog> punches) {
+        List<PunchLog> missing = punches.stream().filter(p -> p.getId() == null).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<Long> ids = reservePunchIds(missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            missing.get(i).setId(ids.get(i));
+        }
+    }
+
+    /**
+     * Reserves {@code count} punch ids the same way Hibernate's pooled
+     * optimizer does: every sequence value is the upper bound of a block of
+     * {@link PunchLog#ID_ALLOCATION_SIZE} ids. Ids are increasing within one call.
+     */
+    public List<Long> reservePunchIds(int count) {
+        int blockSize = PunchLog.ID_ALLOCATION_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            // Only loops when a sequence value below the block size cuts the first block short
+            int blocks = (count - ids.size() + blockSize - 1) / blockSize;
+            for (long upper : nextSequenceValues(blocks)) {
+                for (long id = Math.max(1, upper - blockSize + 1); id <= upper && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private List<Long> nextSequenceValues(int count) {
+        String sql = isPostgres()
+                ? "SELECT nextval('" + PunchLog.ID_SEQUENCE + "') FROM generate_series(1, ?)"
+                : "SELECT NEXT VALUE FOR " + PunchLog.ID_SEQUENCE + " FROM SYSTEM_RANGE(1, ?)";
+        return jdbc.queryForList(sql, Long.class, count);
+    }
+
+    private static String multiRowInsert(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO punch_logs (").append(PUNCH_COLUMNS).append(") VALUES ");
+        String row = "(" + "?,".repeat(PUNCH_COLUMN_COUNT - 1) + "?)";
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sql.append(',');
+            sql.append(row);
+        }
+        return sql.append(" ON CONFLICT DO NOTHING RETURNING id").toString();
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = jdbc.execute((Connection c) -> "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName()));
+            postgres = pg;
+            log.info("Bulk ingest using {} path", pg ? "PostgreSQL multi-row INSERT" : "JDBC batch MERGE");
+        }
+        return pg;
+    }
+}
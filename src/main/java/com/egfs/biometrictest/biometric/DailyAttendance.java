@@ -0,0 +1,92 @@
+package com.egfs.biometrictest.biometric;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Hours one user worked on one day, paired from that day's punches. Rows are
+ * kept current by {@link AttendanceService} as punches are ingested, so
+ * timesheets read these instead of re-pairing raw punches.
+ */
+@Entity
+@Table(name = "daily_attendance")
+public class DailyAttendance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_attendance_seq")
+    @SequenceGenerator(name = "daily_attendance_seq", sequenceName = "daily_attendance_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 32)
+    private String userId;
+
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "work_date", nullable = false)
+    private LocalDate workDate;
+
+    @Column(name = "first_in")
+    private OffsetDateTime firstIn;
+
+    @Column(name = "last_out")
+    private OffsetDateTime lastOut;
+
+    @Column(name = "worked_seconds", nullable = false)
+    private long workedSeconds; // sum of paired in -> out intervals
+
+    @Column(name = "break_seconds", nullable = false)
+    private long breakSeconds; // break-out -> next in
+
+    @Column(name = "punch_count", nullable = false)
+    private int punchCount; // punches of the day, duplicates included
+
+    @Column(name = "duplicate_punches", nullable = false)
+    private int duplicatePunches; // repeated punches ignored for pairing
+
+    @Column(name = "missing_in", nullable = false)
+    private int missingIn; // outs without a preceding in
+
+    @Column(name = "missing_out", nullable = false)
+    private int missingOut; // ins never closed by an out
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    protected DailyAttendance() {
+    }
+
+    public DailyAttendance(String userId, LocalDate workDate) {
+        this.userId = userId;
+        this.workDate = workDate;
+    }
+
+    public Long getId() { return id; }
+    public String getUserId() { return userId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public LocalDate getWorkDate() { return workDate; }
+    public OffsetDateTime getFirstIn() { return firstIn; }
+    public void setFirstIn(OffsetDateTime firstIn) { this.firstIn = firstIn; }
+    public OffsetDateTime getLastOut() { return lastOut; }
+    public void setLastOut(OffsetDateTime lastOut) { this.lastOut = lastOut; }
+    public long getWorkedSeconds() { return workedSeconds; }
+    public void setWorkedSeconds(long workedSeconds) { this.workedSeconds = workedSeconds; }
+    public long getBreakSeconds() { return breakSeconds; }
+    public void setBreakSeconds(long breakSeconds) { this.breakSeconds = breakSeconds; }
+    public int getPunchCount() { return punchCount; }
+    public void setPunchCount(int punchCount) { this.punchCount = punchCount; }
+    public int getDuplicatePunches() { return duplicatePunches; }
+    public void setDuplicatePunches(int duplicatePunches) { this.duplicatePunches = duplicatePunches; }
+    public int getMissingIn() { return missingIn; }
+    public void setMissingIn(int missingIn) { this.missingIn = missingIn; }
+    public int getMissingOut() { return missingOut; }
+    public void setMissingOut(int missingOut) { this.missingOut = missingOut; }
+    public OffsetDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(OffsetDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    /** Whether some punch could not be paired, which a timesheet should flag for review. */
+    public boolean isIncomplete() {
+        return missingIn > 0 || missingOut > 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.egfs.biometrictest.biometric;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface DailyAttendanceRepository extends JpaRepository<DailyAttendance, Long>,
+        JpaSpecificationExecutor<DailyAttendance> {
+    List<DailyAttendance> findByUserIdInAndWorkDateBetween(Collection<String> userIds, LocalDate from, LocalDate to);
+    List<DailyAttendance> findByWorkDate(LocalDate workDate);
+}
@@ -0,0 +1,11 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.device.DeviceClient;
+
+/**
+ * Work run against a connected device on its session thread.
+ */
+@FunctionalInterface
+public interface DeviceOperation<T> {
+    T apply(DeviceClient client) throws Exception;
+}
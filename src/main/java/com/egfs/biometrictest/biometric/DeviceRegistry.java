@@ -0,0 +1,49 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Devices known to the application. Configured from {@code zkteco.devices};
+ * without a fleet configuration the top-level {@code zkteco.ip}/{@code port}
+ * device is registered under the id {@code default}.
+ */
+@Component
+public class DeviceRegistry {
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+
+    public DeviceRegistry(ZktecoProperties props) {
+        List<Device> configured = props.getDevices();
+        if (configured.isEmpty()) {
+            Device device = props.toDefaultDevice();
+            devices.put(device.getId(), device);
+        }
+        for (Device device : configured) {
+            if (device.getId() == null || device.getId().isBlank()) {
+                throw new IllegalStateException("zkteco.devices entry for " + device.getIp() + " has no id");
+            }
+            if (devices.putIfAbsent(device.getId(), device) != null) {
+                throw new IllegalStateException("Duplicate zkteco.devices id: " + device.getId());
+            }
+        }
+    }
+
+    public List<Device> getAll() {
+        return List.copyOf(devices.values());
+    }
+
+    public Optional<Device> find(String id) {
+        return Optional.ofNullable(devices.get(id));
+    }
+
+    /** The first configured device, used by the single-device endpoints and the realtime monitor. */
+    public Device getDefault() {
+        return devices.values().iterator().next();
+    }
+}
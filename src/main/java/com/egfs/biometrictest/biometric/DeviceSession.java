@@ -0,0 +1,159 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceClient;
+import com.egfs.biometrictest.device.DeviceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A long-lived connection to one device.
+ * <p>
+ * Device clients are not thread safe (and the zkemkeeper COM object is
+ * apartment threaded), so the session owns a single thread that connects,
+ * uses and closes its client; every operation is submitted to that thread.
+ * This also serializes all work on a device, which the terminals require
+ * anyway. The connection is opened lazily and dropped after a call fails on
+ * the device or the network, so the next operation reconnects; other failures
+ * (a cancelled sync, a failing consumer) leave it open.
+ * <p>
+ * A session counts as used from the moment an operation is submitted until it
+ * finishes, so long downloads and operations queued behind them keep it busy.
+ */
+class DeviceSession {
+    private static final Logger log = LoggerFactory.getLogger(DeviceSession.class);
+
+    private final Device device;
+    private final ThreadPoolExecutor thread;
+    private final DeviceClient client; // only touched on the session thread
+    private final AtomicBoolean pinging = new AtomicBoolean();
+    private volatile boolean connected;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    DeviceSession(Device device, DeviceClient client) {
+        this.device = device;
+        this.client = client;
+        // Same as Executors.newSingleThreadExecutor, but exposes whether work is running or queued
+        this.thread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "zk-session-" + device.getId());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    <T> T execute(DeviceOperation<T> operation) {
+        lastUsedNanos = System.nanoTime();
+        Future<T> result = thread.submit(() -> {
+            try {
+                ensureConnected();
+                return operation.apply(client);
+            } catch (Exception e) {
+                if (breaksConnection(e)) {
+                    // The connection state is unknown after a failed device call
+                    disconnect();
+                }
+                throw e;
+            } finally {
+                lastUsedNanos = System.nanoTime();
+            }
+        });
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DeviceException("Interrupted waiting for " + device, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DeviceException de) {
+                throw de;
+            }
+            throw new DeviceException("Operation failed on " + device + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Queues a cheap round trip on the session thread as keepalive, unless the
+     * session is busy, not connected or still waiting for its last ping.
+     * Returns at once; a failed ping drops the connection. Pings do not count
+     * as use, so idle sessions still get evicted.
+     */
+    void keepalive() {
+        if (!connected || isBusy() || !pinging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            thread.execute(() -> {
+                try {
+                    if (connected) {
+                        client.getFirmwareVersion();
+                    }
+                } catch (Exception e) {
+                    log.warn("Keepalive failed for {}: {}", device, e.getMessage());
+                    if (breaksConnection(e)) {
+                        disconnect();
+                    }
+                } finally {
+                    pinging.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pinging.set(false); // closed meanwhile
+        }
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /** True while an operation runs on the session thread or waits for it. */
+    boolean isBusy() {
+        return thread.getActiveCount() > 0 || !thread.getQueue().isEmpty();
+    }
+
+    /** Time since an operation was last submitted or finished; zero while busy. */
+    long getIdleNanos() {
+        return isBusy() ? 0 : System.nanoTime() - lastUsedNanos;
+    }
+
+    void close() {
+        thread.submit(this::disconnect);
+        thread.shutdown();
+    }
+
+    /** Device and network failures; anything else left the connection in a known state. */
+    private static boolean breaksConnection(Throwable e) {
+        return e instanceof DeviceException || e instanceof IOException || e instanceof UncheckedIOException;
+    }
+
+    private void ensureConnected() {
+        if (connected) {
+            return;
+        }
+        client.connect();
+        connected = true;
+        log.info("Opened session to {}", device);
+    }
+
+    private void disconnect() {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.debug("Error closing client for {}", device, e);
+        }
+        if (connected) {
+            log.info("Closed session to {}", device);
+        }
+        connected = false;
+    }
+}
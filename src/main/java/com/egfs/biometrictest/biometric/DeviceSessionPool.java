@@ -0,0 +1,96 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceClientFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link DeviceSession} per device so services skip the
+ * connect/disconnect handshake on every call.
+ * <p>
+ * A maintenance task pings sessions idle for longer than
+ * {@code zkteco.session.keepalive-seconds} and closes sessions idle for longer
+ * than {@code zkteco.session.idle-timeout-seconds}. A session with work running
+ * or queued is never idle. Pings run on the session's own thread, so a slow
+ * device does not hold up the maintenance of the others.
+ */
+@Component
+public class DeviceSessionPool {
+    private static final Logger log = LoggerFactory.getLogger(DeviceSessionPool.class);
+
+    private final Map<String, DeviceSession> sessions = new ConcurrentHashMap<>();
+    private final long keepaliveNanos;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "zk-session-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final DeviceClientFactory clientFactory;
+
+    public DeviceSessionPool(ZktecoProperties props, DeviceClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+        ZktecoProperties.Session config = props.getSession();
+        this.keepaliveNanos = TimeUnit.SECONDS.toNanos(config.getKeepaliveSeconds());
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(config.getIdleTimeoutSeconds());
+        long period = Math.max(1, config.getKeepaliveSeconds());
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.SECONDS);
+    }
+
+    /** Runs an operation on the device's session, connecting first if needed. */
+    public <T> T execute(Device device, DeviceOperation<T> operation) {
+        try {
+            return session(device).execute(operation);
+        } catch (RejectedExecutionException e) {
+            // Session was evicted between lookup and submit; retry on a fresh one
+            sessions.remove(device.getId());
+            return session(device).execute(operation);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        sessions.forEach((id, session) -> status.put(id, Map.of(
+                "connected", session.isConnected(),
+                "idleSeconds", TimeUnit.NANOSECONDS.toSeconds(session.getIdleNanos()))));
+        return status;
+    }
+
+    private DeviceSession session(Device device) {
+        return sessions.computeIfAbsent(device.getId(), id -> new DeviceSession(device, clientFactory.create(device)));
+    }
+
+    void maintain() {
+        sessions.forEach((id, session) -> {
+            long idle = session.getIdleNanos();
+            if (idle > idleTimeoutNanos && !session.isBusy()) {
+                if (sessions.remove(id, session)) {
+                    log.debug("Evicting idle session {}", id);
+                    session.close();
+                }
+            } else if (idle > keepaliveNanos) {
+                session.keepalive();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        sessions.values().forEach(DeviceSession::close);
+        sessions.clear();
+    }
+}
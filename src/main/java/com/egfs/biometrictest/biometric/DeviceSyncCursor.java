@@ -0,0 +1,41 @@
+package com.egfs.biometrictest.biometric;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * High-water mark of the attendance log already imported from one device.
+ * The device log is append-only until it is cleared, so the record index is
+ * enough to skip everything that was imported by a previous sync.
+ */
+@Entity
+@Table(name = "device_sync_cursors")
+public class DeviceSyncCursor {
+    @Id
+    @Column(name = "device_key", length = 64)
+    private String deviceKey; // ip:port:machineNumber
+
+    @Column(name = "last_record_index", nullable = false)
+    private long lastRecordIndex; // number of device log records already imported
+
+    @Column(name = "last_punch_time")
+    private OffsetDateTime lastPunchTime;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    protected DeviceSyncCursor() {
+    }
+
+    public DeviceSyncCursor(String deviceKey) {
+        this.deviceKey = deviceKey;
+    }
+
+    public String getDeviceKey() { return deviceKey; }
+    public long getLastRecordIndex() { return lastRecordIndex; }
+    public void setLastRecordIndex(long lastRecordIndex) { this.lastRecordIndex = lastRecordIndex; }
+    public OffsetDateTime getLastPunchTime() { return lastPunchTime; }
+    public void setLastPunchTime(OffsetDateTime lastPunchTime) { this.lastPunchTime = lastPunchTime; }
+    public OffsetDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(OffsetDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
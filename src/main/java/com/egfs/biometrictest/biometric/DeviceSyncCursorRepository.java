@@ -0,0 +1,6 @@
+package com.egfs.biometrictest.biometric;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DeviceSyncCursorRepository extends JpaRepository<DeviceSyncCursor, String> {
+}
@@ -0,0 +1,67 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One lock per device, held by every sync of that device for its whole run:
+ * punch and template syncs, template pushes and realtime monitor ticks,
+ * whether they come from a request, a job, the fleet or the scheduler.
+ * Device sessions already serialize single calls; this keeps whole syncs
+ * from interleaving their reads, cursors and diffs on one device.
+ */
+@Component
+public class DeviceSyncGuard {
+    private static final long CANCEL_CHECK_MS = 200;
+
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code sync} once no other sync holds the device, waiting
+     * meanwhile; a cancelled {@code progress} stops the wait.
+     *
+     * @throws SyncCancelledException if cancelled while waiting
+     */
+    public <T> T run(Device device, SyncProgress progress, Supplier<T> sync) {
+        ReentrantLock lock = lock(device);
+        try {
+            while (!lock.tryLock(CANCEL_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                if (progress.isCancelled()) {
+                    throw new SyncCancelledException("Sync of " + device + " cancelled while waiting for another sync");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncCancelledException("Interrupted waiting to sync " + device);
+        }
+        try {
+            return sync.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Runs {@code sync} only if no other sync holds the device; empty otherwise. */
+    public <T> Optional<T> tryRun(Device device, Supplier<T> sync) {
+        ReentrantLock lock = lock(device);
+        if (!lock.tryLock()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(sync.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(Device device) {
+        return locks.computeIfAbsent(device.getId(), id -> new ReentrantLock());
+    }
+}
@@ -0,0 +1,19 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Outcome of one sync operation against one device.
+ */
+public record DeviceSyncResult(String deviceId, boolean success, int count, long durationMs, String error) {
+
+    public static DeviceSyncResult ok(String deviceId, int count, long startNanos) {
+        return new DeviceSyncResult(deviceId, true, count, elapsedMs(startNanos), null);
+    }
+
+    public static DeviceSyncResult failed(String deviceId, int count, long startNanos, String error) {
+        return new DeviceSyncResult(deviceId, false, count, elapsedMs(startNanos), error);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,111 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Syncs every registered device in parallel, or pushes templates to them.
+ * At most {@code zkteco.fleet.max-concurrency} devices are talked to at
+ * once, so total wall time follows the slowest device rather than the sum of
+ * all. Every device sync reports to, and stops for, the same
+ * {@link SyncProgress}.
+ */
+@Service
+public class FleetSyncService {
+    private static final Logger log = LoggerFactory.getLogger(FleetSyncService.class);
+
+    private final DeviceRegistry devices;
+    private final PunchService punchService;
+    private final ZktecoSyncService templateService;
+    private final TemplatePushService pushService;
+    private final ExecutorService executor;
+
+    public FleetSyncService(ZktecoProperties props, DeviceRegistry devices, PunchService punchService,
+                            ZktecoSyncService templateService, TemplatePushService pushService) {
+        this.devices = devices;
+        this.punchService = punchService;
+        this.templateService = templateService;
+        this.pushService = pushService;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, props.getFleet().getMaxConcurrency()), r -> {
+            Thread t = new Thread(r, "fleet-sync-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public List<DeviceSyncResult> syncPunches() {
+        return syncPunches(SyncProgress.NONE);
+    }
+
+    public List<DeviceSyncResult> syncPunches(SyncProgress progress) {
+        return runOnAllDevices("punch sync", device -> punchService.syncPunches(device, progress));
+    }
+
+    public List<DeviceSyncResult> syncTemplates() {
+        return syncTemplates(SyncProgress.NONE);
+    }
+
+    public List<DeviceSyncResult> syncTemplates(SyncProgress progress) {
+        return runOnAllDevices("template sync", device -> templateService.syncTemplates(device, progress));
+    }
+
+    /**
+     * Pushes the stored templates of {@code source}, all or those of
+     * {@code userIds}, to {@code targets}; see {@link TemplatePushService}.
+     */
+    public List<DeviceSyncResult> pushTemplates(Device source, List<Device> targets, Collection<String> userIds) {
+        return pushTemplates(source, targets, userIds, SyncProgress.NONE);
+    }
+
+    public List<DeviceSyncResult> pushTemplates(Device source, List<Device> targets, Collection<String> userIds,
+                                                SyncProgress progress) {
+        TemplatePushService.Source templates = pushService.loadSource(source.getId(), userIds);
+        log.info("Pushing {} templates of {} to {} devices", templates.size(), source.getId(), targets.size());
+        return runOnDevices("template push", targets, device -> pushService.push(templates, device, progress));
+    }
+
+    private List<DeviceSyncResult> runOnAllDevices(String operation, Function<Device, DeviceSyncResult> sync) {
+        return runOnDevices(operation, devices.getAll(), sync);
+    }
+
+    private List<DeviceSyncResult> runOnDevices(String operation, List<Device> targets,
+                                                Function<Device, DeviceSyncResult> sync) {
+        long start = System.nanoTime();
+        List<CompletableFuture<DeviceSyncResult>> futures = targets.stream()
+                .map(device -> CompletableFuture.supplyAsync(() -> runSafely(device, sync), executor))
+                .toList();
+        List<DeviceSyncResult> results = futures.stream().map(CompletableFuture::join).toList();
+        log.info("Fleet {} of {} devices finished in {} ms ({} failed)", operation, results.size(),
+                (System.nanoTime() - start) / 1_000_000, results.stream().filter(r -> !r.success()).count());
+        return results;
+    }
+
+    private static DeviceSyncResult runSafely(Device device, Function<Device, DeviceSyncResult> sync) {
+        long start = System.nanoTime();
+        try {
+            // COM calls themselves run on the device's session thread
+            return sync.apply(device);
+        } catch (Throwable t) {
+            log.error("Sync failed for {}", device, t);
+            return DeviceSyncResult.failed(device.getId(), 0, start, t.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,59 @@
+package com.egfs.biometrictest.biometric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sync and ingest meters, tagged by device:
+ * <ul>
+ *   <li>{@code zkteco.sync} - duration of a whole punch or template sync, by outcome</li>
+ *   <li>{@code zkteco.ingest.commit} - one batch transaction</li>
+ *   <li>{@code zkteco.ingest.rows} - rows stored; its rate is the ingest rows/sec</li>
+ * </ul>
+ */
+@Component
+public class IngestMetrics {
+    public static final String SYNC = "zkteco.sync";
+    public static final String COMMIT = "zkteco.ingest.commit";
+    public static final String ROWS = "zkteco.ingest.rows";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public IngestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** Records a finished sync; {@code operation} is {@code punches}, {@code templates} or {@code push}. */
+    public void recordSync(String operation, DeviceSyncResult result) {
+        String outcome = result.success() ? "success" : "error";
+        timers.computeIfAbsent(SYNC + '/' + result.deviceId() + '/' + operation + '/' + outcome,
+                        k -> Timer.builder(SYNC)
+                                .description("Sync of one device")
+                                .tags("device", result.deviceId(), "operation", operation, "outcome", outcome)
+                                .register(registry))
+                .record(result.durationMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Records a committed batch of {@code rows} {@code kind} rows that took since {@code startNanos}. */
+    public void recordCommit(String deviceId, String kind, int rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        timers.computeIfAbsent(COMMIT + '/' + deviceId + '/' + kind, k -> Timer.builder(COMMIT)
+                        .description("Ingest batch transaction")
+                        .tags("device", deviceId, "kind", kind)
+                        .register(registry))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        counters.computeIfAbsent(deviceId + '/' + kind, k -> Counter.builder(ROWS)
+                        .description("Rows stored by ingest")
+                        .tags("device", deviceId, "kind", kind)
+                        .register(registry))
+                .increment(rows);
+    }
+}
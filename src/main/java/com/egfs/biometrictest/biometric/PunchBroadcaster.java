@@ -0,0 +1,300 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Fans realtime punches out to SSE subscribers. Publishing only enqueues
+ * into each subscriber's bounded queue, so a slow or dead browser never
+ * holds up the device monitor; a small dispatch pool does the writes.
+ * <p>
+ * Each event carries the punch id. The {@link PunchIngestPipeline} sequencer
+ * takes ids from {@code punch_logs_seq} and publishes each batch in ring
+ * order before the writer commits it, so ids grow in the order events are
+ * streamed. Events can arrive before their punch is stored. If that write
+ * then fails, nothing is withdrawn: subscribers keep the event, its id never
+ * shows up in the database, and the punch is streamed again with a new id
+ * once the device is read again. A punch the insert skips because it was
+ * stored before (a repeat older than the pipeline's recent keys) is withdrawn
+ * with a {@code retract} event instead; see {@link #retract}. The last events
+ * are kept in a ring buffer
+ * so a client reconnecting with {@code Last-Event-ID} is replayed what it
+ * missed; only a gap older than the buffer is read back from the database.
+ * <p>
+ * As a {@link MeterBinder} it exposes the {@code zkteco.sse.*} gauges and
+ * counters; they read the existing fields at scrape time, so publishing
+ * does no extra work for them.
+ */
+@Component
+public class PunchBroadcaster implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(PunchBroadcaster.class);
+
+    /** Punches ingested later than this after they were taken are history, not realtime. */
+    private static final Duration REALTIME_WINDOW = Duration.ofMinutes(5);
+    /** Largest gap read back from the database before the client is told to reload instead. */
+    private static final int MAX_DATABASE_REPLAY = 10_000;
+
+    private final ZktecoProperties.Sse config;
+    private final PunchLogRepository punchRepo;
+    private final Deque<SseEvent> replayBuffer = new ArrayDeque<>();
+    /** Id just below the first event published by this process; older punches are only in the database. */
+    private long startFloor = -1;
+    /** Highest id evicted from the replay buffer. */
+    private long evictedFloor = -1;
+    private final Set<SseSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeat;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder retracted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private final LongAdder databaseReplays = new LongAdder();
+
+    public PunchBroadcaster(ZktecoProperties props, PunchLogRepository punchRepo) {
+        this.config = props.getSse();
+        this.punchRepo = punchRepo;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(config.getDispatchThreads(), r -> {
+            Thread t = new Thread(r, "sse-dispatch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = config.getHeartbeatSeconds();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registers a subscriber. With {@code lastEventId} the events after it are
+     * queued first, from the replay buffer or, for an older gap, the database.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(Long.MAX_VALUE));
+    }
+
+    SseEmitter subscribe(Long lastEventId, SseEmitter emitter) {
+        SseSubscriber subscriber = new SseSubscriber(emitter, config.getQueueCapacity(),
+                config.getOverflowPolicy(), dispatcher, this::remove);
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        List<PunchLog> stored = List.of();
+        if (lastEventId != null && !isReplayable(lastEventId)) {
+            // Read outside the lock; events committed meanwhile are picked up from the buffer below
+            databaseReplays.increment();
+            stored = punchRepo.findByIdGreaterThanOrderByIdAsc(lastEventId, Limit.of(MAX_DATABASE_REPLAY + 1));
+        }
+
+        synchronized (replayBuffer) {
+            if (lastEventId != null) {
+                long after = stored.isEmpty() ? lastEventId : stored.get(stored.size() - 1).getId();
+                if (stored.size() > MAX_DATABASE_REPLAY || evictedFloor > after) {
+                    // Too far behind to replay; the client reloads the punch list instead
+                    subscriber.offer(new SseEvent(null, "resync", "Missed events, reload punches", null));
+                } else {
+                    for (PunchLog punch : stored) {
+                        SseEvent event = toEvent(punch);
+                        if (event != null) {
+                            subscriber.offer(event);
+                        }
+                    }
+                    for (SseEvent event : replayBuffer) {
+                        if (event.id() > after) {
+                            subscriber.offer(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Streams a sequenced batch, before it is stored. Called by the sequencer
+     * only, in the order it assigned the ids, so event ids only ever grow.
+     */
+    public void publish(List<PunchLog> punches) {
+        synchronized (replayBuffer) {
+            for (PunchLog punch : punches) {
+                SseEvent event = toEvent(punch);
+                if (event == null) {
+                    continue;
+                }
+                if (startFloor < 0) {
+                    startFloor = event.id() - 1;
+                }
+                replayBuffer.addLast(event);
+                if (replayBuffer.size() > config.getReplayBufferSize()) {
+                    evictedFloor = replayBuffer.pollFirst().id();
+                }
+                for (SseSubscriber subscriber : subscribers) {
+                    dropped.add(subscriber.offer(event));
+                }
+                published.increment();
+            }
+        }
+    }
+
+    /**
+     * Withdraws published punches that the writer did not insert because they
+     * were stored before: they leave the replay buffer, and subscribers get one
+     * {@code retract} event with their ids, comma separated. It has no id of
+     * its own and is not replayed; the database never had those ids.
+     */
+    public void retract(List<PunchLog> punches) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (PunchLog punch : punches) {
+            if (isStreamed(punch)) {
+                ids.add(punch.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        String data = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        SseEvent event = new SseEvent(null, "retract", data, null);
+        synchronized (replayBuffer) {
+            replayBuffer.removeIf(buffered -> ids.contains(buffered.id()));
+            for (SseSubscriber subscriber : subscribers) {
+                dropped.add(subscriber.offer(event));
+            }
+        }
+        retracted.add(ids.size());
+    }
+
+    /**
+     * Sends a named event without an id to the current subscribers. It is not
+     * replayed; a queued event of the same name is replaced when coalescing.
+     */
+    public void broadcast(String name, String data) {
+        SseEvent event = new SseEvent(null, name, data, name);
+        for (SseSubscriber subscriber : subscribers) {
+            dropped.add(subscriber.offer(event));
+        }
+    }
+
+    /** Whether every event after {@code lastEventId} is still in the replay buffer. */
+    private boolean isReplayable(long lastEventId) {
+        synchronized (replayBuffer) {
+            return startFloor >= 0 && lastEventId >= startFloor && lastEventId >= evictedFloor;
+        }
+    }
+
+    /** The realtime event for a punch, or null for history imported long after it was taken. */
+    private SseEvent toEvent(PunchLog punch) {
+        if (!isStreamed(punch)) {
+            return null;
+        }
+        return new SseEvent(punch.getId(), "punch", formatPunch(punch), punch.getUserId());
+    }
+
+    private static boolean isStreamed(PunchLog punch) {
+        return punch.getId() != null && !punch.getSyncedAt().isAfter(punch.getPunchTime().plus(REALTIME_WINDOW));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("zkteco.sse.subscribers", subscribers, Set::size)
+                .description("Connected realtime subscribers").register(registry);
+        Gauge.builder("zkteco.sse.queued", this,
+                        b -> b.subscribers.stream().mapToInt(SseSubscriber::getQueueSize).sum())
+                .description("Events waiting in subscriber queues").register(registry);
+        FunctionCounter.builder("zkteco.sse.events", published, LongAdder::sum)
+                .tag("result", "published").description("Realtime events").register(registry);
+        FunctionCounter.builder("zkteco.sse.events", retracted, LongAdder::sum)
+                .tag("result", "retracted").description("Realtime events").register(registry);
+        FunctionCounter.builder("zkteco.sse.events", dropped, LongAdder::sum)
+                .tag("result", "dropped").description("Realtime events").register(registry);
+        FunctionCounter.builder("zkteco.sse.disconnects", disconnected, LongAdder::sum)
+                .description("Realtime subscribers removed").register(registry);
+        FunctionCounter.builder("zkteco.sse.database.replays", databaseReplays, LongAdder::sum)
+                .description("Reconnects replayed from the database").register(registry);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("queued", subscribers.stream().mapToInt(SseSubscriber::getQueueSize).sum());
+        stats.put("published", published.sum());
+        stats.put("retracted", retracted.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("disconnected", disconnected.sum());
+        synchronized (replayBuffer) {
+            stats.put("replayBuffered", replayBuffer.size());
+        }
+        stats.put("databaseReplays", databaseReplays.sum());
+        stats.put("overflowPolicy", config.getOverflowPolicy());
+        return stats;
+    }
+
+    /** Disconnects every subscriber. */
+    public void closeAll() {
+        subscribers.forEach(SseSubscriber::close);
+    }
+
+    private void sendHeartbeat() {
+        for (SseSubscriber subscriber : subscribers) {
+            subscriber.offer(SseEvent.heartbeat());
+        }
+    }
+
+    private void remove(SseSubscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            disconnected.increment();
+            log.debug("Realtime subscriber removed, {} left", subscribers.size());
+        }
+    }
+
+    private String formatPunch(PunchLog punch) {
+        return String.format("User: %s (%s), Time: %s, Mode: %d, InOut: %d",
+                punch.getUserId(),
+                punch.getName() != null ? punch.getName() : "Unknown",
+                punch.getPunchTime(),
+                punch.getVerifyMode(),
+                punch.getInOutMode());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        closeAll();
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,41 @@
+package com.egfs.biometrictest.biometric;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position in the punch list ordered by {@code (punch_time, id)} descending:
+ * the next page starts right after this punch. Sent to clients as an opaque
+ * URL-safe token.
+ */
+public record PunchCursor(Instant punchTime, long id) {
+
+    public static PunchCursor of(PunchLog punch) {
+        return new PunchCursor(punch.getPunchTime().toInstant(), punch.getId());
+    }
+
+    public String encode() {
+        String raw = punchTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static PunchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new PunchCursor(Instant.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    OffsetDateTime punchTimeUtc() {
+        return punchTime.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,204 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams punch logs straight from a forward-only JDBC cursor to an output
+ * stream as CSV or NDJSON. Rows are never turned into entities or collected,
+ * so memory stays flat however many rows are exported.
+ */
+@Service
+public class PunchExportService {
+    private static final Logger log = LoggerFactory.getLogger(PunchExportService.class);
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {
+            "id", "device_id", "user_id", "name", "punch_time", "verify_mode", "in_out_mode", "work_code", "synced_at"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public PunchExportService(ZktecoProperties props, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = props.getExport().getFetchSize();
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes every punch matching {@code query} in {@code (punch_time, id)}
+     * order. The stream is flushed but not closed.
+     *
+     * @return number of rows written
+     */
+    public long export(PunchQuery query, Format format, OutputStream out) throws IOException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + String.join(", ", COLUMNS) + " FROM punch_logs" + where(query, params)
+                + " ORDER BY punch_time, id";
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new JsonRowWriter(jsonFactory.createGenerator(writer));
+        long[] count = {0};
+        long start = System.nanoTime();
+        try {
+            // PostgreSQL only honours the fetch size inside a transaction; without one it buffers the whole result
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, rs -> {
+                try {
+                    rows.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }));
+        } catch (UncheckedIOException e) {
+            // Client went away mid-export
+            throw e.getCause();
+        }
+        rows.finish();
+        log.info("Exported {} punch logs as {} in {} ms", count[0], format, (System.nanoTime() - start) / 1_000_000);
+        return count[0];
+    }
+
+    private static String where(PunchQuery query, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (query.from() != null) {
+            conditions.add("punch_time >= ?");
+            params.add(query.from());
+        }
+        if (query.to() != null) {
+            conditions.add("punch_time < ?");
+            params.add(query.to());
+        }
+        if (query.userId() != null) {
+            conditions.add("user_id = ?");
+            params.add(query.userId());
+        }
+        if (query.deviceId() != null) {
+            conditions.add("device_id = ?");
+            params.add(query.deviceId());
+        }
+        if (query.verifyMode() != null) {
+            conditions.add("verify_mode = ?");
+            params.add(query.verifyMode());
+        }
+        if (query.inOutMode() != null) {
+            conditions.add("in_out_mode = ?");
+            params.add(query.inOutMode());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer out;
+
+        CsvRowWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write(String.join(",", COLUMNS));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.write(Long.toString(rs.getLong(1)));
+            for (int i = 2; i <= COLUMNS.length; i++) {
+                out.write(',');
+                Object value = i == 5 || i == 9 ? rs.getObject(i, OffsetDateTime.class) : rs.getObject(i);
+                if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class JsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        JsonRowWriter(JsonGenerator json) {
+            this.json = json;
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("deviceId", rs.getString(2));
+            json.writeStringField("userId", rs.getString(3));
+            json.writeStringField("name", rs.getString(4));
+            json.writeStringField("punchTime", String.valueOf(rs.getObject(5, OffsetDateTime.class)));
+            writeInt("verifyMode", rs, 6);
+            writeInt("inOutMode", rs, 7);
+            json.writeStringField("workCode", rs.getString(8));
+            json.writeStringField("syncedAt", String.valueOf(rs.getObject(9, OffsetDateTime.class)));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        private void writeInt(String field, ResultSet rs, int column) throws SQLException, IOException {
+            int value = rs.getInt(column);
+            if (rs.wasNull()) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, value);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+}
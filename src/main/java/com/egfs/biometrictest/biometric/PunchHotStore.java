@@ -0,0 +1,435 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The punches of the last {@code zkteco.hot-store.days} UTC days, kept in
+ * memory as columns of primitives so recent-punch and presence queries never
+ * touch {@code punch_logs}. Each day is a segment of parallel arrays sorted by
+ * time: the user as an index into an interned id table, the device as a short
+ * index, the second within the day and both modes packed into one int; about
+ * 14 bytes a punch. Range scans binary search the first and last segment,
+ * per-user scans compare ints, and the latest punch of every user is kept
+ * apart for the presence view.
+ * <p>
+ * Filled with the committed batches of the ingest path and warmed from the
+ * database at startup. Days falling out of the window are dropped whole.
+ */
+@Component
+public class PunchHotStore {
+    private static final Logger log = LoggerFactory.getLogger(PunchHotStore.class);
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    /** Stored for a mode the device did not send. */
+    private static final int NO_MODE = 0xFFFF;
+    private static final int WARM_UP_CHUNK = 10_000;
+
+    /** One punch as returned by the scans. */
+    public record HotPunch(String userId, String deviceId, Instant time, Integer verifyMode, Integer inOutMode) {
+    }
+
+    /** A user whose latest punch opened an interval. */
+    public record Presence(String userId, String name, String deviceId, Instant since, Integer inOutMode) {
+    }
+
+    private final ZktecoProperties.HotStore config;
+    private final JdbcTemplate jdbc;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private final List<String> userIds = new ArrayList<>();
+    private final Map<String, Short> deviceIndex = new HashMap<>();
+    private final List<String> deviceIds = new ArrayList<>();
+    // Latest punch per user index; lastSeen 0 means none in the window
+    private String[] names = new String[1024];
+    private long[] lastSeen = new long[1024];
+    private short[] lastDevice = new short[1024];
+    private int[] lastModes = new int[1024];
+    /** Ids stored by ingest before the warm-up finished, so it does not add them again. */
+    private Set<Long> liveIds = new HashSet<>();
+
+    public PunchHotStore(ZktecoProperties props, JdbcTemplate jdbc) {
+        this.config = props.getHotStore();
+        this.jdbc = jdbc;
+    }
+
+    /** Loads the punches of the window from {@code punch_logs}, in chunks so ingest is not held up. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Instant from = windowStart(Instant.now());
+        List<Object[]> chunk = new ArrayList<>(WARM_UP_CHUNK);
+        long[] loaded = {0};
+        try {
+            jdbc.query(con -> {
+                PreparedStatement statement = con.prepareStatement("""
+                        select id, device_id, user_id, name, punch_time, verify_mode, in_out_mode
+                        from punch_logs where punch_time >= ?""");
+                statement.setFetchSize(WARM_UP_CHUNK);
+                statement.setObject(1, from.atOffset(ZoneOffset.UTC));
+                return statement;
+            }, rs -> {
+                chunk.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getObject(5, OffsetDateTime.class).toEpochSecond(),
+                        rs.getObject(6, Integer.class), rs.getObject(7, Integer.class)});
+                if (chunk.size() >= WARM_UP_CHUNK) {
+                    loaded[0] += addWarmUpChunk(chunk);
+                }
+            });
+            loaded[0] += addWarmUpChunk(chunk);
+        } finally {
+            withWriteLock(() -> liveIds = null);
+        }
+        log.info("Punch hot store loaded {} punches since {} in {} ms", loaded[0], from,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Adds committed punches; called once per ingested batch. */
+    public void record(List<PunchLog> punches) {
+        if (!config.isEnabled() || punches.isEmpty()) {
+            return;
+        }
+        long windowStart = windowStart(Instant.now()).getEpochSecond();
+        lock.writeLock().lock();
+        try {
+            evictBefore(windowStart);
+            for (PunchLog punch : punches) {
+                if (liveIds != null && punch.getId() != null) {
+                    liveIds.add(punch.getId());
+                }
+                add(punch.getUserId(), punch.getName(), punch.getDeviceId(), punch.getPunchTime().toEpochSecond(),
+                        punch.getVerifyMode(), punch.getInOutMode(), windowStart);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Punches in {@code [from, to)}, of {@code userId} if given, newest first
+     * and at most {@code limit}. Only the window is held, so older punches are
+     * not returned.
+     */
+    public List<HotPunch> find(Instant from, Instant to, String userId, int limit) {
+        List<HotPunch> result = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        long fromSecond = from.getEpochSecond();
+        long toSecond = to.getEpochSecond();
+        if (limit <= 0 || fromSecond >= toSecond) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            int user = -1;
+            if (userId != null) {
+                Integer index = userIndex.get(userId);
+                if (index == null) {
+                    return result;
+                }
+                user = index;
+            }
+            for (Segment segment : segments.subMap(Math.floorDiv(fromSecond, SECONDS_PER_DAY), true,
+                    Math.floorDiv(toSecond - 1, SECONDS_PER_DAY), true).descendingMap().values()) {
+                int first = segment.lowerBound(fromSecond);
+                for (int i = segment.lowerBound(toSecond) - 1; i >= first; i--) {
+                    if (user >= 0 && segment.users[i] != user) {
+                        continue;
+                    }
+                    result.add(toHotPunch(segment, i));
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of punches in {@code [from, to)}, without building any of them. */
+    public long count(Instant from, Instant to) {
+        long fromSecond = from.getEpochSecond();
+        long toSecond = to.getEpochSecond();
+        if (fromSecond >= toSecond) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Segment segment : segments.subMap(Math.floorDiv(fromSecond, SECONDS_PER_DAY), true,
+                    Math.floorDiv(toSecond - 1, SECONDS_PER_DAY), true).values()) {
+                count += segment.lowerBound(toSecond) - segment.lowerBound(fromSecond);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Users whose latest punch is a check-in, break-in or overtime-in taken
+     * within the last {@code zkteco.hot-store.presence-hours}, most recent first.
+     */
+    public List<Presence> presence() {
+        return presence(Instant.now());
+    }
+
+    List<Presence> presence(Instant now) {
+        long since = Math.max(windowStart(now).getEpochSecond(),
+                now.minus(Duration.ofHours(config.getPresenceHours())).getEpochSecond());
+        List<Presence> present = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int user = 0; user < userIds.size(); user++) {
+                long seen = lastSeen[user];
+                int inOutMode = inOutMode(lastModes[user]);
+                if (seen >= since && inOutMode != 1 && inOutMode != 2 && inOutMode != 5) {
+                    present.add(new Presence(userIds.get(user), names[user], deviceIds.get(lastDevice[user]),
+                            Instant.ofEpochSecond(seen), inOutMode == NO_MODE ? null : inOutMode));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        present.sort((a, b) -> b.since().compareTo(a.since()));
+        return present;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            long punches = 0;
+            long bytes = 0;
+            for (Segment segment : segments.values()) {
+                punches += segment.size;
+                bytes += segment.capacity() * Segment.BYTES_PER_PUNCH;
+            }
+            stats.put("enabled", config.isEnabled());
+            stats.put("days", config.getDays());
+            stats.put("segments", segments.size());
+            stats.put("punches", punches);
+            stats.put("users", userIds.size());
+            stats.put("devices", deviceIds.size());
+            stats.put("oldest", segments.isEmpty() ? null
+                    : Instant.ofEpochSecond(segments.firstKey() * SECONDS_PER_DAY));
+            stats.put("columnBytes", bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    /** Start of the oldest UTC day kept at {@code now}. */
+    public Instant windowStart(Instant now) {
+        long today = Math.floorDiv(now.getEpochSecond(), SECONDS_PER_DAY);
+        return Instant.ofEpochSecond((today - Math.max(1, config.getDays()) + 1) * SECONDS_PER_DAY);
+    }
+
+    private int addWarmUpChunk(List<Object[]> chunk) {
+        long windowStart = windowStart(Instant.now()).getEpochSecond();
+        int added = 0;
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : chunk) {
+                if (!liveIds.contains((Long) row[0])) {
+                    add((String) row[2], (String) row[3], (String) row[1], (Long) row[4],
+                            (Integer) row[5], (Integer) row[6], windowStart);
+                    added++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        chunk.clear();
+        return added;
+    }
+
+    private void add(String userId, String name, String deviceId, long epochSecond,
+                     Integer verifyMode, Integer inOutMode, long windowStart) {
+        if (epochSecond < windowStart) {
+            return;
+        }
+        int user = internUser(userId);
+        short device = internDevice(deviceId);
+        int modes = pack(verifyMode, inOutMode);
+        long day = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        segments.computeIfAbsent(day, Segment::new).insert(user, device, (int) (epochSecond - day * SECONDS_PER_DAY), modes);
+        if (epochSecond >= lastSeen[user]) {
+            lastSeen[user] = epochSecond;
+            lastDevice[user] = device;
+            lastModes[user] = modes;
+            if (name != null) {
+                names[user] = name.intern();
+            }
+        }
+    }
+
+    private void evictBefore(long windowStart) {
+        segments.headMap(Math.floorDiv(windowStart, SECONDS_PER_DAY), false).clear();
+    }
+
+    private int internUser(String userId) {
+        Integer index = userIndex.get(userId);
+        if (index != null) {
+            return index;
+        }
+        int user = userIds.size();
+        userIds.add(userId.intern());
+        userIndex.put(userIds.get(user), user);
+        if (user == lastSeen.length) {
+            int capacity = user * 2;
+            names = Arrays.copyOf(names, capacity);
+            lastSeen = Arrays.copyOf(lastSeen, capacity);
+            lastDevice = Arrays.copyOf(lastDevice, capacity);
+            lastModes = Arrays.copyOf(lastModes, capacity);
+        }
+        return user;
+    }
+
+    private short internDevice(String deviceId) {
+        return deviceIndex.computeIfAbsent(deviceId, id -> {
+            deviceIds.add(id);
+            return (short) (deviceIds.size() - 1);
+        });
+    }
+
+    private HotPunch toHotPunch(Segment segment, int i) {
+        int modes = segment.modes[i];
+        int verifyMode = modes >>> 16;
+        int inOutMode = inOutMode(modes);
+        return new HotPunch(userIds.get(segment.users[i]), deviceIds.get(segment.devices[i]),
+                Instant.ofEpochSecond(segment.day * SECONDS_PER_DAY + segment.seconds[i]),
+                verifyMode == NO_MODE ? null : verifyMode, inOutMode == NO_MODE ? null : inOutMode);
+    }
+
+    /** Verify mode in the high 16 bits, in/out mode in the low ones; modes outside 0..65534 count as missing. */
+    private static int pack(Integer verifyMode, Integer inOutMode) {
+        return packMode(verifyMode) << 16 | packMode(inOutMode);
+    }
+
+    private static int packMode(Integer mode) {
+        return mode == null || mode < 0 || mode >= NO_MODE ? NO_MODE : mode;
+    }
+
+    private static int inOutMode(int modes) {
+        return modes & 0xFFFF;
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Punches of one UTC day as parallel arrays, ordered by second. */
+    private static final class Segment {
+        static final int BYTES_PER_PUNCH = Integer.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES;
+
+        final long day;
+        int[] users = new int[INITIAL_SEGMENT_CAPACITY];
+        short[] devices = new short[INITIAL_SEGMENT_CAPACITY];
+        int[] seconds = new int[INITIAL_SEGMENT_CAPACITY];
+        int[] modes = new int[INITIAL_SEGMENT_CAPACITY];
+        int size;
+
+        Segment(long day) {
+            this.day = day;
+        }
+
+        int capacity() {
+            return seconds.length;
+        }
+
+        /** Appends in the common case; a late punch is shifted into place. */
+        void insert(int user, short device, int second, int mode) {
+            if (size == seconds.length) {
+                int capacity = size * 2;
+                users = Arrays.copyOf(users, capacity);
+                devices = Arrays.copyOf(devices, capacity);
+                seconds = Arrays.copyOf(seconds, capacity);
+                modes = Arrays.copyOf(modes, capacity);
+            }
+            int at = size == 0 || seconds[size - 1] <= second ? size : upperBound(second);
+            if (at < size) {
+                System.arraycopy(users, at, users, at + 1, size - at);
+                System.arraycopy(devices, at, devices, at + 1, size - at);
+                System.arraycopy(seconds, at, seconds, at + 1, size - at);
+                System.arraycopy(modes, at, modes, at + 1, size - at);
+            }
+            users[at] = user;
+            devices[at] = device;
+            seconds[at] = second;
+            modes[at] = mode;
+            size++;
+        }
+
+        /** First position whose time is at or after {@code epochSecond}. */
+        int lowerBound(long epochSecond) {
+            long second = epochSecond - day * SECONDS_PER_DAY;
+            if (second <= 0) {
+                return 0;
+            }
+            if (second >= SECONDS_PER_DAY) {
+                return size;
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (seconds[mid] < second) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** First position whose second is after {@code second}. */
+        private int upperBound(int second) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (seconds[mid] <= second) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Staged punch ingest: device readers put batches into a {@link RingBuffer},
+ * a sequencer thread gives them ids from {@code punch_logs_seq} and streams
+ * them to the {@link PunchBroadcaster} at once, and a writer thread commits
+ * everything sequenced so far in one transaction together with the daily
+ * attendance and the device cursors. Under a burst the batches pile up while
+ * a transaction runs and go into the next one together, up to
+ * {@code zkteco.ingest.group-commit-rows}. Neither a device reader nor SSE
+ * delivery waits for the database; a full ring only makes readers wait.
+ * <p>
+ * Punches are streamed before they are stored, so a write failure or a crash
+ * can leave clients with events that are not in the database. The cursor of
+ * that device then stays on its last stored batch and the next read imports
+ * the records again, with new ids. A reader keeps reading past batches still
+ * in the ring through {@link #open}, which returns the cursor of the last
+ * batch put in. After a failed write it returns the stored cursor again, and
+ * batches put in with an older position are dropped.
+ * <p>
+ * Ingest is idempotent: the sequencer drops punches whose natural key is in
+ * {@link RecentPunchKeys}, so a record read twice is neither streamed nor
+ * written again, and the writer inserts only keys not stored yet. A repeat
+ * older than the recent keys is only caught by that insert, after it was
+ * streamed; the writer then retracts it from the stream, so subscribers see
+ * it followed by a {@code retract} event. Batches complete with the number of
+ * punches actually stored.
+ */
+@Component
+public class PunchIngestPipeline implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(PunchIngestPipeline.class);
+
+    // Stages are unparked on every hand-off; the timeout only bounds a missed wakeup
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+
+    /** Where a reader continues on a device; {@code generation} ties its batches to that cursor. */
+    public record Position(DeviceSyncCursor cursor, long generation) {
+    }
+
+    private static final class Batch {
+        final String deviceId;
+        /** Replaced by the sequencer with the punches not seen before, then trimmed to those stored. */
+        List<PunchLog> punches;
+        final DeviceSyncCursor cursor;
+        final long generation;
+        final CompletableFuture<Integer> stored = new CompletableFuture<>();
+
+        Batch(String deviceId, List<PunchLog> punches, DeviceSyncCursor cursor, long generation) {
+            this.deviceId = deviceId;
+            this.punches = punches;
+            this.cursor = cursor;
+            this.generation = generation;
+        }
+    }
+
+    /** Per device: the cursor of the last batch put in until it is stored, and the position generation. */
+    private static final class DeviceState {
+        DeviceSyncCursor pending;
+        long generation;
+    }
+
+    private final ZktecoProperties.Ingest config;
+    private final BulkIngestWriter writer;
+    private final TransactionTemplate transactionTemplate;
+    private final AttendanceService attendance;
+    private final DeviceSyncCursorRepository cursorRepo;
+    private final PunchBroadcaster broadcaster;
+    private final PunchStatsService stats;
+    private final PunchHotStore hotStore;
+    private final IngestMetrics metrics;
+    private final RingBuffer<Batch> ring;
+    private final RecentPunchKeys recentKeys;
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private final Deque<Long> ids = new ArrayDeque<>();
+    private final Thread sequencer;
+    private final Thread writerThread;
+    /** Highest sequence given ids and streamed. */
+    private volatile long sequenced = -1;
+    private volatile boolean running = true;
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder storedBatches = new LongAdder();
+    private final LongAdder storedRows = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public PunchIngestPipeline(ZktecoProperties props, BulkIngestWriter writer, TransactionTemplate transactionTemplate,
+                               AttendanceService attendance, DeviceSyncCursorRepository cursorRepo,
+                               PunchBroadcaster broadcaster, PunchStatsService stats, PunchHotStore hotStore,
+                               IngestMetrics metrics) {
+        this.config = props.getIngest();
+        this.writer = writer;
+        this.transactionTemplate = transactionTemplate;
+        this.attendance = attendance;
+        this.cursorRepo = cursorRepo;
+        this.broadcaster = broadcaster;
+        this.stats = stats;
+        this.hotStore = hotStore;
+        this.metrics = metrics;
+        this.ring = new RingBuffer<>(config.getRingSize());
+        this.recentKeys = new RecentPunchKeys(config.getRecentKeys());
+        this.sequencer = new Thread(this::runSequencer, "punch-sequencer");
+        this.writerThread = new Thread(this::runWriter, "punch-writer");
+        sequencer.setDaemon(true);
+        writerThread.setDaemon(true);
+        sequencer.start();
+        writerThread.start();
+    }
+
+    /** The cursor to read {@code deviceId} on from: the one of its last batch in the ring, else {@code stored}. */
+    public Position open(String deviceId, Supplier<DeviceSyncCursor> stored) {
+        DeviceState state = state(deviceId);
+        synchronized (state) {
+            return new Position(state.pending != null ? copy(state.pending) : stored.get(), state.generation);
+        }
+    }
+
+    /**
+     * Puts a batch read at {@code position} in the ring, with a snapshot of
+     * its cursor, waiting only while the ring is full.
+     *
+     * @return completes with the number of punches once they are stored, or
+     * exceptionally when the write failed or the position is stale
+     */
+    public CompletableFuture<Integer> submit(String deviceId, List<PunchLog> punches, Position position) {
+        Batch batch = new Batch(deviceId, punches, copy(position.cursor()), position.generation());
+        if (!running) {
+            batch.stored.completeExceptionally(new IllegalStateException("Punch ingest is shut down"));
+            return batch.stored;
+        }
+        DeviceState state = state(deviceId);
+        synchronized (state) {
+            if (state.generation != position.generation()) {
+                batch.stored.completeExceptionally(staleBatch(deviceId));
+                return batch.stored;
+            }
+            state.pending = batch.cursor;
+        }
+        ring.put(batch);
+        LockSupport.unpark(sequencer);
+        return batch.stored;
+    }
+
+    private void runSequencer() {
+        long next = 0;
+        while (running || next <= ring.getClaimed()) {
+            Batch batch = ring.get(next);
+            if (batch == null) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                continue;
+            }
+            batch.punches = dropRecent(batch.punches);
+            try {
+                assignIds(batch.punches);
+                // Streamed in ring order, so event ids only ever grow
+                broadcaster.publish(batch.punches);
+            } catch (RuntimeException e) {
+                // Left without ids; the writer reserves them, only streaming is lost
+                log.warn("Could not sequence punches of {}: {}", batch.deviceId, e.getMessage());
+            }
+            sequenced = next++;
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void runWriter() {
+        long written = -1;
+        while (running || written < ring.getClaimed()) {
+            long last = sequenced;
+            if (last <= written) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                continue;
+            }
+            // Everything sequenced meanwhile goes into one transaction, up to the group size
+            List<Batch> group = new ArrayList<>();
+            int rows = 0;
+            long sequence = written + 1;
+            while (sequence <= last) {
+                Batch batch = ring.get(sequence);
+                if (!group.isEmpty() && rows + batch.punches.size() > config.getGroupCommitRows()) {
+                    break;
+                }
+                group.add(batch);
+                rows += batch.punches.size();
+                sequence++;
+            }
+            store(group);
+            written = sequence - 1;
+            ring.release(written);
+        }
+    }
+
+    private void store(List<Batch> group) {
+        List<Batch> live = new ArrayList<>(group.size());
+        for (Batch batch : group) {
+            if (isCurrent(batch)) {
+                live.add(batch);
+            } else {
+                fail(batch, staleBatch(batch.deviceId));
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            keepStored(live, commit(live));
+        } catch (RuntimeException e) {
+            if (live.size() == 1) {
+                fail(live.get(0), e);
+                return;
+            }
+            // One bad batch should not fail the others: store them one by one
+            for (Batch batch : live) {
+                if (!isCurrent(batch)) {
+                    fail(batch, staleBatch(batch.deviceId));
+                    continue;
+                }
+                long single = System.nanoTime();
+                try {
+                    keepStored(List.of(batch), commit(List.of(batch)));
+                } catch (RuntimeException batchFailure) {
+                    fail(batch, batchFailure);
+                    continue;
+                }
+                stored(List.of(batch), single);
+            }
+            return;
+        }
+        stored(live, start);
+    }
+
+    /** Stores the punches of {@code group} not stored yet and the cursors; returns the punches stored. */
+    private List<PunchLog> commit(List<Batch> group) {
+        List<PunchLog> punches = new ArrayList<>();
+        Map<String, DeviceSyncCursor> cursors = new LinkedHashMap<>();
+        for (Batch batch : group) {
+            punches.addAll(batch.punches);
+            cursors.put(batch.deviceId, batch.cursor);
+        }
+        return transactionTemplate.execute(status -> {
+            List<PunchLog> inserted = writer.insertNewPunches(punches);
+            attendance.apply(inserted);
+            cursorRepo.saveAll(cursors.values());
+            return inserted;
+        });
+    }
+
+    /**
+     * Drops the punches the database already had, older than the recent keys,
+     * from their batches, and retracts them from the stream.
+     */
+    private void keepStored(List<Batch> group, List<PunchLog> inserted) {
+        int rows = group.stream().mapToInt(batch -> batch.punches.size()).sum();
+        if (inserted.size() == rows) {
+            return;
+        }
+        duplicates.add(rows - inserted.size());
+        Set<PunchLog> stored = Collections.newSetFromMap(new IdentityHashMap<>());
+        stored.addAll(inserted);
+        List<PunchLog> skipped = new ArrayList<>(rows - inserted.size());
+        for (Batch batch : group) {
+            batch.punches.removeIf(punch -> !stored.contains(punch) && skipped.add(punch));
+        }
+        broadcaster.retract(skipped);
+    }
+
+    private void stored(List<Batch> group, long startNanos) {
+        List<PunchLog> punches = new ArrayList<>();
+        Map<String, Integer> rowsByDevice = new LinkedHashMap<>();
+        for (Batch batch : group) {
+            punches.addAll(batch.punches);
+            rowsByDevice.merge(batch.deviceId, batch.punches.size(), Integer::sum);
+        }
+        groups.increment();
+        storedBatches.add(group.size());
+        storedRows.add(punches.size());
+        rowsByDevice.forEach((deviceId, rows) -> metrics.recordCommit(deviceId, "punches", rows, startNanos));
+        stats.record(punches);
+        hotStore.record(punches);
+        for (Batch batch : group) {
+            DeviceState state = state(batch.deviceId);
+            synchronized (state) {
+                if (state.pending == batch.cursor) {
+                    state.pending = null;
+                }
+            }
+            batch.stored.complete(batch.punches.size());
+        }
+    }
+
+    private boolean isCurrent(Batch batch) {
+        DeviceState state = state(batch.deviceId);
+        synchronized (state) {
+            return state.generation == batch.generation;
+        }
+    }
+
+    /** Fails {@code batch} and every later batch of its device read from the same position. */
+    private void fail(Batch batch, RuntimeException e) {
+        DeviceState state = state(batch.deviceId);
+        synchronized (state) {
+            if (state.generation == batch.generation) {
+                log.error("Storing {} punches of {} failed, the device will be read again from its stored cursor",
+                        batch.punches.size(), batch.deviceId, e);
+                state.pending = null;
+                state.generation++;
+            }
+        }
+        // Not stored, so reading them again must not count as a duplicate
+        batch.punches.forEach(recentKeys::remove);
+        failedBatches.increment();
+        batch.stored.completeExceptionally(e);
+    }
+
+    /** The punches whose key was not seen recently, in a list of their own. */
+    private List<PunchLog> dropRecent(List<PunchLog> punches) {
+        List<PunchLog> fresh = new ArrayList<>(punches.size());
+        for (PunchLog punch : punches) {
+            if (recentKeys.add(punch)) {
+                fresh.add(punch);
+            }
+        }
+        duplicates.add(punches.size() - fresh.size());
+        return fresh;
+    }
+
+    private void assignIds(List<PunchLog> punches) {
+        if (ids.size() < punches.size()) {
+            ids.addAll(writer.reservePunchIds(Math.max(punches.size() - ids.size(), config.getBatchSize())));
+        }
+        for (PunchLog punch : punches) {
+            punch.setId(ids.poll());
+        }
+    }
+
+    private DeviceState state(String deviceId) {
+        return devices.computeIfAbsent(deviceId, id -> new DeviceState());
+    }
+
+    private static IllegalStateException staleBatch(String deviceId) {
+        return new IllegalStateException("Punches of " + deviceId + " were read after a failed write; read again");
+    }
+
+    private static DeviceSyncCursor copy(DeviceSyncCursor cursor) {
+        DeviceSyncCursor copy = new DeviceSyncCursor(cursor.getDeviceKey());
+        copy.setLastRecordIndex(cursor.getLastRecordIndex());
+        copy.setLastPunchTime(cursor.getLastPunchTime());
+        copy.setUpdatedAt(cursor.getUpdatedAt() != null ? cursor.getUpdatedAt() : OffsetDateTime.now());
+        return copy;
+    }
+
+    /** Batches waiting for ids and streaming, and waiting to be stored (streamed ones included). */
+    public Map<String, Object> getStats() {
+        long claimed = ring.getClaimed();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", ring.capacity());
+        stats.put("waitingToSequence", claimed - sequenced);
+        stats.put("waitingToStore", claimed - ring.getReleased());
+        stats.put("groupCommits", groups.sum());
+        stats.put("storedBatches", storedBatches.sum());
+        stats.put("storedRows", storedRows.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("duplicatesDropped", duplicates.sum());
+        stats.put("recentKeys", recentKeys.size());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("zkteco.ingest.queued", this, p -> p.ring.getClaimed() - p.sequenced)
+                .description("Punch batches waiting in the ingest ring")
+                .tag("stage", "sequence")
+                .register(registry);
+        Gauge.builder("zkteco.ingest.queued", this, p -> p.ring.getClaimed() - p.ring.getReleased())
+                .description("Punch batches waiting in the ingest ring")
+                .tag("stage", "store")
+                .register(registry);
+        FunctionCounter.builder("zkteco.ingest.groups", groups, LongAdder::sum)
+                .description("Ingest transactions, each storing one or more batches")
+                .register(registry);
+        FunctionCounter.builder("zkteco.ingest.duplicates", duplicates, LongAdder::sum)
+                .description("Punches read again and dropped instead of stored twice")
+                .register(registry);
+    }
+
+    /** Stores what is already in the ring, then stops both stages. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(sequencer);
+        LockSupport.unpark(writerThread);
+        sequencer.join(SHUTDOWN_WAIT_MS);
+        writerThread.join(SHUTDOWN_WAIT_MS);
+    }
+}
@@ -4,12 +4,20 @@ import jakarta.persistence.*;
 import java.time.OffsetDateTime;
 
 @Entity
-@Table(name = "punch_logs")
+@Table(name = "punch_logs") // indexes and partitioning: db/migration
 public class PunchLog {
+    /** Ids handed out per sequence call; pooled ids keep Hibernate JDBC batching enabled. */
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String ID_SEQUENCE = "punch_logs_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "punch_logs_seq")
+    @SequenceGenerator(name = "punch_logs_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
+    @Column(name = "device_id", length = 32)
+    private String deviceId;
+
     @Column(name = "user_id", nullable = false, length = 32)
     private String userId;
 
@@ -40,6 +48,14 @@ public class PunchLog {
         this.id = id;
     }
 
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
     public String getUserId() {
         return userId;
     }
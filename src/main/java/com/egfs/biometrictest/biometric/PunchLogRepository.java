@@ -1,12 +1,16 @@
 package com.egfs.biometrictest.biometric;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface PunchLogRepository extends JpaRepository<PunchLog, Long> {
-    List<PunchLog> findByUserIdOrderByPunchTimeDesc(String userId);
-    List<PunchLog> findByPunchTimeBetween(OffsetDateTime start, OffsetDateTime end);
-    List<PunchLog> findAllByOrderByPunchTimeDesc();
+public interface PunchLogRepository extends JpaRepository<PunchLog, Long>, JpaSpecificationExecutor<PunchLog> {
+    List<PunchLog> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    List<PunchLog> findByUserIdInAndPunchTimeGreaterThanEqualAndPunchTimeLessThan(
+            Collection<String> userIds, OffsetDateTime start, OffsetDateTime end);
+    List<PunchLog> findByPunchTimeGreaterThanEqualAndPunchTimeLessThan(OffsetDateTime start, OffsetDateTime end);
 }
@@ -0,0 +1,9 @@
+package com.egfs.biometrictest.biometric;
+
+import java.util.List;
+
+/**
+ * One page of punches; {@code nextCursor} is null on the last page.
+ */
+public record PunchPage(List<PunchLog> items, String nextCursor) {
+}
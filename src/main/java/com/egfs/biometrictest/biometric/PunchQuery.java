@@ -0,0 +1,53 @@
+package com.egfs.biometrictest.biometric;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters for the punch list; every field is optional. {@code from} is
+ * inclusive and {@code to} exclusive.
+ */
+public record PunchQuery(OffsetDateTime from, OffsetDateTime to, String userId, String deviceId,
+                         Integer verifyMode, Integer inOutMode) {
+
+    /** Newest first; {@code id} breaks ties between punches with the same time. */
+    static final Sort ORDER = Sort.by(Sort.Order.desc("punchTime"), Sort.Order.desc("id"));
+
+    /** Only the predicates that are set, plus the seek condition for the page after {@code after}. */
+    Specification<PunchLog> toSpecification(PunchCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            if (from != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("punchTime"), from));
+            }
+            if (to != null) {
+                where.add(cb.lessThan(root.get("punchTime"), to));
+            }
+            if (userId != null) {
+                where.add(cb.equal(root.get("userId"), userId));
+            }
+            if (deviceId != null) {
+                where.add(cb.equal(root.get("deviceId"), deviceId));
+            }
+            if (verifyMode != null) {
+                where.add(cb.equal(root.get("verifyMode"), verifyMode));
+            }
+            if (inOutMode != null) {
+                where.add(cb.equal(root.get("inOutMode"), inOutMode));
+            }
+            if (after != null) {
+                // (punch_time, id) < (cursor time, cursor id), spelled out for databases without row values
+                OffsetDateTime time = after.punchTimeUtc();
+                where.add(cb.or(
+                        cb.lessThan(root.get("punchTime"), time),
+                        cb.and(cb.equal(root.get("punchTime"), time), cb.lessThan(root.get("id"), after.id()))));
+            }
+            return cb.and(where.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code punch_logs} bounded. On PostgreSQL the table is partitioned by
+ * month (see the V2 migration): partitions are created ahead of time and
+ * expired ones detached, or dropped with {@code zkteco.retention.drop-partitions},
+ * which costs no row deletes. Other databases delete expired rows instead.
+ * Months are UTC months; {@code zkteco.retention.months = 0} keeps everything.
+ */
+@Component
+public class PunchRetentionService {
+    private static final Logger log = LoggerFactory.getLogger(PunchRetentionService.class);
+
+    private static final String PARTITION_PREFIX = "punch_logs_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final ZktecoProperties.Retention config;
+    private final JdbcTemplate jdbc;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "punch-retention");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Boolean postgres;
+
+    public PunchRetentionService(ZktecoProperties props, JdbcTemplate jdbc) {
+        this.config = props.getRetention();
+        this.jdbc = jdbc;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long period = Math.max(1, config.getIntervalHours());
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                runMaintenance();
+            } catch (Exception e) {
+                log.warn("Punch log maintenance failed: {}", e.getMessage());
+            }
+        }, 0, period, TimeUnit.HOURS);
+    }
+
+    /**
+     * Creates upcoming partitions and expires old punches.
+     *
+     * @return number of partitions detached, or rows deleted
+     */
+    public int runMaintenance() {
+        LocalDate thisMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        if (isPostgres()) {
+            for (int i = 0; i <= config.getPartitionsAhead(); i++) {
+                jdbc.queryForObject("select punch_logs_create_partition(?)", String.class, thisMonth.plusMonths(i));
+            }
+        }
+        if (config.getMonths() <= 0) {
+            return 0;
+        }
+        LocalDate cutoff = thisMonth.minusMonths(config.getMonths());
+        return isPostgres() ? expirePartitions(cutoff) : deleteBefore("punch_logs", cutoff);
+    }
+
+    private int expirePartitions(LocalDate cutoff) {
+        List<String> partitions = jdbc.queryForList("""
+                select c.relname from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'punch_logs'::regclass and c.relname like 'punch\\_logs\\_p%'
+                order by c.relname""", String.class);
+        String oldestKept = PARTITION_PREFIX + cutoff.format(PARTITION_SUFFIX);
+        int expired = 0;
+        for (String partition : partitions) {
+            // Names are fixed width, so they sort by month
+            if (partition.length() != oldestKept.length() || partition.compareTo(oldestKept) >= 0) {
+                continue;
+            }
+            jdbc.execute("alter table punch_logs detach partition " + partition);
+            if (config.isDropPartitions()) {
+                jdbc.execute("drop table " + partition);
+            }
+            log.info("{} expired punch partition {}", config.isDropPartitions() ? "Dropped" : "Detached", partition);
+            expired++;
+        }
+        // Stray rows outside any monthly partition
+        deleteBefore("punch_logs_default", cutoff);
+        return expired;
+    }
+
+    private int deleteBefore(String table, LocalDate cutoff) {
+        int deleted = jdbc.update("delete from " + table + " where punch_time < ?",
+                Timestamp.from(cutoff.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        if (deleted > 0) {
+            log.info("Deleted {} punches before {} from {}", deleted, cutoff, table);
+        }
+        return deleted;
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = jdbc.execute((Connection c) -> "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName()));
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+}
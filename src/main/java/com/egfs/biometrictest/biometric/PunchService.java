@@ -1,20 +1,22 @@
 package com.egfs.biometrictest.biometric;
 
 import com.egfs.biometrictest.ZktecoProperties;
-import com.jacob.activeX.ActiveXComponent;
-import com.jacob.com.Dispatch;
-import com.jacob.com.Variant;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.AttendanceRecord;
+import com.egfs.biometrictest.device.DeviceClient;
+import com.egfs.biometrictest.device.DeviceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -22,166 +24,251 @@ import java.util.concurrent.Executors;
 public class PunchService {
     private static final Logger log = LoggerFactory.getLogger(PunchService.class);
 
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final ZktecoProperties props;
+    private final DeviceRegistry devices;
+    private final DeviceSessionPool sessions;
     private final PunchLogRepository punchRepo;
-    private final BiometricTemplateRepository templateRepo;
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final UserDirectory userDirectory;
+    private final DeviceSyncCursorRepository cursorRepo;
+    private final PunchIngestPipeline pipeline;
+    private final DeviceSyncGuard syncGuard;
+    private final PunchBroadcaster broadcaster;
+    private final IngestMetrics metrics;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private volatile boolean monitoring = false;
 
-    public PunchService(ZktecoProperties props, PunchLogRepository punchRepo, 
-                        BiometricTemplateRepository templateRepo) {
+    public PunchService(ZktecoProperties props, DeviceRegistry devices, DeviceSessionPool sessions,
+                        PunchLogRepository punchRepo,
+                        UserDirectory userDirectory, DeviceSyncCursorRepository cursorRepo,
+                        PunchIngestPipeline pipeline, DeviceSyncGuard syncGuard, PunchBroadcaster broadcaster,
+                        IngestMetrics metrics) {
         this.props = props;
+        this.devices = devices;
+        this.sessions = sessions;
         this.punchRepo = punchRepo;
-        this.templateRepo = templateRepo;
+        this.userDirectory = userDirectory;
+        this.cursorRepo = cursorRepo;
+        this.pipeline = pipeline;
+        this.syncGuard = syncGuard;
+        this.broadcaster = broadcaster;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Imports attendance records added to the device since the last sync. The
+     * record count is probed first so an idle device costs no log download, and
+     * records up to the stored cursor are skipped without touching the database.
+     * With {@code zkteco.clear-log-after-sync} the device log is cleared once the
+     * imported rows are committed, which keeps the next download short.
+     */
+    public DeviceSyncResult syncPunches(Device device) {
+        return syncPunches(device, SyncProgress.NONE);
     }
 
-    @Transactional
-    public int syncPunches() {
-        ActiveXComponent zk = null;
-        int imported = 0;
+    /**
+     * Same as {@link #syncPunches(Device)}, reporting each committed batch to
+     * {@code progress}. A cancelled sync stops at the next batch boundary with
+     * the cursor on the last committed batch, so running it again resumes.
+     * A sync of a device waits for the one already running on it.
+     */
+    public DeviceSyncResult syncPunches(Device device, SyncProgress progress) {
+        long start = System.nanoTime();
+        int[] imported = {0};
+        DeviceSyncResult result;
         try {
-            zk = new ActiveXComponent("zkemkeeper.CZKEM");
-            boolean connected = Dispatch.call(zk, "Connect_Net", props.getIp(), props.getPort()).getBoolean();
-            if (!connected) {
-                log.error("Failed to connect to device {}:{}", props.getIp(), props.getPort());
-                return 0;
+            syncGuard.run(device, progress, () -> sessions.execute(device,
+                    client -> importNewPunches(client, device, props.isClearLogAfterSync(), true, progress, imported)));
+            result = DeviceSyncResult.ok(device.getId(), imported[0], start);
+        } catch (Exception e) {
+            if (progress.isCancelled()) {
+                log.info("Punch sync of {} cancelled after {} records", device, imported[0]);
+                result = DeviceSyncResult.failed(device.getId(), imported[0], start, "Cancelled");
+            } else {
+                log.error("Error syncing punch logs from {}", device, e);
+                result = DeviceSyncResult.failed(device.getId(), imported[0], start, e.getMessage());
             }
+        }
+        metrics.recordSync("punches", result);
+        return result;
+    }
 
-            // Set communication password if configured
-            if (props.getPassword() != null && !props.getPassword().isEmpty()) {
-                boolean ok = Dispatch.call(zk, "SetCommPassword", Integer.parseInt(props.getPassword())).getBoolean();
-                if (!ok) log.warn("SetCommPassword returned false");
-            }
+    /**
+     * Reads the records past the device cursor and hands them to the ingest
+     * pipeline in batches; {@code imported[0]} counts the records handed over,
+     * with {@code await} only once they are stored, also when it fails.
+     */
+    private int importNewPunches(DeviceClient client, Device device, boolean clearLog, boolean await,
+                                 SyncProgress progress, int[] imported) {
+        boolean deviceDisabled = false;
+        try {
+            PunchIngestPipeline.Position position = openCursor(device);
+            DeviceSyncCursor cursor = position.cursor();
 
-            // Read all attendance logs
-            boolean readSuccess = Dispatch.call(zk, "ReadGeneralLogData", props.getMachineNumber()).getBoolean();
-            if (!readSuccess) {
-                log.warn("ReadGeneralLogData failed");
+            // Nothing new on the device: skip the full log download
+            long recordCount = client.getAttendanceCount();
+            if (recordCount >= 0 && recordCount == cursor.getLastRecordIndex()) {
+                log.debug("No new punch logs on device {}", device.getId());
                 return 0;
             }
+            if (recordCount >= 0 && recordCount < cursor.getLastRecordIndex()) {
+                // Log was cleared on the device since the last sync
+                log.info("Device log shrank from {} to {} records, restarting cursor",
+                        cursor.getLastRecordIndex(), recordCount);
+                cursor.setLastRecordIndex(0);
+            }
+            if (recordCount >= 0) {
+                progress.onTotal(recordCount - cursor.getLastRecordIndex());
+            }
 
-            // Iterate through all attendance logs using GetAllGLogData
-            Variant vEnrollNo = new Variant("", true);
-            Variant vVerifyMode = new Variant(0, true);
-            Variant vInOutMode = new Variant(0, true);
-            Variant vYear = new Variant(0, true);
-            Variant vMonth = new Variant(0, true);
-            Variant vDay = new Variant(0, true);
-            Variant vHour = new Variant(0, true);
-            Variant vMinute = new Variant(0, true);
-            Variant vSecond = new Variant(0, true);
-            Variant vWorkCode = new Variant(0, true);
-
-            // GetAllGLogData uses 8 parameters: machineNo, enrollNo, verifyMode, inOutMode, year, month, day, hour
-            // We need to split the call into two parts
-            while (Dispatch.call(zk, "GetAllGLogData",
-                    new Variant(props.getMachineNumber()),
-                    vEnrollNo, vVerifyMode, vInOutMode,
-                    vYear, vMonth, vDay, vHour).getBoolean()) {
+            if (clearLog) {
+                // Hold new punches on the device until the log has been archived and cleared
+                client.setEnabled(false);
+                deviceDisabled = true;
+            }
 
-                // Get additional time info using separate calls
-                Variant vMin = new Variant(0, true);
-                Variant vSec = new Variant(0, true);
-                
-                String userId = vEnrollNo.getStringRef();
-                int verifyMode = vVerifyMode.getIntRef();
-                int inOutMode = vInOutMode.getIntRef();
-                int year = vYear.getIntRef();
-                int month = vMonth.getIntRef();
-                int day = vDay.getIntRef();
-                int hour = vHour.getIntRef();
-                
-                // For minute and second, we'll use a separate call or default to 0
-                // Most ZKTeco devices support SSR_GetGeneralLogData but we need to call it properly
-                int minute = 0;
-                int second = 0;
-                
-                try {
-                    // Try to get detailed time if available
-                    if (Dispatch.call(zk, "SSR_GetGeneralExtLogData",
-                            new Variant(props.getMachineNumber()),
-                            vMin, vSec).getBoolean()) {
-                        minute = vMin.getIntRef();
-                        second = vSec.getIntRef();
+            // Records stream from the device into batches; each batch is committed with the cursor
+            int batchSize = props.getIngest().getBatchSize();
+            List<PunchLog> batch = new ArrayList<>(batchSize);
+            long skip = cursor.getLastRecordIndex();
+            // Records read, not stored: the sequencer drops those stored before, and the cursor passes them too
+            long[] read = {0};
+            long recordIndex = client.readAttendance(skip, record -> {
+                batch.add(toPunchLog(device, record));
+                if (batch.size() >= batchSize) {
+                    read[0] += batch.size();
+                    int committed = commitBatch(device, batch, position, skip + read[0], await);
+                    imported[0] += committed;
+                    progress.onRecords(committed);
+                    if (progress.isCancelled()) {
+                        throw new SyncCancelledException("Punch sync of " + device + " cancelled");
                     }
-                } catch (Exception e) {
-                    // Ignore if not supported
                 }
+            });
+            int committed = commitBatch(device, batch, position, recordIndex, await);
+            imported[0] += committed;
+            progress.onRecords(committed);
 
-                // Build timestamp
-                OffsetDateTime punchTime = OffsetDateTime.of(
-                    year, month, day, hour, minute, second, 0,
-                    ZoneId.systemDefault().getRules().getOffset(
-                        java.time.LocalDateTime.of(year, month, day, hour, minute, second)
-                    )
-                );
-
-                // Get user name from template if exists
-                String name = templateRepo.findByUserIdAndFingerIndex(userId, 0)
-                        .map(BiometricTemplate::getName)
-                        .orElse(null);
-
-                // Create punch log
-                PunchLog punch = new PunchLog();
-                punch.setUserId(userId);
-                punch.setName(name);
-                punch.setPunchTime(punchTime);
-                punch.setVerifyMode(verifyMode);
-                punch.setInOutMode(inOutMode);
-                punch.setWorkCode("0");
-                punchRepo.save(punch);
-                imported++;
-
-                // Reset variants for next iteration
-                vEnrollNo = new Variant("", true);
-                vVerifyMode = new Variant(0, true);
-                vInOutMode = new Variant(0, true);
-                vYear = new Variant(0, true);
-                vMonth = new Variant(0, true);
-                vDay = new Variant(0, true);
-                vHour = new Variant(0, true);
+            if (clearLog) {
+                clearDeviceLog(client, device, cursor);
             }
 
-            log.info("Successfully synced {} punch logs", imported);
-            return imported;
-
-        } catch (Throwable t) {
-            log.error("Error syncing punch logs", t);
-            return imported;
+            log.info("Successfully synced {} new punch logs from {} ({} records on device)",
+                    imported[0], device, recordIndex);
+            return imported[0];
         } finally {
-            if (zk != null) {
+            if (deviceDisabled) {
                 try {
-                    Dispatch.call(zk, "Disconnect");
+                    client.setEnabled(true);
                 } catch (Exception ignore) {}
             }
         }
     }
 
-    public List<PunchLog> getAllPunches() {
-        return punchRepo.findAllByOrderByPunchTimeDesc();
+    /** The device cursor, ahead of the stored one while batches of the device are still in the pipeline. */
+    private PunchIngestPipeline.Position openCursor(Device device) {
+        return pipeline.open(device.getId(),
+                () -> cursorRepo.findById(device.getId()).orElseGet(() -> new DeviceSyncCursor(device.getId())));
     }
 
-    public List<PunchLog> getPunchesByUser(String userId) {
-        return punchRepo.findByUserIdOrderByPunchTimeDesc(userId);
+    /**
+     * Advances the cursor over a batch and hands both to the ingest pipeline,
+     * which streams the punches at once and stores them, the daily attendance
+     * they touch and the cursor in one transaction. Syncs {@code await} the
+     * write, so their counts and cursor are those of stored batches; the
+     * realtime monitor goes on reading meanwhile.
+     */
+    private int commitBatch(Device device, List<PunchLog> batch, PunchIngestPipeline.Position position,
+                            long recordIndex, boolean await) {
+        DeviceSyncCursor cursor = position.cursor();
+        int size = batch.size();
+        for (PunchLog punch : batch) {
+            if (cursor.getLastPunchTime() == null || punch.getPunchTime().isAfter(cursor.getLastPunchTime())) {
+                cursor.setLastPunchTime(punch.getPunchTime());
+            }
+        }
+        cursor.setLastRecordIndex(recordIndex);
+        cursor.setUpdatedAt(OffsetDateTime.now());
+        CompletableFuture<Integer> stored = pipeline.submit(device.getId(), new ArrayList<>(batch), position);
+        batch.clear();
+        if (!await) {
+            return size;
+        }
+        try {
+            return stored.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
     }
 
-    public SseEmitter registerForRealtimeUpdates() {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-        emitters.add(emitter);
-        
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError(e -> emitters.remove(emitter));
+    private PunchLog toPunchLog(Device device, AttendanceRecord record) {
+        LocalDateTime time = record.time();
+        PunchLog punch = new PunchLog();
+        punch.setDeviceId(device.getId());
+        punch.setUserId(record.userId());
+        // Resolve user name from the in-memory directory
+        punch.setName(userDirectory.resolveName(record.userId()));
+        punch.setPunchTime(OffsetDateTime.of(time, ZoneId.systemDefault().getRules().getOffset(time)));
+        punch.setVerifyMode(record.verifyMode());
+        punch.setInOutMode(record.inOutMode());
+        punch.setWorkCode(record.workCode());
+        return punch;
+    }
+
+    private void clearDeviceLog(DeviceClient client, Device device, DeviceSyncCursor cursor) {
+        try {
+            client.clearAttendance();
+        } catch (DeviceException e) {
+            log.warn("ClearGLog failed, device log left intact: {}", e.getMessage());
+            return;
+        }
+        cursor.setLastRecordIndex(0);
+        cursor.setUpdatedAt(OffsetDateTime.now());
+        cursorRepo.save(cursor);
+        log.info("Cleared attendance log on device {}", device.getId());
+    }
+
+    /**
+     * One page of punches matching {@code query}, newest first. Pages are
+     * addressed by keyset on {@code (punch_time, id)}, so a deep page costs the
+     * same as the first one and nothing beyond the page is loaded.
+     *
+     * @param cursor token from the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not a valid token
+     */
+    public PunchPage findPunches(PunchQuery query, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PunchCursor after = cursor != null && !cursor.isBlank() ? PunchCursor.decode(cursor) : null;
+        // One extra row tells whether another page follows, without a count query
+        List<PunchLog> rows = punchRepo.findBy(query.toSpecification(after),
+                q -> q.sortBy(PunchQuery.ORDER).limit(size + 1).all());
+        if (rows.size() <= size) {
+            return new PunchPage(rows, null);
+        }
+        List<PunchLog> items = rows.subList(0, size);
+        return new PunchPage(items, PunchCursor.of(items.get(size - 1)).encode());
+    }
+
+    /** Subscribes to realtime punches, first replaying those after {@code lastEventId} if given. */
+    public SseEmitter registerForRealtimeUpdates(Long lastEventId) {
+        SseEmitter emitter = broadcaster.subscribe(lastEventId);
         
         // Start monitoring if not already started
-        if (!monitoring && !emitters.isEmpty()) {
+        if (!monitoring) {
             startRealtimeMonitoring();
         }
         
         return emitter;
     }
 
+    /**
+     * Pushes new punches of the default device to the SSE clients. Each tick
+     * waits for a device event (tcp backend) for at most the poll interval,
+     * then imports only the records past the sync cursor, so the cost of a
+     * tick does not depend on how large the device log is and realtime punches
+     * are never stored twice by the regular sync.
+     */
     private void startRealtimeMonitoring() {
         if (monitoring) {
             return;
@@ -190,166 +277,80 @@ public class PunchService {
         monitoring = true;
         executor.submit(() -> {
             log.info("Starting real-time punch monitoring");
-            ActiveXComponent zk = null;
-            
-            try {
-                zk = new ActiveXComponent("zkemkeeper.CZKEM");
-                boolean connected = Dispatch.call(zk, "Connect_Net", props.getIp(), props.getPort()).getBoolean();
-                
-                if (!connected) {
-                    log.error("Failed to connect to device for real-time monitoring");
-                    monitoring = false;
-                    return;
-                }
-
-                // Set communication password if configured
-                if (props.getPassword() != null && !props.getPassword().isEmpty()) {
-                    Dispatch.call(zk, "SetCommPassword", Integer.parseInt(props.getPassword()));
-                }
+            Device device = devices.getDefault();
+            long intervalMs = props.getRealtime().getPollIntervalMs();
 
+            try {
                 // Enable real-time events
-                Dispatch.call(zk, "RegEvent", props.getMachineNumber(), 65535);
+                sessions.execute(device, client -> {
+                    client.registerEvents();
+                    return null;
+                });
                 
                 log.info("Real-time monitoring enabled");
                 
-                // Keep connection alive and listen for events
-                while (monitoring && !emitters.isEmpty()) {
-                    // Check for new attendance records periodically
-                    checkForNewPunches(zk);
-                    Thread.sleep(2000); // Poll every 2 seconds
+                // Borrow the pooled session for each tick so syncs on the same device can interleave
+                while (monitoring && broadcaster.getSubscriberCount() > 0) {
+                    long tickStart = System.nanoTime();
+                    int imported = 0;
+                    try {
+                        // A tick during a sync of the device is skipped; the sync imports and streams the punches
+                        imported = syncGuard.tryRun(device, () -> sessions.execute(device,
+                                client -> checkForNewPunches(client, device, intervalMs))).orElse(0);
+                    } catch (DeviceException e) {
+                        log.error("Error checking for new punches", e);
+                    }
+                    if (imported > 0) {
+                        continue;
+                    }
+                    // Backends without events return at once; wait out the rest of the interval
+                    long remainingMs = intervalMs - (System.nanoTime() - tickStart) / 1_000_000;
+                    if (remainingMs > 0) {
+                        Thread.sleep(remainingMs);
+                    }
                 }
                 
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 log.error("Error in real-time monitoring", e);
             } finally {
                 monitoring = false;
-                if (zk != null) {
-                    try {
-                        Dispatch.call(zk, "Disconnect");
-                    } catch (Exception ignore) {}
-                }
                 log.info("Real-time monitoring stopped");
             }
         });
     }
 
-    private void checkForNewPunches(ActiveXComponent zk) {
-        try {
-            // Read latest general log data
-            boolean readSuccess = Dispatch.call(zk, "ReadGeneralLogData", props.getMachineNumber()).getBoolean();
-            if (!readSuccess) {
-                return;
-            }
-
-            List<PunchLog> newPunches = new ArrayList<>();
-            
-            // Get latest attendance records using GetAllGLogData
-            Variant vEnrollNo = new Variant("", true);
-            Variant vVerifyMode = new Variant(0, true);
-            Variant vInOutMode = new Variant(0, true);
-            Variant vYear = new Variant(0, true);
-            Variant vMonth = new Variant(0, true);
-            Variant vDay = new Variant(0, true);
-            Variant vHour = new Variant(0, true);
-
-            while (Dispatch.call(zk, "GetAllGLogData",
-                    new Variant(props.getMachineNumber()),
-                    vEnrollNo, vVerifyMode, vInOutMode,
-                    vYear, vMonth, vDay, vHour).getBoolean()) {
-
-                String userId = vEnrollNo.getStringRef();
-                int verifyMode = vVerifyMode.getIntRef();
-                int inOutMode = vInOutMode.getIntRef();
-                int year = vYear.getIntRef();
-                int month = vMonth.getIntRef();
-                int day = vDay.getIntRef();
-                int hour = vHour.getIntRef();
-                
-                // Default minute and second to 0
-                int minute = 0;
-                int second = 0;
-
-                OffsetDateTime punchTime = OffsetDateTime.of(
-                    year, month, day, hour, minute, second, 0,
-                    ZoneId.systemDefault().getRules().getOffset(
-                        java.time.LocalDateTime.of(year, month, day, hour, minute, second)
-                    )
-                );
-
-                // Only process recent punches (within last 5 minutes)
-                if (punchTime.isAfter(OffsetDateTime.now().minusMinutes(5))) {
-                    String name = templateRepo.findByUserIdAndFingerIndex(userId, 0)
-                            .map(BiometricTemplate::getName)
-                            .orElse(null);
-
-                    PunchLog punch = new PunchLog();
-                    punch.setUserId(userId);
-                    punch.setName(name);
-                    punch.setPunchTime(punchTime);
-                    punch.setVerifyMode(verifyMode);
-                    punch.setInOutMode(inOutMode);
-                    punch.setWorkCode("0");
-                    
-                    // Save to database
-                    punchRepo.save(punch);
-                    newPunches.add(punch);
-                }
-
-                // Reset variants
-                vEnrollNo = new Variant("", true);
-                vVerifyMode = new Variant(0, true);
-                vInOutMode = new Variant(0, true);
-                vYear = new Variant(0, true);
-                vMonth = new Variant(0, true);
-                vDay = new Variant(0, true);
-                vHour = new Variant(0, true);
-            }
-
-            // Send new punches to all connected clients
-            if (!newPunches.isEmpty()) {
-                sendToAllEmitters(newPunches);
-            }
-
-        } catch (Exception e) {
-            log.error("Error checking for new punches", e);
+    private int checkForNewPunches(DeviceClient client, Device device, long waitMs) {
+        List<AttendanceRecord> events = client.pollEvents(waitMs);
+        if (!events.isEmpty() && importEvents(client, device, events)) {
+            return events.size();
         }
+        return importNewPunches(client, device, false, false, SyncProgress.NONE, new int[1]);
     }
 
-    private void sendToAllEmitters(List<PunchLog> punches) {
-        List<SseEmitter> deadEmitters = new ArrayList<>();
-        
-        for (SseEmitter emitter : emitters) {
-            try {
-                for (PunchLog punch : punches) {
-                    emitter.send(SseEmitter.event()
-                        .name("punch")
-                        .data(formatPunch(punch)));
-                }
-            } catch (Exception e) {
-                deadEmitters.add(emitter);
-            }
+    /**
+     * Stores pushed events without downloading the log when they are exactly
+     * the records added since the cursor; returns false when the counts do
+     * not line up (missed events, punches taken during a sync) so the caller
+     * falls back to a cursor read.
+     */
+    private boolean importEvents(DeviceClient client, Device device, List<AttendanceRecord> events) {
+        PunchIngestPipeline.Position position = openCursor(device);
+        long recordCount = client.getAttendanceCount();
+        if (recordCount < 0 || recordCount != position.cursor().getLastRecordIndex() + events.size()) {
+            return false;
         }
-        
-        // Remove dead emitters
-        emitters.removeAll(deadEmitters);
-        
-        // Stop monitoring if no more emitters
-        if (emitters.isEmpty()) {
-            monitoring = false;
+        List<PunchLog> batch = new ArrayList<>(events.size());
+        for (AttendanceRecord event : events) {
+            batch.add(toPunchLog(device, event));
         }
-    }
-
-    private String formatPunch(PunchLog punch) {
-        return String.format("User: %s (%s), Time: %s, Mode: %d, InOut: %d",
-                punch.getUserId(),
-                punch.getName() != null ? punch.getName() : "Unknown",
-                punch.getPunchTime(),
-                punch.getVerifyMode(),
-                punch.getInOutMode());
+        commitBatch(device, batch, position, recordCount, false);
+        return true;
     }
 
     public void stopMonitoring() {
         monitoring = false;
-        emitters.clear();
+        broadcaster.closeAll();
     }
 }
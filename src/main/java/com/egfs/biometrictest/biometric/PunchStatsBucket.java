@@ -0,0 +1,12 @@
+package com.egfs.biometrictest.biometric;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Punches counted in one minute, hour or day starting at {@code start},
+ * in total and by verify mode and in/out mode (-1 when the device sent none).
+ */
+public record PunchStatsBucket(Instant start, long total, Map<Integer, Long> verifyModes,
+                               Map<Integer, Long> inOutModes) {
+}
@@ -0,0 +1,276 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Punch counts per minute, hour and day, by verify mode and in/out mode.
+ * Ingest only bumps in-memory counters; every {@code zkteco.stats.flush-seconds}
+ * they are added to the {@code punch_stats} rollup table in one batch. Reads
+ * combine the table with the counters not flushed yet, so dashboards never
+ * scan {@code punch_logs}. Counters of the last interval are lost if the
+ * process dies before a flush.
+ */
+@Service
+public class PunchStatsService {
+    private static final Logger log = LoggerFactory.getLogger(PunchStatsService.class);
+
+    /** Largest number of buckets one query may span. */
+    static final int MAX_BUCKETS = 10_000;
+    /** Stored when the device sent no mode. */
+    private static final int UNKNOWN_MODE = -1;
+
+    private static final String UPSERT_POSTGRES = """
+            insert into punch_stats (granularity, bucket_start, verify_mode, in_out_mode, punch_count)
+            values (?, ?, ?, ?, ?)
+            on conflict (granularity, bucket_start, verify_mode, in_out_mode)
+            do update set punch_count = punch_stats.punch_count + excluded.punch_count""";
+    private static final String UPSERT_MERGE = """
+            merge into punch_stats t
+            using (values (cast(? as varchar(8)), cast(? as timestamp(6) with time zone),
+                           cast(? as integer), cast(? as integer), cast(? as bigint)))
+                  s (granularity, bucket_start, verify_mode, in_out_mode, punch_count)
+            on t.granularity = s.granularity and t.bucket_start = s.bucket_start
+               and t.verify_mode = s.verify_mode and t.in_out_mode = s.in_out_mode
+            when matched then update set punch_count = t.punch_count + s.punch_count
+            when not matched then insert (granularity, bucket_start, verify_mode, in_out_mode, punch_count)
+                 values (s.granularity, s.bucket_start, s.verify_mode, s.in_out_mode, s.punch_count)""";
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+    }
+
+    private record Counter(Granularity granularity, Instant start, int verifyMode, int inOutMode) {
+    }
+
+    private final ZktecoProperties.Stats config;
+    private final JdbcTemplate jdbc;
+    private final PunchBroadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final ZoneId zone;
+    /** Guards swapping {@link #pending}: recorders share it, the flush takes it alone. */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    /** Held for a whole flush, and by readers, so a batch is never counted twice or not at all. */
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "punch-stats");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Map<Counter, LongAdder> pending = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    public PunchStatsService(ZktecoProperties props, JdbcTemplate jdbc, PunchBroadcaster broadcaster,
+                             ObjectMapper objectMapper) {
+        this.config = props.getStats();
+        this.jdbc = jdbc;
+        this.broadcaster = broadcaster;
+        this.objectMapper = objectMapper;
+        this.zone = props.getAttendance().toZoneId();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long flush = Math.max(1, config.getFlushSeconds());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flush, flush, TimeUnit.SECONDS);
+        long sse = Math.max(1, config.getSseIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::broadcastCurrent, sse, sse, TimeUnit.SECONDS);
+    }
+
+    /** Counts committed punches; called once per ingested batch. */
+    public void record(List<PunchLog> punches) {
+        swapLock.readLock().lock();
+        try {
+            Map<Counter, LongAdder> counters = pending;
+            for (PunchLog punch : punches) {
+                int verifyMode = punch.getVerifyMode() != null ? punch.getVerifyMode() : UNKNOWN_MODE;
+                int inOutMode = punch.getInOutMode() != null ? punch.getInOutMode() : UNKNOWN_MODE;
+                for (Granularity granularity : Granularity.values()) {
+                    Counter counter = new Counter(granularity, bucketOf(punch.getPunchTime().toInstant(), granularity),
+                            verifyMode, inOutMode);
+                    counters.computeIfAbsent(counter, c -> new LongAdder()).increment();
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the pending counters to {@code punch_stats}. On failure they are
+     * kept and retried with the next flush.
+     *
+     * @return number of rows upserted
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            Map<Counter, LongAdder> flushing;
+            swapLock.writeLock().lock();
+            try {
+                flushing = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            if (flushing.isEmpty()) {
+                return 0;
+            }
+            List<Object[]> rows = new ArrayList<>(flushing.size());
+            flushing.forEach((c, count) -> rows.add(new Object[]{c.granularity().name(),
+                    c.start().atOffset(ZoneOffset.UTC), c.verifyMode(), c.inOutMode(), count.sum()}));
+            try {
+                jdbc.batchUpdate(isPostgres() ? UPSERT_POSTGRES : UPSERT_MERGE, rows);
+            } catch (RuntimeException e) {
+                swapLock.readLock().lock();
+                try {
+                    flushing.forEach((c, count) -> pending.computeIfAbsent(c, k -> new LongAdder()).add(count.sum()));
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+                throw e;
+            }
+            return rows.size();
+        }
+    }
+
+    /**
+     * Non-empty buckets starting in {@code [from, to)}, oldest first.
+     *
+     * @throws IllegalArgumentException if the range spans more than {@link #MAX_BUCKETS} buckets
+     */
+    public List<PunchStatsBucket> query(Granularity granularity, Instant from, Instant to) {
+        Instant start = bucketOf(from, granularity);
+        if (Duration.between(start, to).compareTo(granularity.getUnit().getDuration().multipliedBy(MAX_BUCKETS)) > 0) {
+            throw new IllegalArgumentException("Range too large for " + granularity + " buckets");
+        }
+        Map<Instant, BucketBuilder> buckets = new TreeMap<>();
+        synchronized (flushLock) {
+            jdbc.query("""
+                    select bucket_start, verify_mode, in_out_mode, punch_count from punch_stats
+                    where granularity = ? and bucket_start >= ? and bucket_start < ?""",
+                    rs -> {
+                        Instant bucket = rs.getObject(1, OffsetDateTime.class).toInstant();
+                        buckets.computeIfAbsent(bucket, BucketBuilder::new).add(rs.getInt(2), rs.getInt(3), rs.getLong(4));
+                    },
+                    granularity.name(), start.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+            pending.forEach((c, count) -> {
+                if (c.granularity() == granularity && !c.start().isBefore(start) && c.start().isBefore(to)) {
+                    buckets.computeIfAbsent(c.start(), BucketBuilder::new).add(c.verifyMode(), c.inOutMode(), count.sum());
+                }
+            });
+        }
+        return buckets.values().stream().map(BucketBuilder::build).toList();
+    }
+
+    /** The buckets of the current minute, hour and day; empty buckets have zero counts. */
+    public Map<String, PunchStatsBucket> current() {
+        Instant now = Instant.now();
+        Map<String, PunchStatsBucket> current = new LinkedHashMap<>();
+        for (Granularity granularity : Granularity.values()) {
+            Instant start = bucketOf(now, granularity);
+            List<PunchStatsBucket> buckets = query(granularity, start, start.plus(1, granularity.getUnit()));
+            current.put(granularity.name().toLowerCase(),
+                    buckets.isEmpty() ? new BucketBuilder(start).build() : buckets.get(0));
+        }
+        return current;
+    }
+
+    /** Start of the bucket holding {@code time}; hours and days follow the attendance zone. */
+    Instant bucketOf(Instant time, Granularity granularity) {
+        return time.atZone(zone).truncatedTo(granularity.getUnit()).toInstant();
+    }
+
+    private void broadcastCurrent() {
+        if (broadcaster.getSubscriberCount() == 0) {
+            return;
+        }
+        try {
+            broadcaster.broadcast("stats", objectMapper.writeValueAsString(current()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not send punch stats: {}", e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            int rows = flush();
+            log.debug("Flushed {} punch stats counters", rows);
+        } catch (RuntimeException e) {
+            log.warn("Punch stats flush failed, retrying next interval: {}", e.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = jdbc.execute((Connection c) -> "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName()));
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+
+    private static class BucketBuilder {
+        private final Instant start;
+        private final Map<Integer, Long> verifyModes = new TreeMap<>();
+        private final Map<Integer, Long> inOutModes = new TreeMap<>();
+        private long total;
+
+        BucketBuilder(Instant start) {
+            this.start = start;
+        }
+
+        void add(int verifyMode, int inOutMode, long count) {
+            total += count;
+            verifyModes.merge(verifyMode, count, Long::sum);
+            inOutModes.merge(inOutMode, count, Long::sum);
+        }
+
+        PunchStatsBucket build() {
+            return new PunchStatsBucket(start, total, verifyModes, inOutModes);
+        }
+    }
+}
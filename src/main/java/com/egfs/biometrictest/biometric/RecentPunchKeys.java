@@ -0,0 +1,46 @@
+package com.egfs.biometrictest.biometric;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Natural keys (device, user, time, verify and in/out mode) of the punches
+ * ingested last, least recently seen evicted first. A punch read again while
+ * its key is remembered is dropped before it is streamed or written; older
+ * ones are still caught by the unique key of {@code punch_logs}.
+ */
+final class RecentPunchKeys {
+
+    private record Key(String deviceId, String userId, Instant time, Integer verifyMode, Integer inOutMode) {
+        static Key of(PunchLog punch) {
+            return new Key(punch.getDeviceId(), punch.getUserId(), punch.getPunchTime().toInstant(),
+                    punch.getVerifyMode(), punch.getInOutMode());
+        }
+    }
+
+    private final Map<Key, Boolean> keys;
+
+    RecentPunchKeys(int maxSize) {
+        this.keys = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** Remembers the key of {@code punch}; false if it was remembered already. */
+    synchronized boolean add(PunchLog punch) {
+        return keys.put(Key.of(punch), Boolean.TRUE) == null;
+    }
+
+    /** Forgets the key of a punch that was not stored after all, so reading it again is not dropped. */
+    synchronized void remove(PunchLog punch) {
+        keys.remove(Key.of(punch));
+    }
+
+    synchronized int size() {
+        return keys.size();
+    }
+}
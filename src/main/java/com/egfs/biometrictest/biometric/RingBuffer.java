@@ -0,0 +1,89 @@
+package com.egfs.biometrictest.biometric;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer ring without locks, read by consumer stages that
+ * each track their own sequence. Producers claim a sequence with a CAS and
+ * publish by writing the slot, then its sequence; a consumer sees sequence
+ * {@code n} once {@link #get(long)} returns non-null, so a stage a whole
+ * ring ahead of the last one never reads an old element. The last stage
+ * {@link #release}s slots, which is what frees room for producers: a full
+ * ring makes {@link #put} wait, so a slow last stage pushes back on them.
+ */
+final class RingBuffer<E> {
+    private static final long FULL_WAIT_NANOS = 100_000;
+
+    private final AtomicReferenceArray<E> slots;
+    /** Sequence last published in each slot. */
+    private final AtomicLongArray published;
+    private final int mask;
+    /** Highest sequence claimed by a producer. */
+    private final AtomicLong claimed = new AtomicLong(-1);
+    /** Highest sequence released by the last stage. */
+    private volatile long released = -1;
+
+    /** @param capacity rounded up to a power of two */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+    }
+
+    /** Publishes {@code element}, waiting while the ring is full; returns its sequence. */
+    long put(E element) {
+        long sequence;
+        while (true) {
+            long current = claimed.get();
+            sequence = current + 1;
+            if (sequence - slots.length() > released) {
+                LockSupport.parkNanos(FULL_WAIT_NANOS);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for room in the ingest ring");
+                }
+            } else if (claimed.compareAndSet(current, sequence)) {
+                break;
+            }
+        }
+        slots.set(index(sequence), element);
+        published.set(index(sequence), sequence);
+        return sequence;
+    }
+
+    /** The element at {@code sequence}, or null while it is not published yet. */
+    E get(long sequence) {
+        return published.get(index(sequence)) == sequence ? slots.get(index(sequence)) : null;
+    }
+
+    /** Frees every slot up to and including {@code sequence}; called by the last stage only. */
+    void release(long sequence) {
+        for (long s = released + 1; s <= sequence; s++) {
+            slots.set(index(s), null);
+        }
+        released = sequence;
+    }
+
+    long getClaimed() {
+        return claimed.get();
+    }
+
+    long getReleased() {
+        return released;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
@@ -0,0 +1,17 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * One event queued for SSE subscribers. {@code key} groups events that
+ * supersede each other when a queue is coalesced; heartbeats have no id
+ * and no name.
+ */
+record SseEvent(Long id, String name, String data, String key) {
+
+    static SseEvent heartbeat() {
+        return new SseEvent(null, null, "heartbeat", null);
+    }
+
+    boolean isHeartbeat() {
+        return name == null;
+    }
+}
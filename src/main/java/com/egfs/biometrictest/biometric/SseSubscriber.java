@@ -0,0 +1,171 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Sse.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One realtime client: a bounded queue of pending events that is drained
+ * onto its {@link SseEmitter} by a shared dispatch executor, never by the
+ * thread publishing the events. At most one drain runs per subscriber, so
+ * events keep their order.
+ */
+class SseSubscriber {
+    private static final Logger log = LoggerFactory.getLogger(SseSubscriber.class);
+
+    /** Events sent per drain before yielding the dispatch thread to other subscribers. */
+    private static final int DRAIN_BATCH = 64;
+
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Executor dispatcher;
+    private final Consumer<SseSubscriber> onClose;
+    private final Deque<SseEvent> queue = new ArrayDeque<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private long dropped;
+
+    SseSubscriber(SseEmitter emitter, int capacity, OverflowPolicy policy, Executor dispatcher,
+                  Consumer<SseSubscriber> onClose) {
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.dispatcher = dispatcher;
+        this.onClose = onClose;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Queues an event without blocking and schedules a drain.
+     *
+     * @return number of events dropped to make room
+     */
+    int offer(SseEvent event) {
+        if (closed.get()) {
+            return 0;
+        }
+        int droppedNow = 0;
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                if (event.isHeartbeat()) {
+                    // A full queue already has something to send
+                    return 0;
+                }
+                switch (policy) {
+                    case DISCONNECT -> {
+                        log.info("Realtime subscriber fell {} events behind, disconnecting", queue.size());
+                        close();
+                        return 0;
+                    }
+                    case COALESCE -> {
+                        if (!removeSameKey(event.key())) {
+                            queue.pollFirst();
+                        }
+                    }
+                    case DROP_OLDEST -> queue.pollFirst();
+                }
+                droppedNow = 1;
+                dropped++;
+            }
+            queue.addLast(event);
+        }
+        schedule();
+        return droppedNow;
+    }
+
+    /** Removes the queued event superseded by a newer one with the same key. */
+    private boolean removeSameKey(String key) {
+        if (key == null) {
+            return false;
+        }
+        for (Iterator<SseEvent> it = queue.iterator(); it.hasNext(); ) {
+            if (key.equals(it.next().key())) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    long getDropped() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        for (int sent = 0; sent < DRAIN_BATCH; sent++) {
+            SseEvent event;
+            synchronized (queue) {
+                event = queue.pollFirst();
+                if (event == null) {
+                    draining.set(false);
+                    return;
+                }
+            }
+            if (closed.get()) {
+                return;
+            }
+            try {
+                send(event);
+            } catch (Exception e) {
+                // Client went away; the heartbeat makes sure this is noticed even without punches
+                log.debug("Realtime subscriber disconnected: {}", e.getMessage());
+                close();
+                return;
+            }
+        }
+        draining.set(false);
+        schedule();
+    }
+
+    private void send(SseEvent event) throws Exception {
+        if (event.isHeartbeat()) {
+            emitter.send(SseEmitter.event().comment(event.data()));
+        } else if (event.id() != null) {
+            emitter.send(SseEmitter.event().id(String.valueOf(event.id())).name(event.name()).data(event.data()));
+        } else {
+            emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            synchronized (queue) {
+                queue.clear();
+            }
+            try {
+                emitter.complete();
+            } catch (Exception ignore) { }
+            onClose.accept(this);
+        }
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+}
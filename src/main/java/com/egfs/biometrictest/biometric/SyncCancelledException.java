@@ -0,0 +1,12 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Thrown at a chunk boundary when the {@link SyncProgress} of a sync was cancelled.
+ */
+public class SyncCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SyncCancelledException(String message) {
+        super(message);
+    }
+}
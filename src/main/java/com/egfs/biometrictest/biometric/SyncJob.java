@@ -0,0 +1,149 @@
+package com.egfs.biometrictest.biometric;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * One background sync of one device or of the whole fleet, or one template
+ * push, started through {@link SyncJobService}. Progress is updated by the
+ * syncs at every committed chunk and read from request threads, so every
+ * field is safe to read at any time. A fleet job adds up the progress of all
+ * its devices.
+ */
+public class SyncJob implements SyncProgress {
+
+    public enum Type { PUNCHES, TEMPLATES, TEMPLATE_PUSH }
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Type type;
+    private final String deviceId;
+    private final String resumedFrom;
+    private final Function<SyncProgress, List<DeviceSyncResult>> sync;
+    private final Instant createdAt = Instant.now();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile long total = -1;
+    private volatile boolean cancelRequested;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String error;
+    private volatile List<DeviceSyncResult> results = List.of();
+
+    SyncJob(Type type, String deviceId, String resumedFrom, Function<SyncProgress, List<DeviceSyncResult>> sync) {
+        this.type = type;
+        this.deviceId = deviceId;
+        this.resumedFrom = resumedFrom;
+        this.sync = sync;
+    }
+
+    /** The work of this job, run again by a job resuming it. */
+    Function<SyncProgress, List<DeviceSyncResult>> getSync() {
+        return sync;
+    }
+
+    /** Moves a queued job to running; false if it was cancelled while queued. */
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = Instant.now();
+        startNanos = System.nanoTime();
+        return true;
+    }
+
+    /** Ends the job; it succeeded only if every device did. */
+    synchronized void finish(List<DeviceSyncResult> results) {
+        endNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        this.results = List.copyOf(results);
+        List<DeviceSyncResult> failed = results.stream().filter(r -> !r.success()).toList();
+        if (failed.isEmpty()) {
+            status = Status.SUCCEEDED;
+        } else {
+            status = cancelRequested ? Status.CANCELLED : Status.FAILED;
+            error = results.size() == 1 ? failed.get(0).error()
+                    : failed.size() + " of " + results.size() + " devices failed";
+        }
+    }
+
+    /** Asks a running job to stop at its next chunk; a queued job is cancelled at once. */
+    synchronized void cancel() {
+        if (status.isFinished()) {
+            return;
+        }
+        cancelRequested = true;
+        if (status == Status.QUEUED) {
+            status = Status.CANCELLED;
+            finishedAt = Instant.now();
+        }
+    }
+
+    /** Adds the records one device expects to read to the total. */
+    @Override
+    public synchronized void onTotal(long records) {
+        total = Math.max(0, total) + records;
+    }
+
+    @Override
+    public void onRecords(int records) {
+        processed.addAndGet(records);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    public String getId() { return id; }
+    public Type getType() { return type; }
+    /** The synced device, the source device of a push, or null for a fleet sync. */
+    public String getDeviceId() { return deviceId; }
+    /** Id of the failed or cancelled job this one continues, or null. */
+    public String getResumedFrom() { return resumedFrom; }
+    public Status getStatus() { return status; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+    /** Outcome per device once finished, one entry for a single-device sync. */
+    public List<DeviceSyncResult> getResults() { return results; }
+
+    /** Records read and committed so far. */
+    public long getProcessed() { return processed.get(); }
+
+    /** Records the job expects to read, or -1 when the device does not tell (templates). */
+    public long getTotal() { return total; }
+
+    /** Share of {@link #getTotal()} done, 0-100, or -1 when the total is unknown. */
+    public int getPercent() {
+        long expected = total;
+        if (expected < 0) {
+            return -1;
+        }
+        return expected == 0 ? 100 : (int) Math.min(100, getProcessed() * 100 / expected);
+    }
+
+    /** Average throughput since the job started. */
+    public double getRowsPerSecond() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long end = finishedAt != null && endNanos != 0 ? endNanos : System.nanoTime();
+        double seconds = (end - startNanos) / 1e9;
+        return seconds > 0 ? getProcessed() / seconds : 0;
+    }
+}
@@ -0,0 +1,233 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs punch and template syncs, of one device or of the fleet, and template
+ * pushes as background jobs, so a request only starts one and gets its id
+ * back. Syncs commit in chunks with their checkpoint
+ * (the punch cursor, or the stored templates themselves), which is what makes
+ * cancelling safe and resuming cheap: a resumed job is a new run that skips
+ * whatever its predecessor committed. Jobs live in memory; the last
+ * {@code zkteco.jobs.history-size} finished ones are kept.
+ */
+@Service
+public class SyncJobService {
+    private static final Logger log = LoggerFactory.getLogger(SyncJobService.class);
+
+    private final DeviceRegistry devices;
+    private final PunchService punchService;
+    private final ZktecoSyncService templateService;
+    private final FleetSyncService fleetSyncService;
+    private final ZktecoProperties.Jobs config;
+    private final Map<String, SyncJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sync-job-progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SyncJobService(ZktecoProperties props, DeviceRegistry devices, PunchService punchService,
+                          ZktecoSyncService templateService, FleetSyncService fleetSyncService) {
+        this.devices = devices;
+        this.punchService = punchService;
+        this.templateService = templateService;
+        this.fleetSyncService = fleetSyncService;
+        this.config = props.getJobs();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getThreads()), r -> {
+            Thread t = new Thread(r, "sync-job-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a sync of {@code device}, or returns the job already queued or
+     * running for the same device and type.
+     */
+    public SyncJob submit(SyncJob.Type type, Device device) {
+        Function<SyncProgress, List<DeviceSyncResult>> sync = switch (type) {
+            case PUNCHES -> progress -> List.of(punchService.syncPunches(device, progress));
+            case TEMPLATES -> progress -> List.of(templateService.syncTemplates(device, progress));
+            case TEMPLATE_PUSH -> throw new IllegalArgumentException("A template push needs its targets");
+        };
+        return submit(type, device.getId(), true, null, sync);
+    }
+
+    /**
+     * Starts a sync of every device in parallel, see {@link FleetSyncService},
+     * or returns the fleet job of the same type already queued or running.
+     */
+    public SyncJob submitFleet(SyncJob.Type type) {
+        Function<SyncProgress, List<DeviceSyncResult>> sync = switch (type) {
+            case PUNCHES -> fleetSyncService::syncPunches;
+            case TEMPLATES -> fleetSyncService::syncTemplates;
+            case TEMPLATE_PUSH -> throw new IllegalArgumentException("A template push needs its targets");
+        };
+        return submit(type, null, true, null, sync);
+    }
+
+    /**
+     * Starts pushing the stored templates of {@code source} to {@code targets},
+     * see {@link FleetSyncService#pushTemplates}. Pushes are never merged with
+     * a running one, as their targets and users may differ.
+     */
+    public SyncJob submitPush(Device source, List<Device> targets, Collection<String> userIds) {
+        List<String> users = userIds == null ? null : List.copyOf(userIds);
+        return submit(SyncJob.Type.TEMPLATE_PUSH, source.getId(), false, null,
+                progress -> fleetSyncService.pushTemplates(source, targets, users, progress));
+    }
+
+    public Optional<SyncJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** All kept jobs, newest first. */
+    public List<SyncJob> list() {
+        return jobs.values().stream().sorted(Comparator.comparing(SyncJob::getCreatedAt).reversed()).toList();
+    }
+
+    /** Cancels a job; a running one stops after its current chunk. */
+    public Optional<SyncJob> cancel(String id) {
+        Optional<SyncJob> job = find(id);
+        job.ifPresent(SyncJob::cancel);
+        return job;
+    }
+
+    /**
+     * Continues a failed or cancelled job from its last committed chunk, as a
+     * new job.
+     *
+     * @throws IllegalStateException if the job has not failed or been cancelled
+     */
+    public Optional<SyncJob> resume(String id) {
+        return find(id).map(job -> {
+            if (job.getStatus() != SyncJob.Status.FAILED && job.getStatus() != SyncJob.Status.CANCELLED) {
+                throw new IllegalStateException("Job " + id + " is " + job.getStatus() + ", only failed or cancelled jobs resume");
+            }
+            if (job.getDeviceId() != null && devices.find(job.getDeviceId()).isEmpty()) {
+                throw new IllegalStateException("Device " + job.getDeviceId() + " is no longer configured");
+            }
+            return submit(job.getType(), job.getDeviceId(), job.getType() != SyncJob.Type.TEMPLATE_PUSH,
+                    job.getId(), job.getSync());
+        });
+    }
+
+    /**
+     * Streams a job as {@code progress} events every
+     * {@code zkteco.jobs.progress-interval-ms}, ending with one {@code done}
+     * event once it finished.
+     */
+    public SseEmitter stream(SyncJob job) {
+        SseEmitter emitter = new SseEmitter(0L);
+        if (!sendProgress(emitter, job)) {
+            return emitter;
+        }
+        long interval = Math.max(100, config.getProgressIntervalMs());
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        task.set(progress.scheduleAtFixedRate(() -> {
+            if (!sendProgress(emitter, job)) {
+                task.get().cancel(false);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> task.get().cancel(false));
+        emitter.onError(e -> task.get().cancel(false));
+        return emitter;
+    }
+
+    /** Sends the job's state; false once the stream is over. */
+    private static boolean sendProgress(SseEmitter emitter, SyncJob job) {
+        boolean finished = job.getStatus().isFinished();
+        try {
+            emitter.send(SseEmitter.event().name(finished ? "done" : "progress").data(job));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            return false;
+        }
+        if (finished) {
+            emitter.complete();
+        }
+        return !finished;
+    }
+
+    /**
+     * Queues a job; with {@code merge} an unfinished job of the same type and
+     * device (or of the fleet, for a null {@code deviceId}) is returned instead.
+     */
+    private synchronized SyncJob submit(SyncJob.Type type, String deviceId, boolean merge, String resumedFrom,
+                                        Function<SyncProgress, List<DeviceSyncResult>> sync) {
+        if (merge) {
+            for (SyncJob job : jobs.values()) {
+                if (job.getType() == type && Objects.equals(job.getDeviceId(), deviceId) && !job.getStatus().isFinished()) {
+                    return job;
+                }
+            }
+        }
+        SyncJob job = new SyncJob(type, deviceId, resumedFrom, sync);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job));
+        prune();
+        return job;
+    }
+
+    private void run(SyncJob job) {
+        if (!job.start()) {
+            return;
+        }
+        String target = job.getDeviceId() != null ? job.getDeviceId() : "all devices";
+        log.info("Sync job {} started: {} of {}", job.getId(), job.getType(), target);
+        long start = System.nanoTime();
+        List<DeviceSyncResult> results;
+        try {
+            results = job.getSync().apply(job);
+        } catch (RuntimeException e) {
+            results = List.of(DeviceSyncResult.failed(target, 0, start, e.getMessage()));
+        }
+        job.finish(results);
+        log.info("Sync job {} {}: {} records in {} ms ({} rows/s)", job.getId(), job.getStatus(),
+                job.getProcessed(), (System.nanoTime() - start) / 1_000_000, Math.round(job.getRowsPerSecond()));
+    }
+
+    /** Drops the oldest finished jobs beyond the history size. */
+    private void prune() {
+        List<SyncJob> finished = jobs.values().stream()
+                .filter(job -> job.getStatus().isFinished())
+                .sorted(Comparator.comparing(SyncJob::getCreatedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - Math.max(0, config.getHistorySize()); i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(SyncJob::cancel);
+        progress.shutdownNow();
+        executor.shutdown();
+    }
+}
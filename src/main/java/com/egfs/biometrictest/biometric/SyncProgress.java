@@ -0,0 +1,23 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Receives the progress of one device sync and tells it when to stop.
+ * Syncs report and check once per committed chunk, so a cancelled sync keeps
+ * every chunk committed before it stopped and the next run resumes from there.
+ */
+public interface SyncProgress {
+    SyncProgress NONE = new SyncProgress() {
+    };
+
+    /** Number of records the sync expects to read, once known. */
+    default void onTotal(long records) {
+    }
+
+    /** {@code records} more records were read and committed. */
+    default void onRecords(int records) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
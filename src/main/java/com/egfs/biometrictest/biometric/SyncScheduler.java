@@ -0,0 +1,178 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Syncs punches and templates of every device in the background when
+ * {@code zkteco.scheduler.enabled} is set. Punch syncs follow an
+ * {@link AdaptiveInterval} per device; template syncs run every
+ * {@code template-interval-minutes}. Every delay is jittered, so devices
+ * drift apart instead of hitting the database together.
+ * <p>
+ * A device's next sync is scheduled only when its previous one finished. A
+ * scheduled sync that finds the device held by another sync (see
+ * {@link DeviceSyncGuard}) retries after the minimum interval instead of
+ * waiting. At most {@code threads} devices sync at once.
+ */
+@Component
+public class SyncScheduler {
+    private static final Logger log = LoggerFactory.getLogger(SyncScheduler.class);
+
+    private final ZktecoProperties.Scheduler config;
+    private final ZoneId zone;
+    private final DeviceRegistry devices;
+    private final PunchService punchService;
+    private final ZktecoSyncService templateService;
+    private final DeviceSyncGuard syncGuard;
+    private final Map<String, DeviceSchedule> schedules = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public SyncScheduler(ZktecoProperties props, DeviceRegistry devices, PunchService punchService,
+                         ZktecoSyncService templateService, DeviceSyncGuard syncGuard) {
+        this.config = props.getScheduler();
+        this.zone = props.getAttendance().toZoneId();
+        this.devices = devices;
+        this.punchService = punchService;
+        this.templateService = templateService;
+        this.syncGuard = syncGuard;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, config.getThreads()), r -> {
+            Thread t = new Thread(r, "sync-scheduler-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Background sync scheduler disabled");
+            return;
+        }
+        long spread = Math.max(1, config.getBaseIntervalSeconds());
+        for (Device device : devices.getAll()) {
+            DeviceSchedule schedule = new DeviceSchedule(device, new AdaptiveInterval(config, zone));
+            schedules.put(device.getId(), schedule);
+            // First syncs are spread over one base interval
+            schedulePunches(schedule, Duration.ofSeconds(config.getInitialDelaySeconds()
+                    + ThreadLocalRandom.current().nextLong(spread)));
+            if (config.getTemplateIntervalMinutes() > 0) {
+                scheduleTemplates(schedule, Duration.ofSeconds(config.getInitialDelaySeconds()
+                        + ThreadLocalRandom.current().nextLong(spread)));
+            }
+        }
+        log.info("Background sync scheduler started for {} devices", schedules.size());
+    }
+
+    /** Interval, peak and failure state and the next syncs of each device. */
+    public List<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (DeviceSchedule schedule : schedules.values()) {
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("deviceId", schedule.device.getId());
+            device.put("nextPunchSync", schedule.nextPunchSync);
+            device.put("nextTemplateSync", schedule.nextTemplateSync);
+            device.put("peak", schedule.peak);
+            device.put("failures", schedule.failures);
+            device.put("lastPunchSync", schedule.lastPunchSync);
+            status.add(device);
+        }
+        return status;
+    }
+
+    private void runPunches(DeviceSchedule schedule) {
+        Duration delay;
+        try {
+            delay = syncGuard.tryRun(schedule.device, () -> {
+                DeviceSyncResult result = punchService.syncPunches(schedule.device);
+                schedule.lastPunchSync = result;
+                Duration next = schedule.interval.next(result, Instant.now());
+                schedule.peak = schedule.interval.isPeak();
+                schedule.failures = schedule.interval.getFailures();
+                return next;
+            }).orElse(Duration.ofSeconds(config.getMinIntervalSeconds()));
+        } catch (RuntimeException e) {
+            log.error("Scheduled punch sync of {} failed", schedule.device, e);
+            delay = Duration.ofSeconds(config.getMaxIntervalSeconds());
+        }
+        schedulePunches(schedule, jittered(delay));
+    }
+
+    private void runTemplates(DeviceSchedule schedule) {
+        Duration delay;
+        try {
+            delay = syncGuard.tryRun(schedule.device, () -> {
+                templateService.syncTemplates(schedule.device);
+                return Duration.ofMinutes(config.getTemplateIntervalMinutes());
+            }).orElse(Duration.ofSeconds(config.getMinIntervalSeconds()));
+        } catch (RuntimeException e) {
+            log.error("Scheduled template sync of {} failed", schedule.device, e);
+            delay = Duration.ofMinutes(config.getTemplateIntervalMinutes());
+        }
+        scheduleTemplates(schedule, jittered(delay));
+    }
+
+    private void schedulePunches(DeviceSchedule schedule, Duration delay) {
+        schedule.nextPunchSync = Instant.now().plus(delay);
+        submit(() -> runPunches(schedule), delay);
+    }
+
+    private void scheduleTemplates(DeviceSchedule schedule, Duration delay) {
+        schedule.nextTemplateSync = Instant.now().plus(delay);
+        submit(() -> runTemplates(schedule), delay);
+    }
+
+    private void submit(Runnable task, Duration delay) {
+        if (!executor.isShutdown()) {
+            executor.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** {@code delay} varied randomly by up to {@code jitter} either way. */
+    private Duration jittered(Duration delay) {
+        double jitter = Math.max(0, Math.min(1, config.getJitter()));
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.round(delay.toMillis() * factor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class DeviceSchedule {
+        private final Device device;
+        private final AdaptiveInterval interval;
+        private volatile Instant nextPunchSync;
+        private volatile Instant nextTemplateSync;
+        private volatile DeviceSyncResult lastPunchSync;
+        private volatile boolean peak;
+        private volatile int failures;
+
+        DeviceSchedule(Device device, AdaptiveInterval interval) {
+            this.device = device;
+            this.interval = interval;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.egfs.biometrictest.biometric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Diff between the templates read from a device and those already stored,
+ * keyed by {@code (user_id, finger_index)} and compared by content hash.
+ * Templates that did not change produce no write at all. Pending inserts
+ * and updates can be written in chunks while the device is still being read;
+ * {@link #markWritten()} then releases them.
+ */
+public class TemplateChangeSet {
+    private final Map<String, TemplateDigest> stored = new HashMap<>();
+    private final List<BiometricTemplate> inserts = new ArrayList<>();
+    private final Map<Long, BiometricTemplate> updates = new HashMap<>();
+    private final String deviceId;
+    private int unchanged;
+    private int inserted;
+    private int updated;
+
+    public TemplateChangeSet(String deviceId, List<TemplateDigest> existing) {
+        this.deviceId = deviceId;
+        for (TemplateDigest digest : existing) {
+            stored.put(key(digest.getUserId(), digest.getFingerIndex()), digest);
+        }
+    }
+
+    /** Records one template read from the device. */
+    public void offer(String userId, String name, boolean enabled, int fingerIndex, String templateData) {
+        TemplateDigest digest = stored.remove(key(userId, fingerIndex));
+        BiometricTemplate template = new BiometricTemplate();
+        template.setDeviceId(deviceId);
+        template.setUserId(userId);
+        template.setName(name);
+        template.setEnabled(enabled);
+        template.setFingerIndex(fingerIndex);
+        template.setTemplateData(templateData);
+        template.setAlgorithmVersion("10"); // adjust if needed
+
+        if (digest == null) {
+            inserts.add(template);
+        } else if (!Objects.equals(digest.getTemplateHash(), template.getTemplateHash())
+                || !Objects.equals(digest.getName(), name)
+                || !Objects.equals(digest.getEnabled(), enabled)) {
+            updates.put(digest.getId(), template);
+        } else {
+            unchanged++;
+        }
+    }
+
+    public List<BiometricTemplate> getInserts() { return inserts; }
+
+    /** New values for changed templates, keyed by the id of the stored row. */
+    public Map<Long, BiometricTemplate> getUpdates() { return updates; }
+
+    /** Ids of stored templates that were not found on the device. Only meaningful after a complete read. */
+    public List<Long> getDeletedIds() {
+        return stored.values().stream().map(TemplateDigest::getId).toList();
+    }
+
+    public int getUnchanged() { return unchanged; }
+
+    /** Inserts and updates not written yet. */
+    public int getPendingCount() { return inserts.size() + updates.size(); }
+
+    /** Counts the pending inserts and updates as written and forgets them. */
+    public void markWritten() {
+        inserted += inserts.size();
+        updated += updates.size();
+        inserts.clear();
+        updates.clear();
+    }
+
+    /** Inserts so far, written or pending. */
+    public int getInsertedCount() { return inserted + inserts.size(); }
+
+    /** Updates so far, written or pending. */
+    public int getUpdatedCount() { return updated + updates.size(); }
+
+    /** Number of templates offered from the device. */
+    public int size() { return getInsertedCount() + getUpdatedCount() + unchanged; }
+
+    private static String key(String userId, Integer fingerIndex) {
+        return userId + '#' + fingerIndex;
+    }
+}
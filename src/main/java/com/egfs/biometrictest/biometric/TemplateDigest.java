@@ -0,0 +1,14 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Projection of a stored template without its data, used to diff a device
+ * download against the database.
+ */
+public interface TemplateDigest {
+    Long getId();
+    String getUserId();
+    Integer getFingerIndex();
+    String getTemplateHash();
+    String getName();
+    Boolean getEnabled();
+}
@@ -0,0 +1,127 @@
+package com.egfs.biometrictest.biometric;
+
+import jakarta.persistence.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Data of one {@link BiometricTemplate}, kept in its own table so that loading
+ * templates (or users) never reads template bytes.
+ * <p>
+ * The Base64 text returned by {@code GetUserTmpExStr} is stored decoded, and
+ * deflated when that makes it smaller. Text that would not survive a
+ * decode/encode round trip unchanged is stored as UTF-8, so
+ * {@link #getTemplateData()} always returns exactly what the device sent.
+ */
+@Entity
+@Table(name = "biometric_template_payloads")
+public class TemplatePayload {
+    public static final short ENCODING_BINARY = 0;  // Base64 decoded
+    public static final short ENCODING_DEFLATE = 1; // Base64 decoded, then deflated
+    public static final short ENCODING_TEXT = 2;    // UTF-8 of the original text
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "biometric_template_payloads_seq")
+    @SequenceGenerator(name = "biometric_template_payloads_seq", sequenceName = "biometric_template_payloads_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "encoding", nullable = false)
+    private short encoding;
+
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    protected TemplatePayload() {
+    }
+
+    public TemplatePayload(String templateData) {
+        setTemplateData(templateData);
+    }
+
+    public Long getId() { return id; }
+    public short getEncoding() { return encoding; }
+    public byte[] getData() { return data; }
+
+    public String getTemplateData() {
+        return decode(encoding, data);
+    }
+
+    public void setTemplateData(String templateData) {
+        byte[] binary = decodeBase64(templateData);
+        if (binary == null) {
+            this.encoding = ENCODING_TEXT;
+            this.data = templateData.getBytes(StandardCharsets.UTF_8);
+            return;
+        }
+        byte[] deflated = deflate(binary);
+        if (deflated.length < binary.length) {
+            this.encoding = ENCODING_DEFLATE;
+            this.data = deflated;
+        } else {
+            this.encoding = ENCODING_BINARY;
+            this.data = binary;
+        }
+    }
+
+    /** Original template text of stored {@code data}. */
+    public static String decode(short encoding, byte[] data) {
+        return switch (encoding) {
+            case ENCODING_BINARY -> Base64.getEncoder().encodeToString(data);
+            case ENCODING_DEFLATE -> Base64.getEncoder().encodeToString(inflate(data));
+            case ENCODING_TEXT -> new String(data, StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown template encoding " + encoding);
+        };
+    }
+
+    /** Decoded bytes of {@code text}, or null unless it encodes back to exactly the same text. */
+    private static byte[] decodeBase64(String text) {
+        try {
+            byte[] binary = Base64.getDecoder().decode(text);
+            return Base64.getEncoder().encodeToString(binary).equals(text) ? binary : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 2);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated template data");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt template data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
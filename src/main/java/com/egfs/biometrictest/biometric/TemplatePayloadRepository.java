@@ -0,0 +1,6 @@
+package com.egfs.biometrictest.biometric;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TemplatePayloadRepository extends JpaRepository<TemplatePayload, Long> {
+}
@@ -0,0 +1,171 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceTemplate;
+import com.egfs.biometrictest.device.DeviceUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Writes stored templates of one device to others, so a user enrolled at one
+ * terminal can punch at all of them. A template is only sent when its hash
+ * differs from the one stored for the target, which the target's template
+ * syncs and earlier pushes keep up to date. Templates go out in rounds of
+ * {@code zkteco.push.batch-size}, one BeginBatchUpdate/BatchUpdate each, and
+ * every accepted round is stored as the target's templates right away: an
+ * interrupted push resumes where it stopped.
+ */
+@Service
+public class TemplatePushService {
+    private static final Logger log = LoggerFactory.getLogger(TemplatePushService.class);
+
+    private final ZktecoProperties.Push config;
+    private final DeviceSessionPool sessions;
+    private final DeviceSyncGuard syncGuard;
+    private final BiometricTemplateRepository repo;
+    private final ZktecoSyncService syncService;
+    private final IngestMetrics metrics;
+
+    public TemplatePushService(ZktecoProperties props, DeviceSessionPool sessions, DeviceSyncGuard syncGuard,
+                               BiometricTemplateRepository repo, ZktecoSyncService syncService,
+                               IngestMetrics metrics) {
+        this.config = props.getPush();
+        this.sessions = sessions;
+        this.syncGuard = syncGuard;
+        this.repo = repo;
+        this.syncService = syncService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * The stored templates of {@code sourceDeviceId} to push, all of them or
+     * those of {@code userIds}. Only hashes are read here; template data is
+     * loaded once the first target needs it and shared by all targets.
+     */
+    public Source loadSource(String sourceDeviceId, Collection<String> userIds) {
+        List<TemplateDigest> digests = repo.findDigestsByDeviceId(sourceDeviceId);
+        if (userIds != null && !userIds.isEmpty()) {
+            Set<String> wanted = new HashSet<>(userIds);
+            digests = digests.stream().filter(d -> wanted.contains(d.getUserId())).toList();
+        }
+        return new Source(sourceDeviceId, digests);
+    }
+
+    /** Sends the templates of {@code source} that {@code target} does not have yet, once no sync holds it. */
+    public DeviceSyncResult push(Source source, Device target) {
+        return push(source, target, SyncProgress.NONE);
+    }
+
+    /** Like {@link #push(Source, Device)}, reporting and checking {@code progress} after every batch. */
+    public DeviceSyncResult push(Source source, Device target, SyncProgress progress) {
+        long start = System.nanoTime();
+        int[] pushed = {0};
+        DeviceSyncResult result;
+        try {
+            // Diffed on the session thread, like template syncs, so both work from the same stored state
+            syncGuard.run(target, progress, () -> sessions.execute(target, client -> {
+                List<TemplateDigest> stored = repo.findDigestsByDeviceId(target.getId());
+                List<TemplateDigest> outdated = source.outdated(stored);
+                progress.onTotal(outdated.size());
+                if (outdated.isEmpty()) {
+                    return null;
+                }
+                TemplateChangeSet changes = new TemplateChangeSet(target.getId(), stored);
+                Set<String> enrolled = new HashSet<>();
+                for (DeviceUser user : client.readUsers()) {
+                    enrolled.add(user.userId());
+                }
+                int batchSize = Math.max(1, config.getBatchSize());
+                for (int from = 0; from < outdated.size(); from += batchSize) {
+                    List<TemplateDigest> batch = outdated.subList(from, Math.min(from + batchSize, outdated.size()));
+                    Map<Long, String> data = source.data(batch);
+                    List<DeviceUser> newUsers = new ArrayList<>();
+                    List<DeviceTemplate> templates = new ArrayList<>(batch.size());
+                    for (TemplateDigest digest : batch) {
+                        String templateData = data.get(digest.getId());
+                        if (templateData == null) {
+                            continue; // deleted from the source since it was loaded
+                        }
+                        boolean enabled = !Boolean.FALSE.equals(digest.getEnabled());
+                        if (enrolled.add(digest.getUserId())) {
+                            newUsers.add(new DeviceUser(digest.getUserId(), digest.getName(), 0, enabled));
+                        }
+                        templates.add(new DeviceTemplate(digest.getUserId(), digest.getFingerIndex(), templateData));
+                        changes.offer(digest.getUserId(), digest.getName(), enabled, digest.getFingerIndex(), templateData);
+                    }
+                    if (templates.isEmpty()) {
+                        continue;
+                    }
+                    client.writeTemplates(newUsers, templates);
+                    syncService.commitChanges(target, changes, List.of());
+                    pushed[0] += templates.size();
+                    progress.onRecords(templates.size());
+                    if (progress.isCancelled()) {
+                        throw new SyncCancelledException("Template push to " + target + " cancelled");
+                    }
+                }
+                return null;
+            }));
+            log.info("Pushed {} templates from {} to {}", pushed[0], source.deviceId, target.getId());
+            result = DeviceSyncResult.ok(target.getId(), pushed[0], start);
+        } catch (Exception e) {
+            log.error("Template push from {} to {} failed after {} templates", source.deviceId, target, pushed[0], e);
+            result = DeviceSyncResult.failed(target.getId(), pushed[0], start, e.getMessage());
+        }
+        metrics.recordSync("push", result);
+        return result;
+    }
+
+    /** Templates to push, with their data cached across targets. */
+    public final class Source {
+        private final String deviceId;
+        private final List<TemplateDigest> digests;
+        private final Map<Long, String> data = new HashMap<>();
+
+        private Source(String deviceId, List<TemplateDigest> digests) {
+            this.deviceId = deviceId;
+            this.digests = digests;
+        }
+
+        public String getDeviceId() { return deviceId; }
+
+        public int size() { return digests.size(); }
+
+        /** Templates whose hash differs from, or is missing in, {@code stored}. */
+        List<TemplateDigest> outdated(List<TemplateDigest> stored) {
+            Map<String, String> hashes = new HashMap<>();
+            for (TemplateDigest digest : stored) {
+                hashes.put(digest.getUserId() + '#' + digest.getFingerIndex(), digest.getTemplateHash());
+            }
+            return digests.stream()
+                    .filter(d -> !Objects.equals(hashes.get(d.getUserId() + '#' + d.getFingerIndex()), d.getTemplateHash()))
+                    .toList();
+        }
+
+        /** Template data of {@code batch}, by template id. */
+        synchronized Map<Long, String> data(List<TemplateDigest> batch) {
+            List<Long> missing = batch.stream().map(TemplateDigest::getId).filter(id -> !data.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                for (BiometricTemplate template : repo.findAllWithPayloadByIdIn(missing)) {
+                    data.put(template.getId(), template.getTemplateData());
+                }
+            }
+            Map<Long, String> result = new HashMap<>();
+            for (TemplateDigest digest : batch) {
+                result.put(digest.getId(), data.get(digest.getId()));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@code userId -> name/enabled} directory used to label punches
+ * without a database query per record.
+ * <p>
+ * Warmed from the template table at startup and refreshed by every template
+ * sync. Entries are kept in an access-ordered map bounded by
+ * {@code zkteco.directory.max-size}; the least recently used user is evicted
+ * first. Names are interned since many users share first/last names.
+ */
+@Component
+public class UserDirectory {
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    record Entry(String name, boolean enabled) { }
+
+    private final BiometricTemplateRepository templateRepo;
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserDirectory(ZktecoProperties props, BiometricTemplateRepository templateRepo) {
+        this.templateRepo = templateRepo;
+        this.maxSize = props.getDirectory().getMaxSize();
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh();
+    }
+
+    /** Reloads the whole directory from the template table. */
+    public void refresh() {
+        List<UserSummary> users = templateRepo.findAllUsers();
+        synchronized (this) {
+            entries.clear();
+            for (UserSummary user : users) {
+                putLocked(user.getUserId(), user.getName(), Boolean.TRUE.equals(user.getEnabled()));
+            }
+        }
+        log.info("User directory loaded with {} users", users.size());
+    }
+
+    public synchronized void put(String userId, String name, boolean enabled) {
+        putLocked(userId, name, enabled);
+    }
+
+    /** Returns the display name of a user, or null if the user is unknown. */
+    public String resolveName(String userId) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(userId);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.name();
+    }
+
+    public synchronized boolean isEnabled(String userId) {
+        Entry entry = entries.get(userId);
+        return entry != null && entry.enabled();
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        return stats;
+    }
+
+    private void putLocked(String userId, String name, boolean enabled) {
+        entries.put(userId, new Entry(name != null ? name.intern() : null, enabled));
+    }
+}
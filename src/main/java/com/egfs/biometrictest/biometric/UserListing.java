@@ -0,0 +1,10 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Projection of one user of a device with the number of stored templates,
+ * read from the template rows only.
+ */
+public interface UserListing extends UserSummary {
+    String getDeviceId();
+    long getTemplateCount();
+}
@@ -0,0 +1,11 @@
+package com.egfs.biometrictest.biometric;
+
+/**
+ * Projection of the user columns of {@link BiometricTemplate}, so user
+ * listings do not load template data.
+ */
+public interface UserSummary {
+    String getUserId();
+    String getName();
+    Boolean getEnabled();
+}
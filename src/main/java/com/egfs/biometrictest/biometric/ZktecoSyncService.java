@@ -1,15 +1,17 @@
 package com.egfs.biometrictest.biometric;
 
 import com.egfs.biometrictest.ZktecoProperties;
-import com.jacob.activeX.ActiveXComponent;
-import com.jacob.com.Dispatch;
-import com.jacob.com.Variant;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceClient;
+import com.egfs.biometrictest.device.DeviceUser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -17,140 +19,169 @@ public class ZktecoSyncService {
     private static final Logger log = LoggerFactory.getLogger(ZktecoSyncService.class);
 
     private final ZktecoProperties props;
+    private final DeviceRegistry devices;
+    private final DeviceSessionPool sessions;
+    private final DeviceSyncGuard syncGuard;
     private final BiometricTemplateRepository repo;
-
-    public ZktecoSyncService(ZktecoProperties props, BiometricTemplateRepository repo) {
+    private final TemplatePayloadRepository payloadRepo;
+    private final BulkIngestWriter writer;
+    private final UserDirectory userDirectory;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestMetrics metrics;
+
+    public ZktecoSyncService(ZktecoProperties props, DeviceRegistry devices, DeviceSessionPool sessions,
+                             DeviceSyncGuard syncGuard,
+                             BiometricTemplateRepository repo, TemplatePayloadRepository payloadRepo,
+                             BulkIngestWriter writer, UserDirectory userDirectory,
+                             TransactionTemplate transactionTemplate, IngestMetrics metrics) {
         this.props = props;
+        this.devices = devices;
+        this.sessions = sessions;
+        this.syncGuard = syncGuard;
         this.repo = repo;
+        this.payloadRepo = payloadRepo;
+        this.writer = writer;
+        this.userDirectory = userDirectory;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+    }
+
+    public DeviceSyncResult syncTemplates(Device device) {
+        return syncTemplates(device, SyncProgress.NONE);
     }
 
-    @Transactional
-    public int syncTemplates() {
-        ActiveXComponent zk = null;
-        int imported = 0;
+    /**
+     * Downloads users and templates from one device and applies only the
+     * differences to the stored templates of that device. Changes are
+     * committed every {@code zkteco.ingest.batch-size} templates while the
+     * device is still being read, so neither memory nor transactions grow
+     * with the device; templates gone from the device are deleted once it has
+     * been read completely. A failed or cancelled sync needs no checkpoint:
+     * the chunks it committed compare as unchanged on the next run. A sync of
+     * a device waits for the one already running on it.
+     */
+    public DeviceSyncResult syncTemplates(Device device, SyncProgress progress) {
+        long start = System.nanoTime();
+        TemplateChangeSet[] changes = {null};
+        DeviceSyncResult result;
         try {
-            // Ensure jacob-x64.dll is on java.library.path or in working dir.
-            zk = new ActiveXComponent("zkemkeeper.CZKEM");
-            boolean connected = Dispatch.call(zk, "Connect_Net", props.getIp(), props.getPort()).getBoolean();
-            if (!connected) {
-                log.error("Failed to connect to device {}:{}", props.getIp(), props.getPort());
-                return 0;
+            // Diffed on the session thread, so syncs of one device never work from the same snapshot
+            syncGuard.run(device, progress, () -> sessions.execute(device, client -> {
+                changes[0] = new TemplateChangeSet(device.getId(), repo.findDigestsByDeviceId(device.getId()));
+                readTemplates(client, device, changes[0], progress);
+                return null;
+            }));
+            result = DeviceSyncResult.ok(device.getId(), changes[0].size(), start);
+        } catch (Exception e) {
+            int count = changes[0] != null ? changes[0].size() : 0;
+            if (progress.isCancelled()) {
+                log.info("Template sync of {} cancelled after {} templates", device, count);
+                result = DeviceSyncResult.failed(device.getId(), count, start, "Cancelled");
+            } else {
+                log.error("ZKTeco sync error on {}", device, e);
+                result = DeviceSyncResult.failed(device.getId(), count, start, e.getMessage());
             }
+        }
+        metrics.recordSync("templates", result);
+        return result;
+    }
 
-            // If a device communication password is configured:
-            if (props.getPassword() != null && !props.getPassword().isEmpty()) {
-                boolean ok = Dispatch.call(zk, "SetCommPassword", Integer.parseInt(props.getPassword())).getBoolean();
-                if (!ok) log.warn("SetCommPassword returned false");
-            }
+    private void readTemplates(DeviceClient client, Device device, TemplateChangeSet changes,
+                               SyncProgress progress) {
+        Map<String, DeviceUser> users = new HashMap<>();
+        for (DeviceUser user : client.readUsers()) {
+            users.put(user.userId(), user);
+            // Every device user is known by name, even without a template
+            userDirectory.put(user.userId(), user.name(), user.enabled());
+        }
 
-            // Read all user info first
-            Dispatch.call(zk, "ReadAllUserID", props.getMachineNumber());
-
-            // Iterate through all users: SSR_GetAllUserInfo(MachineNo, out enrollNo, out name, out password, out privilege, out enabled)
-            // Using JACOB out params:
-            Variant vEnroll = new Variant("", true);
-            Variant vName = new Variant("", true);
-            Variant vPwd = new Variant("", true);
-            Variant vPriv = new Variant(0, true);
-            Variant vEnabled = new Variant(false, true);
-
-            while (Dispatch.call(zk, "SSR_GetAllUserInfo",
-                    new Variant(props.getMachineNumber()),
-                    vEnroll, vName, vPwd, vPriv, vEnabled).getBoolean()) {
-
-                String userId = vEnroll.getStringRef();
-                String name = vName.getStringRef();
-                boolean enabled = vEnabled.getBooleanRef();
-
-                // For each finger index 0..9, try to read template
-                for (int fingerIndex = 0; fingerIndex <= 9; fingerIndex++) {
-                    Variant vFlag = new Variant(0, true);
-                    Variant vTmp = new Variant("", true);
-                    Variant vLen = new Variant(0, true);
-
-                    // GetUserTmpExStr(MachineNo, EnrollNumber, FingerIndex, out Flag, out TmpData, out TmpLength)
-                    boolean hasTemplate = Dispatch.call(zk, "GetUserTmpExStr",
-                            new Variant(props.getMachineNumber()),
-                            new Variant(userId),
-                            new Variant(fingerIndex),
-                            vFlag, vTmp, vLen).getBoolean();
-
-                    if (hasTemplate) {
-                        String template = vTmp.getStringRef(); // ZK 10.0 format string
-                        // Upsert
-                        BiometricTemplate entity = repo.findByUserIdAndFingerIndex(userId, fingerIndex)
-                                .orElseGet(BiometricTemplate::new);
-                        entity.setUserId(userId);
-                        entity.setName(name);
-                        entity.setEnabled(enabled);
-                        entity.setFingerIndex(fingerIndex);
-                        entity.setTemplateData(template);
-                        entity.setAlgorithmVersion("10"); // adjust if needed
-                        repo.save(entity);
-                        imported++;
-                    }
+        int batchSize = props.getIngest().getBatchSize();
+        int[] unreported = {0};
+        client.readTemplates(template -> {
+            DeviceUser user = users.get(template.userId());
+            String name = user != null ? user.name() : null;
+            boolean enabled = user == null || user.enabled();
+            changes.offer(template.userId(), name, enabled, template.fingerIndex(), template.data());
+            if (changes.getPendingCount() >= batchSize) {
+                commitChanges(device, changes, List.of());
+            }
+            if (++unreported[0] >= batchSize) {
+                progress.onRecords(unreported[0]);
+                unreported[0] = 0;
+                if (progress.isCancelled()) {
+                    throw new SyncCancelledException("Template sync of " + device + " cancelled");
                 }
-
-                // Reset out params for next loop
-                vEnroll = new Variant("", true);
-                vName = new Variant("", true);
-                vPwd = new Variant("", true);
-                vPriv = new Variant(0, true);
-                vEnabled = new Variant(false, true);
             }
+        });
+        List<Long> deleted = changes.getDeletedIds();
+        commitChanges(device, changes, deleted);
+        progress.onRecords(unreported[0]);
+        log.info("Template sync of {}: {} inserted, {} updated, {} deleted, {} unchanged", device.getId(),
+                changes.getInsertedCount(), changes.getUpdatedCount(), deleted.size(), changes.getUnchanged());
+    }
 
-            // Optional: faces on iFace702 -> Use GetUserFaceStr if supported
-            // Example:
-            // Variant vFaceData = new Variant("", true);
-            // boolean hasFace = Dispatch.call(zk, "GetUserFaceStr", props.getMachineNumber(), userId, 50, vFaceData, new Variant(0, true)).getBoolean();
+    /** Writes the pending changes and deletes {@code deleted} in one transaction. */
+    void commitChanges(Device device, TemplateChangeSet changes, List<Long> deleted) {
+        long commitStart = System.nanoTime();
+        int rows = changes.getPendingCount() + deleted.size();
+        transactionTemplate.executeWithoutResult(status -> applyChanges(changes, deleted));
+        changes.markWritten();
+        metrics.recordCommit(device.getId(), "templates", rows, commitStart);
+    }
 
-            return imported;
-        } catch (Throwable t) {
-            log.error("ZKTeco sync error", t);
-            return imported;
-        } finally {
-            try {
-                if (zk != null) {
-                    Dispatch.call(zk, "Disconnect");
-                }
-            } catch (Exception ignore) { }
+    private void applyChanges(TemplateChangeSet changes, List<Long> deleted) {
+        List<BiometricTemplate> writes = new ArrayList<>(changes.getInserts());
+        Map<Long, BiometricTemplate> updates = changes.getUpdates();
+        if (!updates.isEmpty()) {
+            for (BiometricTemplate entity : repo.findAllWithPayloadByIdIn(updates.keySet())) {
+                BiometricTemplate fresh = updates.get(entity.getId());
+                entity.setName(fresh.getName());
+                entity.setEnabled(fresh.getEnabled());
+                entity.setTemplateData(fresh.getTemplateData());
+                entity.setAlgorithmVersion(fresh.getAlgorithmVersion());
+                writes.add(entity);
+            }
         }
+        writer.writeTemplates(writes);
+
+        if (!deleted.isEmpty()) {
+            List<Long> payloads = repo.findPayloadIds(deleted);
+            repo.deleteAllByIdInBatch(deleted);
+            payloadRepo.deleteAllByIdInBatch(payloads);
+        }
+    }
+
+    /** Users with their template counts, of one device or all of them, without reading template data. */
+    public List<UserListing> listUsers(String deviceId) {
+        return repo.findUserListings(deviceId);
     }
 
     public Map<String, Object> testConnection() {
+        return testConnection(devices.getDefault());
+    }
+
+    public Map<String, Object> testConnection(Device device) {
         Map<String, Object> result = new HashMap<>();
-        ActiveXComponent zk = null;
         try {
-            zk = new ActiveXComponent("zkemkeeper.CZKEM");
-            boolean connected = Dispatch.call(zk, "Connect_Net", props.getIp(), props.getPort()).getBoolean();
-            
-            if (!connected) {
-                result.put("success", false);
-                result.put("error", "Failed to connect to device at " + props.getIp() + ":" + props.getPort());
-                result.put("deviceInfo", "");
-                return result;
-            }
-
-            // Get device information
-            String deviceInfo = "ZKTeco Device at " + props.getIp() + ":" + props.getPort();
-            
-            // Try to get firmware version
-            try {
-                Variant vFirmwareVersion = new Variant("", true);
-                boolean gotVersion = Dispatch.call(zk, "GetFirmwareVersion", 
-                    new Variant(props.getMachineNumber()), vFirmwareVersion).getBoolean();
-                if (gotVersion) {
-                    deviceInfo += " (FW: " + vFirmwareVersion.getStringRef() + ")";
+            String deviceInfo = sessions.execute(device, client -> {
+                // Get device information
+                String info = "ZKTeco Device at " + device.getIp() + ":" + device.getPort();
+
+                // Try to get firmware version
+                try {
+                    info += " (FW: " + client.getFirmwareVersion() + ")";
+                } catch (Exception e) {
+                    log.debug("Could not get firmware version", e);
                 }
-            } catch (Exception e) {
-                log.debug("Could not get firmware version", e);
-            }
+                return info;
+            });
 
             result.put("success", true);
             result.put("error", "");
             result.put("deviceInfo", deviceInfo);
+            result.put("deviceId", device.getId());
             
-            log.info("Successfully tested connection to device at {}:{}", props.getIp(), props.getPort());
+            log.info("Successfully tested connection to device at {}:{}", device.getIp(), device.getPort());
             return result;
 
         } catch (Throwable t) {
@@ -159,13 +190,6 @@ public class ZktecoSyncService {
             result.put("error", "Exception: " + t.getMessage() + ". Please ensure ZKTeco SDK is installed and device is accessible.");
             result.put("deviceInfo", "");
             return result;
-        } finally {
-            try {
-                if (zk != null) {
-                    Dispatch.call(zk, "Disconnect");
-                }
-            } catch (Exception ignore) { }
         }
     }
 }
-
@@ -0,0 +1,9 @@
+package com.egfs.biometrictest.device;
+
+import java.time.LocalDateTime;
+
+/**
+ * One attendance log entry as stored on the device, in device local time.
+ */
+public record AttendanceRecord(String userId, int verifyMode, int inOutMode, LocalDateTime time, String workCode) {
+}
@@ -0,0 +1,263 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.jacob.activeX.ActiveXComponent;
+import com.jacob.com.ComThread;
+import com.jacob.com.Dispatch;
+import com.jacob.com.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link DeviceClient} backed by the zkemkeeper COM SDK through JACOB
+ * (Windows only). The COM object is apartment threaded: connect, every call
+ * and close must happen on the same thread, which the session guarantees.
+ */
+public class ComDeviceClient implements DeviceClient {
+    private static final Logger log = LoggerFactory.getLogger(ComDeviceClient.class);
+
+    private final Device device;
+    private final boolean bulkTemplateRead;
+    private ActiveXComponent zk;
+
+    public ComDeviceClient(Device device, boolean bulkTemplateRead) {
+        this.device = device;
+        this.bulkTemplateRead = bulkTemplateRead;
+    }
+
+    @Override
+    public void connect() {
+        // Ensure jacob-x64.dll is on java.library.path or in working dir.
+        ComThread.InitSTA();
+        zk = new ActiveXComponent("zkemkeeper.CZKEM");
+        boolean connected = Dispatch.call(zk, "Connect_Net", device.getIp(), device.getPort()).getBoolean();
+        if (!connected) {
+            close();
+            throw new DeviceException("Failed to connect to device " + device.getIp() + ":" + device.getPort());
+        }
+
+        // Set communication password if configured
+        if (device.getPassword() != null && !device.getPassword().isEmpty()) {
+            boolean ok = Dispatch.call(zk, "SetCommPassword", Integer.parseInt(device.getPassword())).getBoolean();
+            if (!ok) log.warn("SetCommPassword returned false for {}", device);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return zk != null;
+    }
+
+    @Override
+    public String getFirmwareVersion() {
+        Variant vFirmwareVersion = new Variant("", true);
+        boolean gotVersion = Dispatch.call(zk, "GetFirmwareVersion",
+                new Variant(device.getMachineNumber()), vFirmwareVersion).getBoolean();
+        if (!gotVersion) {
+            throw new DeviceException("GetFirmwareVersion failed on " + device);
+        }
+        return vFirmwareVersion.getStringRef();
+    }
+
+    @Override
+    public long getAttendanceCount() {
+        // Status 6 of GetDeviceStatus is the attendance record count
+        try {
+            Variant vCount = new Variant(0, true);
+            if (Dispatch.call(zk, "GetDeviceStatus", device.getMachineNumber(), 6, vCount).getBoolean()) {
+                return vCount.getIntRef();
+            }
+        } catch (Exception e) {
+            log.debug("GetDeviceStatus not supported", e);
+        }
+        return -1;
+    }
+
+    @Override
+    public long readAttendance(long skip, Consumer<AttendanceRecord> sink) {
+        // Read all attendance logs
+        boolean readSuccess = Dispatch.call(zk, "ReadGeneralLogData", device.getMachineNumber()).getBoolean();
+        if (!readSuccess) {
+            throw new DeviceException("ReadGeneralLogData failed on " + device);
+        }
+
+        // SSR_GetGeneralLogData(MachineNo, out enrollNo, out verifyMode, out inOutMode, out year, out month,
+        // out day, out hour, out minute, out second, ref workCode); GetAllGLogData stops at the hour, which
+        // made punches of the same hour indistinguishable
+        Variant[] out = newLogVariants();
+        long recordIndex = 0;
+        while (Dispatch.callN(zk, "SSR_GetGeneralLogData", logCallArgs(out)).getBoolean()) {
+            // Records before the cursor were imported by an earlier sync
+            if (recordIndex++ >= skip) {
+                LocalDateTime time = LocalDateTime.of(out[3].getIntRef(), out[4].getIntRef(), out[5].getIntRef(),
+                        out[6].getIntRef(), out[7].getIntRef(), out[8].getIntRef());
+                sink.accept(new AttendanceRecord(out[0].getStringRef(), out[1].getIntRef(), out[2].getIntRef(),
+                        time, String.valueOf(out[9].getIntRef())));
+            }
+            // Reset variants for next iteration
+            out = newLogVariants();
+        }
+        return recordIndex;
+    }
+
+    /** Out params of SSR_GetGeneralLogData: enrollNo, verifyMode, inOutMode, year..second, workCode. */
+    private static Variant[] newLogVariants() {
+        Variant[] out = new Variant[10];
+        out[0] = new Variant("", true);
+        for (int i = 1; i < out.length; i++) {
+            out[i] = new Variant(0, true);
+        }
+        return out;
+    }
+
+    private Object[] logCallArgs(Variant[] out) {
+        Object[] args = new Object[out.length + 1];
+        args[0] = new Variant(device.getMachineNumber());
+        System.arraycopy(out, 0, args, 1, out.length);
+        return args;
+    }
+
+    @Override
+    public List<DeviceUser> readUsers() {
+        List<DeviceUser> users = new ArrayList<>();
+
+        // Read all user info first
+        Dispatch.call(zk, "ReadAllUserID", device.getMachineNumber());
+
+        // Iterate through all users: SSR_GetAllUserInfo(MachineNo, out enrollNo, out name, out password, out privilege, out enabled)
+        // Using JACOB out params:
+        Variant vEnroll = new Variant("", true);
+        Variant vName = new Variant("", true);
+        Variant vPwd = new Variant("", true);
+        Variant vPriv = new Variant(0, true);
+        Variant vEnabled = new Variant(false, true);
+
+        while (Dispatch.call(zk, "SSR_GetAllUserInfo",
+                new Variant(device.getMachineNumber()),
+                vEnroll, vName, vPwd, vPriv, vEnabled).getBoolean()) {
+
+            users.add(new DeviceUser(vEnroll.getStringRef(), vName.getStringRef(), vPriv.getIntRef(),
+                    vEnabled.getBooleanRef()));
+
+            // Reset out params for next loop
+            vEnroll = new Variant("", true);
+            vName = new Variant("", true);
+            vPwd = new Variant("", true);
+            vPriv = new Variant(0, true);
+            vEnabled = new Variant(false, true);
+        }
+        return users;
+    }
+
+    @Override
+    public void readTemplates(Consumer<DeviceTemplate> sink) {
+        List<DeviceUser> users = readUsers();
+
+        // Download every template in one pass; GetUserTmpExStr is then served from the SDK buffer
+        if (bulkTemplateRead) {
+            boolean bulk = Dispatch.call(zk, "ReadAllTemplate", device.getMachineNumber()).getBoolean();
+            if (!bulk) log.warn("ReadAllTemplate failed, falling back to per-finger reads");
+        }
+
+        for (DeviceUser user : users) {
+            // For each finger index 0..9, try to read template
+            for (int fingerIndex = 0; fingerIndex <= 9; fingerIndex++) {
+                Variant vFlag = new Variant(0, true);
+                Variant vTmp = new Variant("", true);
+                Variant vLen = new Variant(0, true);
+
+                // GetUserTmpExStr(MachineNo, EnrollNumber, FingerIndex, out Flag, out TmpData, out TmpLength)
+                boolean hasTemplate = Dispatch.call(zk, "GetUserTmpExStr",
+                        new Variant(device.getMachineNumber()),
+                        new Variant(user.userId()),
+                        new Variant(fingerIndex),
+                        vFlag, vTmp, vLen).getBoolean();
+
+                if (hasTemplate) {
+                    sink.accept(new DeviceTemplate(user.userId(), fingerIndex, vTmp.getStringRef())); // ZK 10.0 format string
+                }
+            }
+        }
+
+        // Optional: faces on iFace702 -> Use GetUserFaceStr if supported
+        // Example:
+        // Variant vFaceData = new Variant("", true);
+        // boolean hasFace = Dispatch.call(zk, "GetUserFaceStr", device.getMachineNumber(), userId, 50, vFaceData, new Variant(0, true)).getBoolean();
+    }
+
+    @Override
+    public void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates) {
+        int machine = device.getMachineNumber();
+        // 1 = overwrite templates already stored for the same user and finger
+        if (!Dispatch.call(zk, "BeginBatchUpdate", machine, 1).getBoolean()) {
+            throw new DeviceException("BeginBatchUpdate failed on " + device);
+        }
+        // Until BatchUpdate the calls below only fill the SDK's buffer, there is no round trip per template
+        boolean sent = false;
+        try {
+            for (DeviceUser user : newUsers) {
+                Dispatch.call(zk, "SSR_SetUserInfo", new Variant(machine), new Variant(user.userId()),
+                        new Variant(user.name() != null ? user.name() : ""), new Variant(""),
+                        new Variant(user.privilege()), new Variant(user.enabled()));
+            }
+            for (DeviceTemplate template : templates) {
+                // SetUserTmpExStr(MachineNo, EnrollNumber, FingerIndex, Flag, TmpData); flag 1 = valid template
+                Dispatch.call(zk, "SetUserTmpExStr", new Variant(machine), new Variant(template.userId()),
+                        new Variant(template.fingerIndex()), new Variant(1), new Variant(template.data()));
+            }
+            sent = Dispatch.call(zk, "BatchUpdate", machine).getBoolean();
+        } finally {
+            if (!sent) {
+                try {
+                    Dispatch.call(zk, "CancelBatchUpdate", machine);
+                } catch (Exception e) {
+                    log.debug("CancelBatchUpdate failed", e);
+                }
+            }
+        }
+        if (!sent) {
+            throw new DeviceException("BatchUpdate of " + templates.size() + " templates failed on " + device);
+        }
+        Dispatch.call(zk, "RefreshData", machine);
+    }
+
+    @Override
+    public void clearAttendance() {
+        boolean cleared = Dispatch.call(zk, "ClearGLog", device.getMachineNumber()).getBoolean();
+        if (!cleared) {
+            throw new DeviceException("ClearGLog failed on " + device);
+        }
+        Dispatch.call(zk, "RefreshData", device.getMachineNumber());
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (!Dispatch.call(zk, "EnableDevice", device.getMachineNumber(), enabled).getBoolean()) {
+            throw new DeviceException("EnableDevice(" + enabled + ") failed on " + device);
+        }
+    }
+
+    @Override
+    public void registerEvents() {
+        Dispatch.call(zk, "RegEvent", device.getMachineNumber(), 65535);
+    }
+
+    @Override
+    public void close() {
+        if (zk != null) {
+            try {
+                Dispatch.call(zk, "Disconnect");
+            } catch (Exception ignore) { }
+            zk.safeRelease();
+            zk = null;
+        }
+        try {
+            ComThread.Release();
+        } catch (Throwable ignore) { }
+    }
+}
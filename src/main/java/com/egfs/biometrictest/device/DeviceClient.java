@@ -0,0 +1,64 @@
+package com.egfs.biometrictest.device;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Access to one ZKTeco terminal. Implementations are not thread safe; a
+ * client is owned by a single device session and only used from its thread.
+ * All methods throw {@link DeviceException} when the device rejects a call or
+ * cannot be reached.
+ */
+public interface DeviceClient extends AutoCloseable {
+
+    void connect();
+
+    boolean isConnected();
+
+    String getFirmwareVersion();
+
+    /** Number of attendance records stored on the device, or -1 if the device does not report it. */
+    long getAttendanceCount();
+
+    /**
+     * Streams attendance records in device log order, skipping the first
+     * {@code skip} records.
+     *
+     * @return total number of records in the device log
+     */
+    long readAttendance(long skip, Consumer<AttendanceRecord> sink);
+
+    List<DeviceUser> readUsers();
+
+    /** Streams every fingerprint template stored on the device. */
+    void readTemplates(Consumer<DeviceTemplate> sink);
+
+    /**
+     * Writes fingerprint templates in one batch (BeginBatchUpdate ...
+     * BatchUpdate), replacing the template of the same user and finger.
+     * {@code newUsers} are created first and must not exist on the device
+     * yet; every other template has to belong to a user already enrolled.
+     */
+    void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates);
+
+    void clearAttendance();
+
+    /** Enables or disables the terminal's keypad and sensor (EnableDevice). */
+    void setEnabled(boolean enabled);
+
+    /** Asks the device to push realtime events (RegEvent). */
+    void registerEvents();
+
+    /**
+     * Waits up to {@code timeoutMs} for attendance events pushed by the device
+     * after {@link #registerEvents()}. Backends that cannot receive events
+     * return an empty list immediately.
+     */
+    default List<AttendanceRecord> pollEvents(long timeoutMs) {
+        return List.of();
+    }
+
+    /** Disconnects; the client may be connected again afterwards. */
+    @Override
+    void close();
+}
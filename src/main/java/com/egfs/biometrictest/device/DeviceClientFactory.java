@@ -0,0 +1,45 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link DeviceClient} backend configured for a device:
+ * {@code jacob} (zkemkeeper COM SDK, Windows only), {@code tcp}
+ * (pure Java protocol client) or {@code sim} (in-process simulated terminal,
+ * configured by {@code zkteco.simulation}). The device's own {@code backend}
+ * wins over the global {@code zkteco.backend}. Every client is wrapped in a
+ * {@link MeteredDeviceClient}.
+ */
+@Component
+public class DeviceClientFactory {
+    public static final String BACKEND_JACOB = "jacob";
+    public static final String BACKEND_TCP = "tcp";
+    public static final String BACKEND_SIM = "sim";
+
+    private final ZktecoProperties props;
+    private final MeterRegistry registry;
+    private final Map<String, SimulatedTerminal> terminals = new ConcurrentHashMap<>();
+
+    public DeviceClientFactory(ZktecoProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.registry = registry;
+    }
+
+    public DeviceClient create(Device device) {
+        String backend = device.getBackend() != null ? device.getBackend() : props.getBackend();
+        DeviceClient client = switch (backend) {
+            case BACKEND_JACOB -> new ComDeviceClient(device, props.isBulkTemplateRead());
+            case BACKEND_TCP -> new ZkTcpDeviceClient(device, props.getTimeoutMs());
+            case BACKEND_SIM -> new SimulatedDeviceClient(terminals.computeIfAbsent(device.getId(),
+                    id -> new SimulatedTerminal(id, props.getSimulation())));
+            default -> throw new IllegalArgumentException("Unknown zkteco backend '" + backend + "' for " + device);
+        };
+        return new MeteredDeviceClient(client, registry, device.getId());
+    }
+}
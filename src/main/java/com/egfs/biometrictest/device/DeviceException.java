@@ -0,0 +1,16 @@
+package com.egfs.biometrictest.device;
+
+/**
+ * Failure talking to a ZKTeco device (connection refused, SDK call failed, ...).
+ */
+public class DeviceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DeviceException(String message) {
+        super(message);
+    }
+
+    public DeviceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
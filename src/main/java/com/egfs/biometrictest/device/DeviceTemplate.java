@@ -0,0 +1,7 @@
+package com.egfs.biometrictest.device;
+
+/**
+ * A fingerprint template in the ZK 10.0 string form returned by {@code GetUserTmpExStr}.
+ */
+public record DeviceTemplate(String userId, int fingerIndex, String data) {
+}
@@ -0,0 +1,7 @@
+package com.egfs.biometrictest.device;
+
+/**
+ * A user enrolled on the device.
+ */
+public record DeviceUser(String userId, String name, int privilege, boolean enabled) {
+}
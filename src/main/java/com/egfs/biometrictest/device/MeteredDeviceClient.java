@@ -0,0 +1,173 @@
+package com.egfs.biometrictest.device;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Times every device call of a backend as {@code zkteco.device.calls}, tagged
+ * with the device, the operation and its outcome, and counts the records
+ * streamed by the read operations as {@code zkteco.device.records}. Meters
+ * are looked up once per operation and reused, so a call costs two clock
+ * reads; records are counted locally and added once per read.
+ * {@link #pollEvents} is not timed, since it mostly waits for the device.
+ */
+public class MeteredDeviceClient implements DeviceClient {
+    public static final String CALLS = "zkteco.device.calls";
+    public static final String RECORDS = "zkteco.device.records";
+
+    private final DeviceClient delegate;
+    private final MeterRegistry registry;
+    private final String deviceId;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public MeteredDeviceClient(DeviceClient delegate, MeterRegistry registry, String deviceId) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.deviceId = deviceId;
+    }
+
+    @Override
+    public void connect() {
+        time("connect", () -> {
+            delegate.connect();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public String getFirmwareVersion() {
+        return time("firmwareVersion", delegate::getFirmwareVersion);
+    }
+
+    @Override
+    public long getAttendanceCount() {
+        return time("attendanceCount", delegate::getAttendanceCount);
+    }
+
+    @Override
+    public long readAttendance(long skip, Consumer<AttendanceRecord> sink) {
+        long[] records = {0};
+        try {
+            return time("readAttendance", () -> delegate.readAttendance(skip, record -> {
+                records[0]++;
+                sink.accept(record);
+            }));
+        } finally {
+            counter("readAttendance").increment(records[0]);
+        }
+    }
+
+    @Override
+    public List<DeviceUser> readUsers() {
+        List<DeviceUser> users = time("readUsers", delegate::readUsers);
+        counter("readUsers").increment(users.size());
+        return users;
+    }
+
+    @Override
+    public void readTemplates(Consumer<DeviceTemplate> sink) {
+        long[] records = {0};
+        try {
+            time("readTemplates", () -> {
+                delegate.readTemplates(template -> {
+                    records[0]++;
+                    sink.accept(template);
+                });
+                return null;
+            });
+        } finally {
+            counter("readTemplates").increment(records[0]);
+        }
+    }
+
+    @Override
+    public void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates) {
+        time("writeTemplates", () -> {
+            delegate.writeTemplates(newUsers, templates);
+            return null;
+        });
+        counter("writeTemplates").increment(templates.size());
+    }
+
+    @Override
+    public void clearAttendance() {
+        time("clearAttendance", () -> {
+            delegate.clearAttendance();
+            return null;
+        });
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        time("setEnabled", () -> {
+            delegate.setEnabled(enabled);
+            return null;
+        });
+    }
+
+    @Override
+    public void registerEvents() {
+        time("registerEvents", () -> {
+            delegate.registerEvents();
+            return null;
+        });
+    }
+
+    @Override
+    public List<AttendanceRecord> pollEvents(long timeoutMs) {
+        List<AttendanceRecord> events = delegate.pollEvents(timeoutMs);
+        if (!events.isEmpty()) {
+            counter("pollEvents").increment(events.size());
+        }
+        return events;
+    }
+
+    @Override
+    public void close() {
+        time("disconnect", () -> {
+            delegate.close();
+            return null;
+        });
+    }
+
+    private <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            timer(operation, success).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String operation, boolean success) {
+        String outcome = success ? "success" : "error";
+        return timers.computeIfAbsent(operation + '/' + outcome, k -> Timer.builder(CALLS)
+                .description("Calls to a ZKTeco device")
+                .tags("device", deviceId, "operation", operation, "outcome", outcome)
+                .register(registry));
+    }
+
+    private Counter counter(String operation) {
+        return counters.computeIfAbsent(operation, k -> Counter.builder(RECORDS)
+                .description("Records read from or written to a ZKTeco device")
+                .tags("device", deviceId, "operation", operation)
+                .register(registry));
+    }
+}
@@ -0,0 +1,144 @@
+package com.egfs.biometrictest.device;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a terminal ({@code backend: sim}), for load tests
+ * and development without hardware or Windows. Behaves like the real backends
+ * towards the services: record counts, cursor reads, realtime events and
+ * failures; see {@link SimulatedTerminal} for what it generates.
+ */
+public class SimulatedDeviceClient implements DeviceClient {
+    private static final long EVENT_CHECK_MS = 5;
+
+    private final SimulatedTerminal terminal;
+    private boolean connected;
+    private int eventIndex = -1; // next log record to push as event; -1 until registerEvents
+
+    SimulatedDeviceClient(SimulatedTerminal terminal) {
+        this.terminal = terminal;
+    }
+
+    @Override
+    public void connect() {
+        terminal.call("connect");
+        connected = true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public String getFirmwareVersion() {
+        call("GetFirmwareVersion");
+        return "Ver 6.60 (simulated " + terminal.getDeviceId() + ")";
+    }
+
+    @Override
+    public long getAttendanceCount() {
+        call("GetDeviceStatus");
+        return terminal.size();
+    }
+
+    @Override
+    public long readAttendance(long skip, Consumer<AttendanceRecord> sink) {
+        call("ReadGeneralLogData");
+        List<AttendanceRecord> records = terminal.recordsFrom((int) Math.min(skip, Integer.MAX_VALUE));
+        int sent = 0;
+        for (AttendanceRecord record : records) {
+            sink.accept(record);
+            terminal.throttle(++sent);
+        }
+        return Math.max(skip, 0) + records.size();
+    }
+
+    @Override
+    public List<DeviceUser> readUsers() {
+        call("ReadAllUserID");
+        return terminal.getUsers();
+    }
+
+    @Override
+    public void readTemplates(Consumer<DeviceTemplate> sink) {
+        call("ReadAllTemplate");
+        terminal.readTemplates(sink);
+    }
+
+    @Override
+    public void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates) {
+        call("BeginBatchUpdate");
+        terminal.writeTemplates(newUsers, templates);
+        call("BatchUpdate");
+    }
+
+    @Override
+    public void clearAttendance() {
+        call("ClearGLog");
+        terminal.clear();
+        if (eventIndex > 0) {
+            eventIndex = 0;
+        }
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        call("EnableDevice");
+        terminal.setEnabled(enabled);
+    }
+
+    @Override
+    public void registerEvents() {
+        call("RegEvent");
+        eventIndex = terminal.size();
+    }
+
+    /** Returns as soon as the terminal has taken a punch, like a device pushing it. */
+    @Override
+    public List<AttendanceRecord> pollEvents(long timeoutMs) {
+        if (!connected) {
+            throw new DeviceException("Not connected to " + terminal.getDeviceId());
+        }
+        if (eventIndex < 0) {
+            return List.of();
+        }
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        while (true) {
+            List<AttendanceRecord> records = terminal.recordsFrom(eventIndex);
+            if (!records.isEmpty()) {
+                eventIndex += records.size();
+                List<AttendanceRecord> events = new ArrayList<>(records);
+                events.removeIf(record -> terminal.losesEvent());
+                if (!events.isEmpty()) {
+                    return events;
+                }
+            }
+            long waitMs = Math.min(EVENT_CHECK_MS, (deadline - System.nanoTime()) / 1_000_000);
+            if (waitMs <= 0) {
+                return List.of();
+            }
+            try {
+                Thread.sleep(waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+        eventIndex = -1;
+    }
+
+    private void call(String operation) {
+        if (!connected) {
+            throw new DeviceException("Not connected to " + terminal.getDeviceId());
+        }
+        terminal.call(operation);
+    }
+}
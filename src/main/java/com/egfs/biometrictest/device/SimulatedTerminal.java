@@ -0,0 +1,229 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Simulation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The memory of one simulated terminal: enrolled users, their templates and
+ * the attendance log. It outlives the clients connected to it, as a real
+ * terminal outlives its connections, so cursors and record counts stay valid
+ * across reconnects.
+ * <p>
+ * Punches are generated lazily from the clock whenever the terminal is used:
+ * at {@code punches-per-second}, or {@code burst-punches-per-second} during
+ * the first {@code burst-seconds} of every {@code burst-every-seconds}
+ * (shift changes). Each user alternates check-in and check-out. Punch times
+ * keep milliseconds, so a consumer can measure how long a punch took to reach
+ * it. Users and templates depend only on the seed; the initial log also on
+ * the device id. Users and templates written to the terminal are kept on top
+ * of the generated ones.
+ */
+final class SimulatedTerminal {
+    private static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String deviceId;
+    private final Simulation config;
+    private final List<DeviceUser> users;
+    private final Map<String, DeviceTemplate> written = new LinkedHashMap<>(); // by user#finger
+    private final boolean[] checkedIn;
+    private final List<AttendanceRecord> log = new ArrayList<>();
+    private final SplittableRandom random;
+    private final long startNanos;
+    private long clockNanos;
+    private double owedPunches;
+    private boolean enabled = true;
+
+    SimulatedTerminal(String deviceId, Simulation config) {
+        this.deviceId = deviceId;
+        this.config = config;
+        this.random = new SplittableRandom(config.getSeed() ^ deviceId.hashCode());
+        int userCount = Math.max(1, config.getUsers());
+        List<DeviceUser> enrolled = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            enrolled.add(new DeviceUser(userId(i), "Sim User " + (i + 1), 0, true));
+        }
+        this.users = new CopyOnWriteArrayList<>(enrolled);
+        this.checkedIn = new boolean[userCount];
+        fillInitialLog(LocalDateTime.now());
+        this.startNanos = System.nanoTime();
+        this.clockNanos = startNanos;
+    }
+
+    String getDeviceId() {
+        return deviceId;
+    }
+
+    /** Fails like an unreachable terminal with probability {@code failure-rate}, after the call latency. */
+    void call(String operation) {
+        pause(config.getCallLatencyMs());
+        if (config.getFailureRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.getFailureRate()) {
+            throw new DeviceException("Simulated " + operation + " failure on " + deviceId);
+        }
+    }
+
+    /** True for the share {@code event-loss-rate} of realtime events, which are lost before the client sees them. */
+    boolean losesEvent() {
+        return config.getEventLossRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.getEventLossRate();
+    }
+
+    synchronized int size() {
+        advance();
+        return log.size();
+    }
+
+    /** Copies the records from {@code from} on. */
+    synchronized List<AttendanceRecord> recordsFrom(int from) {
+        advance();
+        return from >= log.size() ? List.of() : new ArrayList<>(log.subList(from, log.size()));
+    }
+
+    synchronized void clear() {
+        advance();
+        log.clear();
+    }
+
+    synchronized void setEnabled(boolean enabled) {
+        advance();
+        this.enabled = enabled;
+    }
+
+    List<DeviceUser> getUsers() {
+        return List.copyOf(users);
+    }
+
+    /** Streams every template, paced at {@code records-per-second}. */
+    void readTemplates(Consumer<DeviceTemplate> sink) {
+        int fingers = Math.max(0, Math.min(10, config.getFingersPerUser()));
+        int generatedUsers = Math.max(1, config.getUsers());
+        List<DeviceTemplate> overrides;
+        synchronized (this) {
+            overrides = new ArrayList<>(written.values());
+        }
+        Set<String> overridden = new HashSet<>();
+        for (DeviceTemplate template : overrides) {
+            overridden.add(key(template.userId(), template.fingerIndex()));
+        }
+        int sent = 0;
+        for (int i = 0; i < generatedUsers; i++) {
+            for (int finger = 0; finger < fingers; finger++) {
+                if (!overridden.contains(key(userId(i), finger))) {
+                    sink.accept(new DeviceTemplate(userId(i), finger, templateData(i, finger)));
+                    throttle(++sent);
+                }
+            }
+        }
+        for (DeviceTemplate template : overrides) {
+            sink.accept(template);
+            throttle(++sent);
+        }
+    }
+
+    /** Enrolls {@code newUsers} and stores {@code templates}, paced like a download of as many records. */
+    void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates) {
+        synchronized (this) {
+            for (DeviceTemplate template : templates) {
+                written.put(key(template.userId(), template.fingerIndex()), template);
+            }
+        }
+        users.addAll(newUsers);
+        for (int sent = 1; sent <= templates.size(); sent++) {
+            throttle(sent);
+        }
+    }
+
+    /** Sleeps as a download of {@code sent} records would take at {@code records-per-second}. */
+    void throttle(int sent) {
+        int rate = config.getRecordsPerSecond();
+        if (rate > 0 && sent % 100 == 0) {
+            pause(100_000L / rate);
+        }
+    }
+
+    private void fillInitialLog(LocalDateTime now) {
+        int size = Math.max(0, config.getLogSize());
+        if (size == 0) {
+            return;
+        }
+        LocalDateTime first = now.minusDays(Math.max(1, config.getLogDays()));
+        long spanMillis = Duration.between(first, now).toMillis();
+        for (int i = 0; i < size; i++) {
+            log.add(punch(first.plusNanos(TimeUnit.MILLISECONDS.toNanos(spanMillis * i / size))));
+        }
+    }
+
+    /** Appends the punches due since the last call, with times spread over the elapsed slices. */
+    private void advance() {
+        long now = System.nanoTime();
+        if (!enabled) {
+            clockNanos = now;
+            return;
+        }
+        LocalDateTime wallNow = LocalDateTime.now();
+        while (clockNanos < now) {
+            long sliceEnd = Math.min(now, clockNanos + SLICE_NANOS);
+            owedPunches += rateAt(clockNanos) * (sliceEnd - clockNanos) / 1e9;
+            int due = (int) owedPunches;
+            owedPunches -= due;
+            for (int i = 1; i <= due; i++) {
+                long at = clockNanos + (sliceEnd - clockNanos) * i / due;
+                log.add(punch(wallNow.minusNanos(now - at)));
+            }
+            clockNanos = sliceEnd;
+        }
+    }
+
+    private double rateAt(long nanos) {
+        long every = config.getBurstEverySeconds();
+        if (every > 0 && TimeUnit.NANOSECONDS.toSeconds(nanos - startNanos) % every < config.getBurstSeconds()) {
+            return config.getBurstPunchesPerSecond();
+        }
+        return config.getPunchesPerSecond();
+    }
+
+    private AttendanceRecord punch(LocalDateTime time) {
+        int user = random.nextInt(checkedIn.length); // users enrolled by writes never punch
+        checkedIn[user] = !checkedIn[user];
+        int verifyMode = random.nextInt(10) < 8 ? 1 : 15;  // mostly fingerprint, some face
+        return new AttendanceRecord(userId(user), verifyMode, checkedIn[user] ? 0 : 1, time, "0");
+    }
+
+    private String templateData(int user, int finger) {
+        byte[] template = new byte[Math.max(16, config.getTemplateBytes())];
+        new SplittableRandom(config.getSeed() * 31 + user * 10L + finger).nextBytes(template);
+        return Base64.getEncoder().encodeToString(template);
+    }
+
+    private static String key(String userId, int fingerIndex) {
+        return userId + '#' + fingerIndex;
+    }
+
+    private static String userId(int user) {
+        return String.valueOf(user + 1);
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeviceException("Interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.egfs.biometrictest.device;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * One packet of the ZKTeco "standalone" network protocol (port 4370).
+ * <p>
+ * Over TCP every packet is framed as {@code 50 50 82 7D <u32 length>}
+ * followed by an 8 byte header ({@code command, checksum, session, reply},
+ * little endian u16 each) and the command data.
+ */
+public final class ZkPacket {
+    public static final int CMD_DB_RRQ = 7;
+    public static final int CMD_USERTEMP_RRQ = 9;
+    public static final int CMD_SAVE_USERTEMPS = 110;
+    public static final int CMD_ATTLOG_RRQ = 13;
+    public static final int CMD_CLEAR_ATTLOG = 15;
+    public static final int CMD_GET_FREE_SIZES = 50;
+    public static final int CMD_REG_EVENT = 500;
+    public static final int CMD_CONNECT = 1000;
+    public static final int CMD_EXIT = 1001;
+    public static final int CMD_ENABLEDEVICE = 1002;
+    public static final int CMD_DISABLEDEVICE = 1003;
+    public static final int CMD_REFRESHDATA = 1013;
+    public static final int CMD_GET_VERSION = 1100;
+    public static final int CMD_AUTH = 1102;
+    public static final int CMD_PREPARE_DATA = 1500;
+    public static final int CMD_DATA = 1501;
+    public static final int CMD_FREE_DATA = 1502;
+    public static final int CMD_PREPARE_BUFFER = 1503;
+    public static final int CMD_READ_BUFFER = 1504;
+    public static final int CMD_ACK_OK = 2000;
+    public static final int CMD_ACK_ERROR = 2001;
+    public static final int CMD_ACK_DATA = 2002;
+    public static final int CMD_ACK_UNAUTH = 2005;
+
+    public static final int FCT_FINGERTMP = 2;
+    public static final int FCT_USER = 5;
+    public static final int FINGER_VALID = 0x10; // added to the finger index of a valid template in CMD_SAVE_USERTEMPS
+    public static final int EF_ATTLOG = 1;
+
+    public static final int USHRT_MAX = 65535;
+    public static final int HEADER_SIZE = 8;
+    public static final int TCP_HEADER_SIZE = 8;
+    private static final byte[] MAGIC = {0x50, 0x50, (byte) 0x82, 0x7D};
+
+    private final int command;
+    private final int session;
+    private final int reply;
+    private final byte[] data;
+
+    public ZkPacket(int command, int session, int reply, byte[] data) {
+        this.command = command;
+        this.session = session;
+        this.reply = reply;
+        this.data = data != null ? data : new byte[0];
+    }
+
+    public int getCommand() { return command; }
+    public int getSession() { return session; }
+    public int getReply() { return reply; }
+    public byte[] getData() { return data; }
+
+    public boolean isOk() {
+        return command == CMD_ACK_OK || command == CMD_PREPARE_DATA || command == CMD_DATA;
+    }
+
+    /** Encodes the packet with its TCP frame, ready to be written to the channel. */
+    public ByteBuffer toTcpFrame() {
+        ByteBuffer buf = ByteBuffer.allocate(TCP_HEADER_SIZE + HEADER_SIZE + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(MAGIC);
+        buf.putInt(HEADER_SIZE + data.length);
+        int payloadStart = buf.position();
+        buf.putShort((short) command).putShort((short) 0).putShort((short) session).putShort((short) reply).put(data);
+        byte[] payload = new byte[HEADER_SIZE + data.length];
+        buf.get(payloadStart, payload);
+        buf.putShort(payloadStart + 2, (short) checksum(payload));
+        return buf.flip();
+    }
+
+    /**
+     * Reads the payload length from a TCP frame header.
+     *
+     * @throws DeviceException if the header does not start with the protocol magic
+     */
+    public static int payloadLength(ByteBuffer tcpHeader) {
+        tcpHeader.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (tcpHeader.get(i) != MAGIC[i]) {
+                throw new DeviceException("Invalid ZK TCP frame header");
+            }
+        }
+        return tcpHeader.getInt(4);
+    }
+
+    /** Decodes the payload of a frame (header plus data). */
+    public static ZkPacket fromPayload(ByteBuffer payload) {
+        payload.order(ByteOrder.LITTLE_ENDIAN);
+        int command = Short.toUnsignedInt(payload.getShort());
+        payload.getShort(); // checksum
+        int session = Short.toUnsignedInt(payload.getShort());
+        int reply = Short.toUnsignedInt(payload.getShort());
+        byte[] data = new byte[payload.remaining()];
+        payload.get(data);
+        return new ZkPacket(command, session, reply, data);
+    }
+
+    /** One's complement style checksum used by the firmware, over header (checksum zeroed) and data. */
+    static int checksum(byte[] p) {
+        long sum = 0;
+        int i = 0;
+        for (; i + 1 < p.length; i += 2) {
+            sum += (p[i] & 0xFF) | ((p[i + 1] & 0xFF) << 8);
+            if (sum > USHRT_MAX) {
+                sum -= USHRT_MAX;
+            }
+        }
+        if (i < p.length) {
+            sum += p[p.length - 1] & 0xFF;
+        }
+        while (sum > USHRT_MAX) {
+            sum -= USHRT_MAX;
+        }
+        long checksum = ~sum;
+        while (checksum < 0) {
+            checksum += USHRT_MAX;
+        }
+        return (int) checksum;
+    }
+
+    /** Key sent with CMD_AUTH when the device has a communication password. */
+    static byte[] commKey(int key, int sessionId) {
+        long k = 0;
+        for (int i = 0; i < 32; i++) {
+            k = (key & (1 << i)) != 0 ? (k << 1 | 1) : k << 1;
+        }
+        k = (k + sessionId) & 0xFFFFFFFFL;
+        byte[] b = {(byte) k, (byte) (k >> 8), (byte) (k >> 16), (byte) (k >> 24)};
+        b[0] ^= 'Z';
+        b[1] ^= 'K';
+        b[2] ^= 'S';
+        b[3] ^= 'O';
+        // swap the two 16 bit halves
+        byte[] swapped = {b[2], b[3], b[0], b[1]};
+        byte ticks = 50;
+        return new byte[]{(byte) (swapped[0] ^ ticks), (byte) (swapped[1] ^ ticks), ticks, (byte) (swapped[3] ^ ticks)};
+    }
+
+    /** Decodes the packed timestamp used in attendance records. */
+    public static LocalDateTime decodeTime(long t) {
+        int second = (int) (t % 60);
+        t /= 60;
+        int minute = (int) (t % 60);
+        t /= 60;
+        int hour = (int) (t % 24);
+        t /= 24;
+        int day = (int) (t % 31) + 1;
+        t /= 31;
+        int month = (int) (t % 12) + 1;
+        t /= 12;
+        return LocalDateTime.of((int) t + 2000, month, day, hour, minute, second);
+    }
+
+    public static long encodeTime(LocalDateTime time) {
+        return ((time.getYear() % 100) * 12L * 31 + (time.getMonthValue() - 1) * 31L + time.getDayOfMonth() - 1)
+                * 86400L + (time.getHour() * 60L + time.getMinute()) * 60 + time.getSecond();
+    }
+
+    /** Reads a fixed-width, NUL padded ASCII field. */
+    static String readString(ByteBuffer buf, int length) {
+        byte[] raw = new byte[length];
+        buf.get(raw);
+        int end = 0;
+        while (end < length && raw[end] != 0) {
+            end++;
+        }
+        return new String(raw, 0, end, StandardCharsets.UTF_8).trim();
+    }
+
+    static void writeString(ByteBuffer buf, String value, int length) {
+        byte[] raw = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        byte[] field = new byte[length];
+        System.arraycopy(raw, 0, field, 0, Math.min(raw.length, length));
+        buf.put(field);
+    }
+}
@@ -0,0 +1,645 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Pure Java {@link DeviceClient} that speaks the terminal's TCP protocol on
+ * port 4370 over a non-blocking NIO channel, so no Windows SDK is needed.
+ * Bulk tables (attendance, users, templates) are pulled with the buffered
+ * read commands and decoded into records packet by packet as they arrive;
+ * templates are written the same way, as one buffer saved by
+ * {@code CMD_SAVE_USERTEMPS}.
+ */
+public class ZkTcpDeviceClient implements DeviceClient {
+    private static final Logger log = LoggerFactory.getLogger(ZkTcpDeviceClient.class);
+
+    private static final int MAX_CHUNK = 0xFFC0;
+    // Record sizes by firmware generation, preferred in this order when the table size fits several
+    private static final int[] ATTENDANCE_RECORD_SIZES = {40, 16, 8};
+    private static final int[] USER_RECORD_SIZES = {72, 28};
+    // Firmware accepts uploads in small data packets only
+    private static final int WRITE_CHUNK = 1024;
+
+    private final Device device;
+    private final long timeoutMs;
+    private SocketChannel channel;
+    private Selector selector;
+    private int sessionId;
+    private int replyId;
+    private boolean eventsRegistered;
+    private int userRecordSize = 72; // 28 on older firmware, learned from the user table
+    private final ByteBuffer tcpHeader = ByteBuffer.allocate(ZkPacket.TCP_HEADER_SIZE);
+    private final List<AttendanceRecord> pendingEvents = new ArrayList<>();
+
+    public ZkTcpDeviceClient(Device device, long timeoutMs) {
+        this.device = device;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void connect() {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.connect(new InetSocketAddress(device.getIp(), device.getPort()));
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            if (selector.select(timeoutMs) == 0 || !channel.finishConnect()) {
+                throw new DeviceException("Timed out connecting to device " + device.getIp() + ":" + device.getPort());
+            }
+            channel.keyFor(selector).interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+            throw new DeviceException("Failed to connect to device " + device.getIp() + ":" + device.getPort(), e);
+        }
+
+        sessionId = 0;
+        replyId = ZkPacket.USHRT_MAX - 1;
+        ZkPacket response = send(ZkPacket.CMD_CONNECT, new byte[0]);
+        sessionId = response.getSession();
+        if (response.getCommand() == ZkPacket.CMD_ACK_UNAUTH) {
+            int key = device.getPassword() == null || device.getPassword().isEmpty()
+                    ? 0 : Integer.parseInt(device.getPassword());
+            response = send(ZkPacket.CMD_AUTH, ZkPacket.commKey(key, sessionId));
+        }
+        if (!response.isOk()) {
+            close();
+            throw new DeviceException("Device " + device + " refused connection (" + response.getCommand() + ")");
+        }
+        if (eventsRegistered) {
+            // Event registration does not survive a reconnect
+            registerEvents();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel != null && channel.isConnected();
+    }
+
+    @Override
+    public String getFirmwareVersion() {
+        ZkPacket response = command(ZkPacket.CMD_GET_VERSION, new byte[0]);
+        return ZkPacket.readString(ByteBuffer.wrap(response.getData()), response.getData().length);
+    }
+
+    @Override
+    public long getAttendanceCount() {
+        int[] sizes = readSizes();
+        return sizes.length > 8 ? sizes[8] : -1;
+    }
+
+    @Override
+    public long readAttendance(long skip, Consumer<AttendanceRecord> sink) {
+        long count = getAttendanceCount();
+        int[] recordSize = {0};
+        long[] index = {0};
+        readWithBuffer(ZkPacket.CMD_ATTLOG_RRQ, 0, buf -> {
+            if (recordSize[0] == 0) {
+                if (buf.remaining() < 4) {
+                    return;
+                }
+                recordSize[0] = recordSize(buf.getInt(), count, ATTENDANCE_RECORD_SIZES, "attendance");
+            }
+            while (buf.remaining() >= recordSize[0]) {
+                int start = buf.position();
+                if (index[0]++ >= skip) {
+                    sink.accept(decodeAttendance(buf, recordSize[0]));
+                }
+                buf.position(start + recordSize[0]);
+            }
+        });
+        return index[0];
+    }
+
+    /**
+     * Finds the record size of a table from its size in bytes. The record
+     * count was read by a separate command and is off when punches or users
+     * arrive in between, so it only picks among the sizes that divide the
+     * table evenly: the one giving the count nearest to it.
+     */
+    private int recordSize(int totalSize, long count, int[] sizes, String table) {
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        for (int size : sizes) {
+            if (totalSize % size != 0) {
+                continue;
+            }
+            long distance = count > 0 ? Math.abs(totalSize / size - count) : 0;
+            if (distance < bestDistance) {
+                best = size;
+                bestDistance = distance;
+            }
+        }
+        if (best == 0) {
+            throw new DeviceException("Unsupported " + table + " table of " + totalSize + " bytes on " + device);
+        }
+        return best;
+    }
+
+    private static AttendanceRecord decodeAttendance(ByteBuffer buf, int recordSize) {
+        String userId;
+        int verifyMode;
+        int inOutMode;
+        long time;
+        String workCode = "0";
+        if (recordSize == 8) {
+            userId = String.valueOf(Short.toUnsignedInt(buf.getShort()));
+            verifyMode = Byte.toUnsignedInt(buf.get());
+            time = Integer.toUnsignedLong(buf.getInt());
+            inOutMode = Byte.toUnsignedInt(buf.get());
+        } else if (recordSize == 16) {
+            userId = String.valueOf(Integer.toUnsignedLong(buf.getInt()));
+            time = Integer.toUnsignedLong(buf.getInt());
+            verifyMode = Byte.toUnsignedInt(buf.get());
+            inOutMode = Byte.toUnsignedInt(buf.get());
+            buf.getShort(); // reserved
+            workCode = String.valueOf(buf.getInt());
+        } else {
+            buf.getShort(); // internal uid
+            userId = ZkPacket.readString(buf, 24);
+            verifyMode = Byte.toUnsignedInt(buf.get());
+            time = Integer.toUnsignedLong(buf.getInt());
+            inOutMode = Byte.toUnsignedInt(buf.get());
+        }
+        return new AttendanceRecord(userId, verifyMode, inOutMode, ZkPacket.decodeTime(time), workCode);
+    }
+
+    @Override
+    public List<DeviceUser> readUsers() {
+        return new ArrayList<>(readUsersByUid().values());
+    }
+
+    private Map<Integer, DeviceUser> readUsersByUid() {
+        Map<Integer, DeviceUser> users = new HashMap<>();
+        for (StoredUser stored : readUserTable()) {
+            users.put(stored.uid(), stored.user());
+        }
+        return users;
+    }
+
+    /** A user table record with its raw bytes, so it can be written back unchanged. */
+    private record StoredUser(int uid, DeviceUser user, byte[] record) { }
+
+    private List<StoredUser> readUserTable() {
+        int[] sizes = readSizes();
+        int userCount = sizes.length > 4 ? sizes[4] : 0;
+        List<StoredUser> users = new ArrayList<>();
+        int[] recordSize = {0};
+        readWithBuffer(ZkPacket.CMD_USERTEMP_RRQ, ZkPacket.FCT_USER, buf -> {
+            if (recordSize[0] == 0) {
+                if (buf.remaining() < 4) {
+                    return;
+                }
+                recordSize[0] = recordSize(buf.getInt(), userCount, USER_RECORD_SIZES, "user");
+                userRecordSize = recordSize[0];
+            }
+            while (buf.remaining() >= recordSize[0]) {
+                users.add(decodeUser(buf, recordSize[0]));
+            }
+        });
+        return users;
+    }
+
+    private static StoredUser decodeUser(ByteBuffer buf, int userSize) {
+        int start = buf.position();
+        int uid = Short.toUnsignedInt(buf.getShort());
+        int privilege = Byte.toUnsignedInt(buf.get());
+        String name;
+        String userId;
+        if (userSize == 28) {
+            buf.position(buf.position() + 5); // password
+            name = ZkPacket.readString(buf, 8);
+            buf.position(start + 24);
+            userId = String.valueOf(Integer.toUnsignedLong(buf.getInt()));
+        } else {
+            buf.position(buf.position() + 8); // password
+            name = ZkPacket.readString(buf, 24);
+            buf.position(start + 48);
+            userId = ZkPacket.readString(buf, 24);
+        }
+        byte[] record = new byte[userSize];
+        buf.get(start, record);
+        buf.position(start + userSize);
+        // The lowest privilege bit marks a disabled user
+        return new StoredUser(uid, new DeviceUser(userId, name, privilege, (privilege & 1) == 0), record);
+    }
+
+    @Override
+    public void readTemplates(Consumer<DeviceTemplate> sink) {
+        Map<Integer, DeviceUser> users = readUsersByUid();
+        Base64.Encoder base64 = Base64.getEncoder();
+        int[] remaining = {-1}; // table bytes left; -1 until the table size is read
+        readWithBuffer(ZkPacket.CMD_DB_RRQ, ZkPacket.FCT_FINGERTMP, buf -> {
+            if (remaining[0] < 0) {
+                if (buf.remaining() < 4) {
+                    return;
+                }
+                remaining[0] = buf.getInt();
+            }
+            while (remaining[0] > 0 && buf.remaining() >= 2) {
+                int start = buf.position();
+                int size = Short.toUnsignedInt(buf.getShort(start));
+                if (size < 6) {
+                    throw new DeviceException("Truncated template record of " + size + " bytes on " + device);
+                }
+                if (buf.remaining() < size) {
+                    return; // the rest of the record comes with the next packet
+                }
+                buf.position(start + 2);
+                int uid = Short.toUnsignedInt(buf.getShort());
+                int fingerIndex = buf.get();
+                buf.get(); // valid flag
+                byte[] template = new byte[size - 6];
+                buf.get(template);
+                DeviceUser user = users.get(uid);
+                String userId = user != null ? user.userId() : String.valueOf(uid);
+                sink.accept(new DeviceTemplate(userId, fingerIndex, base64.encodeToString(template)));
+                remaining[0] -= size;
+            }
+        });
+    }
+
+    /**
+     * Uploads users and templates as one buffer: a header with the three
+     * section sizes, the user records, a table locating each template, and
+     * the templates. Users that already exist are sent with their stored
+     * record, so only their templates change.
+     */
+    @Override
+    public void writeTemplates(List<DeviceUser> newUsers, List<DeviceTemplate> templates) {
+        Map<String, StoredUser> enrolled = new HashMap<>();
+        int maxUid = 0;
+        for (StoredUser stored : readUserTable()) {
+            enrolled.put(stored.user().userId(), stored);
+            maxUid = Math.max(maxUid, stored.uid());
+        }
+        Map<String, StoredUser> batchUsers = new LinkedHashMap<>();
+        for (DeviceUser user : newUsers) {
+            StoredUser stored = enrolled.get(user.userId());
+            if (stored == null) {
+                int uid = ++maxUid;
+                stored = new StoredUser(uid, user, encodeUser(uid, user));
+                enrolled.put(user.userId(), stored);
+            }
+            batchUsers.put(user.userId(), stored);
+        }
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        ByteArrayOutputStream fingers = new ByteArrayOutputStream();
+        Base64.Decoder base64 = Base64.getDecoder();
+        for (DeviceTemplate template : templates) {
+            StoredUser user = enrolled.get(template.userId());
+            if (user == null) {
+                throw new DeviceException("User " + template.userId() + " is not enrolled on " + device);
+            }
+            batchUsers.putIfAbsent(template.userId(), user);
+            byte[] raw = base64.decode(template.data());
+            table.writeBytes(le(8).put((byte) 2).putShort((short) user.uid())
+                    .put((byte) (ZkPacket.FINGER_VALID + template.fingerIndex())).putInt(fingers.size()).array());
+            fingers.writeBytes(le(2 + raw.length).putShort((short) raw.length).put(raw).array());
+        }
+
+        ByteArrayOutputStream users = new ByteArrayOutputStream();
+        for (StoredUser user : batchUsers.values()) {
+            users.write(2);
+            users.writeBytes(user.record());
+        }
+        ByteBuffer batch = le(12 + users.size() + table.size() + fingers.size())
+                .putInt(users.size()).putInt(table.size()).putInt(fingers.size());
+        batch.put(users.toByteArray()).put(table.toByteArray()).put(fingers.toByteArray());
+        writeWithBuffer(batch.array());
+        command(ZkPacket.CMD_SAVE_USERTEMPS, le(8).putInt(12).putShort((short) 0).putShort((short) 8).array());
+        command(ZkPacket.CMD_REFRESHDATA, new byte[0]);
+    }
+
+    /** A new user record in the layout of the device's user table. */
+    private byte[] encodeUser(int uid, DeviceUser user) {
+        // The lowest privilege bit marks a disabled user
+        byte privilege = (byte) ((user.privilege() & ~1) | (user.enabled() ? 0 : 1));
+        ByteBuffer record = le(userRecordSize).putShort((short) uid).put(privilege);
+        if (userRecordSize == 28) {
+            record.position(8);
+            ZkPacket.writeString(record, user.name(), 8);
+            try {
+                record.putInt(24, Integer.parseUnsignedInt(user.userId()));
+            } catch (NumberFormatException e) {
+                throw new DeviceException("Device " + device + " only takes numeric user ids, not " + user.userId(), e);
+            }
+        } else {
+            record.position(11);
+            ZkPacket.writeString(record, user.name(), 24);
+            record.position(48);
+            ZkPacket.writeString(record, user.userId(), 24);
+        }
+        return record.array();
+    }
+
+    @Override
+    public void clearAttendance() {
+        command(ZkPacket.CMD_CLEAR_ATTLOG, new byte[0]);
+        command(ZkPacket.CMD_REFRESHDATA, new byte[0]);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        command(enabled ? ZkPacket.CMD_ENABLEDEVICE : ZkPacket.CMD_DISABLEDEVICE, new byte[0]);
+    }
+
+    @Override
+    public void registerEvents() {
+        command(ZkPacket.CMD_REG_EVENT, le(4).putInt(ZkPacket.EF_ATTLOG).array());
+        eventsRegistered = true;
+    }
+
+    @Override
+    public List<AttendanceRecord> pollEvents(long timeoutMs) {
+        if (channel == null) {
+            throw new DeviceException("Not connected to " + device);
+        }
+        try {
+            long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+            while (pendingEvents.isEmpty()) {
+                long waitMs = (deadline - System.nanoTime()) / 1_000_000;
+                if (waitMs <= 0) {
+                    break;
+                }
+                if (selector.select(waitMs) > 0) {
+                    // Drain every event already on the wire, not just the first one
+                    do {
+                        selector.selectedKeys().clear();
+                        handleUnsolicited(readPacket());
+                    } while (selector.selectNow() > 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new DeviceException("Read from " + device + " failed", e);
+        }
+        List<AttendanceRecord> events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        return events;
+    }
+
+    @Override
+    public void close() {
+        if (channel != null && channel.isConnected()) {
+            try {
+                send(ZkPacket.CMD_EXIT, new byte[0]);
+            } catch (DeviceException ignore) { }
+        }
+        try {
+            if (selector != null) selector.close();
+            if (channel != null) channel.close();
+        } catch (IOException ignore) { }
+        selector = null;
+        channel = null;
+    }
+
+    private int[] readSizes() {
+        ZkPacket response = command(ZkPacket.CMD_GET_FREE_SIZES, new byte[0]);
+        ByteBuffer buf = ByteBuffer.wrap(response.getData()).order(ByteOrder.LITTLE_ENDIAN);
+        int[] fields = new int[buf.remaining() / 4];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = buf.getInt();
+        }
+        return fields;
+    }
+
+    /**
+     * Pulls a whole device table: the device either returns it inline or
+     * prepares a buffer that is then read in chunks of at most {@link #MAX_CHUNK}.
+     * Every data packet is handed to {@code decoder} as it arrives; see
+     * {@link TableDecoder}.
+     */
+    private void readWithBuffer(int tableCommand, int fct, Consumer<ByteBuffer> decoder) {
+        TableDecoder table = new TableDecoder(decoder);
+        byte[] request = le(11).put((byte) 1).putShort((short) tableCommand).putInt(fct).putInt(0).array();
+        ZkPacket response = command(ZkPacket.CMD_PREPARE_BUFFER, request);
+        if (response.getCommand() == ZkPacket.CMD_DATA) {
+            table.accept(response.getData());
+            table.finish();
+            return;
+        }
+        int size = ByteBuffer.wrap(response.getData()).order(ByteOrder.LITTLE_ENDIAN).getInt(1);
+        try {
+            for (int start = 0; start < size; start += MAX_CHUNK) {
+                readChunk(start, Math.min(MAX_CHUNK, size - start), table);
+            }
+        } finally {
+            command(ZkPacket.CMD_FREE_DATA, new byte[0]);
+        }
+        table.finish();
+    }
+
+    /**
+     * Feeds the data packets of a table to a decoder. The decoder reads as
+     * many whole records as the buffer holds and leaves its position at the
+     * first incomplete one, which is carried over to the next packet. If the
+     * decoder (or the sink behind it) fails, the remaining packets are still
+     * read, so the connection stays in step, and the failure is rethrown by
+     * {@link #finish()}.
+     */
+    private static final class TableDecoder implements Consumer<byte[]> {
+        private final Consumer<ByteBuffer> decoder;
+        private ByteBuffer carry = le(0);
+        private RuntimeException failure;
+
+        TableDecoder(Consumer<ByteBuffer> decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void accept(byte[] data) {
+            if (failure != null) {
+                return;
+            }
+            ByteBuffer buf = carry.hasRemaining()
+                    ? le(carry.remaining() + data.length).put(carry).put(data).flip()
+                    : ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                decoder.accept(buf);
+            } catch (RuntimeException e) {
+                failure = e;
+                return;
+            }
+            carry = le(buf.remaining()).put(buf).flip();
+        }
+
+        void finish() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /** Uploads {@code data} into the device's buffer for a following save command. */
+    private void writeWithBuffer(byte[] data) {
+        command(ZkPacket.CMD_FREE_DATA, new byte[0]);
+        command(ZkPacket.CMD_PREPARE_DATA, le(4).putInt(data.length).array());
+        for (int start = 0; start < data.length; start += WRITE_CHUNK) {
+            command(ZkPacket.CMD_DATA, Arrays.copyOfRange(data, start, Math.min(start + WRITE_CHUNK, data.length)));
+        }
+    }
+
+    private void readChunk(int start, int size, Consumer<byte[]> out) {
+        ZkPacket response = command(ZkPacket.CMD_READ_BUFFER, le(8).putInt(start).putInt(size).array());
+        if (response.getCommand() == ZkPacket.CMD_DATA) {
+            out.accept(response.getData());
+            return;
+        }
+        // CMD_PREPARE_DATA announces a series of CMD_DATA packets followed by CMD_ACK_OK
+        int expected = ByteBuffer.wrap(response.getData()).order(ByteOrder.LITTLE_ENDIAN).getInt(0);
+        int received = 0;
+        while (received < expected) {
+            ZkPacket packet = receive();
+            if (packet.getCommand() != ZkPacket.CMD_DATA) {
+                throw new DeviceException("Unexpected packet " + packet.getCommand() + " while reading buffer");
+            }
+            out.accept(packet.getData());
+            received += packet.getData().length;
+        }
+        ZkPacket ack = receive();
+        if (ack.getCommand() != ZkPacket.CMD_ACK_OK) {
+            throw new DeviceException("Buffer read not acknowledged on " + device);
+        }
+    }
+
+    /** Sends a command and fails unless the device acknowledged it. */
+    private ZkPacket command(int command, byte[] data) {
+        ZkPacket response = send(command, data);
+        if (!response.isOk()) {
+            throw new DeviceException("Command " + command + " failed on " + device + " (" + response.getCommand() + ")");
+        }
+        return response;
+    }
+
+    private ZkPacket send(int command, byte[] data) {
+        if (channel == null) {
+            throw new DeviceException("Not connected to " + device);
+        }
+        replyId = (replyId + 1) % ZkPacket.USHRT_MAX;
+        write(new ZkPacket(command, sessionId, replyId, data));
+        return receive();
+    }
+
+    private void write(ZkPacket packet) {
+        ByteBuffer frame = packet.toTcpFrame();
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        } catch (IOException e) {
+            throw new DeviceException("Write to " + device + " failed", e);
+        }
+    }
+
+    private ZkPacket receive() {
+        while (true) {
+            ZkPacket packet = readPacket();
+            if (packet.getCommand() != ZkPacket.CMD_REG_EVENT) {
+                return packet;
+            }
+            // Realtime events can interleave with replies; keep them for the next pollEvents
+            handleUnsolicited(packet);
+        }
+    }
+
+    private ZkPacket readPacket() {
+        tcpHeader.clear();
+        readFully(tcpHeader);
+        ByteBuffer payload = ByteBuffer.allocate(ZkPacket.payloadLength(tcpHeader));
+        readFully(payload);
+        return ZkPacket.fromPayload(payload.flip());
+    }
+
+    private void handleUnsolicited(ZkPacket packet) {
+        if (packet.getCommand() != ZkPacket.CMD_REG_EVENT) {
+            log.debug("Ignoring unsolicited packet {} from {}", packet.getCommand(), device);
+            return;
+        }
+        // The device waits for an acknowledgement before pushing the next event
+        write(new ZkPacket(ZkPacket.CMD_ACK_OK, sessionId, ZkPacket.USHRT_MAX - 1, new byte[0]));
+        decodeEvents(ByteBuffer.wrap(packet.getData()).order(ByteOrder.LITTLE_ENDIAN), pendingEvents);
+    }
+
+    /**
+     * Decodes attendance events. Older firmware sends one short event per
+     * packet (10 to 37 bytes, identified by length); newer firmware sends
+     * 52 byte events that may be batched in one packet.
+     */
+    private static void decodeEvents(ByteBuffer buf, List<AttendanceRecord> sink) {
+        while (buf.remaining() >= 10) {
+            int length = buf.remaining();
+            String userId;
+            int tail;
+            if (length == 10 || length == 14) {
+                userId = String.valueOf(Short.toUnsignedInt(buf.getShort()));
+                tail = length - 10;
+            } else if (length == 12) {
+                userId = String.valueOf(Integer.toUnsignedLong(buf.getInt()));
+                tail = 0;
+            } else if (length == 32 || length == 36 || length == 37) {
+                userId = ZkPacket.readString(buf, 24);
+                tail = length - 32;
+            } else if (length >= 52) {
+                userId = ZkPacket.readString(buf, 24);
+                tail = 20;
+            } else {
+                log.debug("Ignoring realtime event of {} bytes", length);
+                return;
+            }
+            int verifyMode = Byte.toUnsignedInt(buf.get());
+            int inOutMode = Byte.toUnsignedInt(buf.get());
+            LocalDateTime time = LocalDateTime.of(2000 + buf.get(), buf.get(), buf.get(), buf.get(), buf.get(), buf.get());
+            sink.add(new AttendanceRecord(userId, verifyMode, inOutMode, time, "0"));
+            buf.position(buf.position() + tail);
+        }
+    }
+
+    private void readFully(ByteBuffer buf) {
+        try {
+            long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf);
+                if (n < 0) {
+                    throw new DeviceException("Device " + device + " closed the connection");
+                }
+                if (n == 0) {
+                    long waitMs = (deadline - System.nanoTime()) / 1_000_000;
+                    if (waitMs <= 0 || selector.select(waitMs) == 0) {
+                        if (System.nanoTime() >= deadline) {
+                            throw new DeviceException("Timed out reading from " + device);
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new DeviceException("Read from " + device + " failed", e);
+        }
+    }
+
+    private static ByteBuffer le(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,80 @@
+package db.migration.common;
+
+import com.egfs.biometrictest.biometric.TemplatePayload;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves {@code biometric_templates.template_data} into
+ * {@code biometric_template_payloads} (created by V5), encoded the same way
+ * as {@link TemplatePayload}. Written in Java because Base64 decoding and
+ * deflating are not portable SQL. Every payload takes its template's id,
+ * and the payload sequence then continues above the highest of them.
+ */
+public class V6__Move_template_data_to_payloads extends BaseJavaMigration {
+    private static final Logger log = LoggerFactory.getLogger(V6__Move_template_data_to_payloads.class);
+
+    private static final int BATCH_SIZE = 500;
+    // Hibernate's pooled optimizer hands out the allocation size worth of ids below each sequence value
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        long templates = 0;
+        long textBytes = 0;
+        long storedBytes = 0;
+        long maxId = 0;
+        try (Statement select = connection.createStatement();
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into biometric_template_payloads (id, encoding, data) values (?, ?, ?)");
+             PreparedStatement link = connection.prepareStatement(
+                     "update biometric_templates set payload_id = ? where id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = select.executeQuery(
+                    "select id, template_data from biometric_templates where payload_id is null")) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    // oid large object on PostgreSQL, clob on H2
+                    Clob clob = rs.getClob(2);
+                    String text = clob.getSubString(1, (int) clob.length());
+                    TemplatePayload payload = new TemplatePayload(text);
+                    insert.setLong(1, id);
+                    insert.setShort(2, payload.getEncoding());
+                    insert.setBytes(3, payload.getData());
+                    insert.addBatch();
+                    link.setLong(1, id);
+                    link.setLong(2, id);
+                    link.addBatch();
+                    templates++;
+                    textBytes += text.length();
+                    storedBytes += payload.getData().length;
+                    maxId = Math.max(maxId, id);
+                    if (templates % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                        link.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+            link.executeBatch();
+        }
+        if (maxId > 0) {
+            try (Statement restart = connection.createStatement()) {
+                restart.execute("alter sequence biometric_template_payloads_seq restart with "
+                        + (maxId + ID_ALLOCATION_SIZE));
+            }
+        }
+        log.info("Moved {} templates to biometric_template_payloads: {} bytes of text stored in {} bytes",
+                templates, textBytes, storedBytes);
+    }
+}
@@ -0,0 +1,3 @@
+-- Per-user history and time-range / keyset scans
+create index if not exists idx_punch_logs_user_time on punch_logs (user_id, punch_time);
+create index if not exists idx_punch_logs_time_id on punch_logs (punch_time, id);
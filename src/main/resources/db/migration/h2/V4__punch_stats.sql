@@ -0,0 +1,11 @@
+-- Punch counts per minute, hour and day, by verify mode and in/out mode (-1 when unknown).
+-- Written by PunchStatsService from in-memory counters.
+
+create table if not exists punch_stats (
+    granularity  varchar(8)                  not null,
+    bucket_start timestamp(6) with time zone not null,
+    verify_mode  integer                     not null,
+    in_out_mode  integer                     not null,
+    punch_count  bigint                      not null,
+    primary key (granularity, bucket_start, verify_mode, in_out_mode)
+);
@@ -0,0 +1,14 @@
+-- Template data moves out of biometric_templates into its own table, stored
+-- as decoded (and, when smaller, deflated) bytes; see TemplatePayload.
+-- V6 (db/migration/common) moves existing rows, V7 drops template_data.
+
+create sequence if not exists biometric_template_payloads_seq start with 1 increment by 50;
+
+create table if not exists biometric_template_payloads (
+    id       bigint    not null,
+    encoding smallint  not null, -- 0 binary, 1 deflated binary, 2 UTF-8 text
+    data     varbinary not null,
+    primary key (id)
+);
+
+alter table biometric_templates add column if not exists payload_id bigint;
@@ -0,0 +1,7 @@
+-- Template data now lives in biometric_template_payloads (V5, V6)
+
+alter table biometric_templates alter column payload_id set not null;
+alter table biometric_templates add constraint if not exists uk_biometric_templates_payload unique (payload_id);
+alter table biometric_templates add constraint if not exists fk_biometric_templates_payload
+    foreign key (payload_id) references biometric_template_payloads (id);
+alter table biometric_templates drop column if exists template_data;
@@ -0,0 +1,20 @@
+-- A punch is identified by its device, user, timestamp and modes, so reading
+-- the same record again cannot store it twice (BulkIngestWriter inserts only
+-- absent keys). Existing duplicates keep their oldest row; daily attendance
+-- counted them, rebuild it for the affected days (POST /zkteco/attendance/rebuild).
+-- A missing device or mode is part of the key like any value (NULLS NOT DISTINCT).
+
+delete from punch_logs p where exists (
+    select 1 from punch_logs q
+    where q.user_id = p.user_id
+      and q.punch_time = p.punch_time
+      and q.device_id is not distinct from p.device_id
+      and q.verify_mode is not distinct from p.verify_mode
+      and q.in_out_mode is not distinct from p.in_out_mode
+      and q.id < p.id);
+
+alter table punch_logs add constraint if not exists uk_punch_logs_natural_key
+    unique nulls not distinct (user_id, punch_time, device_id, verify_mode, in_out_mode);
+
+-- Covered by the leading columns of the natural key
+drop index if exists idx_punch_logs_user_time;
@@ -0,0 +1,63 @@
+-- Schema as created by Hibernate before migrations were introduced.
+-- Existing databases are baselined below this version (spring.flyway.baseline-version: 0),
+-- so this runs on them too: the creates are skipped for tables Hibernate made, and the
+-- statements at the end bring a database from before device ids and sync cursors up to date.
+
+create sequence if not exists punch_logs_seq start with 1 increment by 50;
+create sequence if not exists biometric_templates_seq start with 1 increment by 50;
+
+create table if not exists punch_logs (
+    id          bigint                      not null,
+    device_id   varchar(32),
+    user_id     varchar(32)                 not null,
+    name        varchar(64),
+    punch_time  timestamp(6) with time zone not null,
+    verify_mode integer,
+    in_out_mode integer,
+    work_code   varchar(16),
+    synced_at   timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create table if not exists biometric_templates (
+    id            bigint                      not null,
+    device_id     varchar(32),
+    user_id       varchar(32)                 not null,
+    name          varchar(64),
+    finger_index  integer,
+    template_data oid                         not null, -- Hibernate maps @Lob String to a large object here
+    template_hash varchar(64),
+    alg_version   varchar(32),
+    enabled       boolean,
+    created_at    timestamp(6) with time zone not null,
+    primary key (id),
+    constraint uk_device_user_finger unique (device_id, user_id, finger_index)
+);
+
+create table if not exists device_sync_cursors (
+    device_key        varchar(64)                 not null,
+    last_record_index bigint                      not null,
+    last_punch_time   timestamp(6) with time zone,
+    updated_at        timestamp(6) with time zone not null,
+    primary key (device_key)
+);
+
+-- Databases created before device ids were stored
+alter table punch_logs add column if not exists device_id varchar(32);
+alter table biometric_templates add column if not exists device_id varchar(32);
+alter table biometric_templates add column if not exists template_hash varchar(64);
+alter table biometric_templates drop constraint if exists uk_user_finger;
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'uk_device_user_finger') then
+        alter table biometric_templates add constraint uk_device_user_finger unique (device_id, user_id, finger_index);
+    end if;
+end $$;
+
+-- Databases created when ids were IDENTITY columns: ids now come from the
+-- pooled sequences, which hand out the 50 ids below each value, so they
+-- restart 50 above the highest id stored
+alter table punch_logs alter column id drop identity if exists;
+alter table biometric_templates alter column id drop identity if exists;
+select setval('punch_logs_seq', coalesce(max(id), 0) + 50, false) from punch_logs;
+select setval('biometric_templates_seq', coalesce(max(id), 0) + 50, false) from biometric_templates;
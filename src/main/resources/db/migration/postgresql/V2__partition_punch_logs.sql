@@ -0,0 +1,64 @@
+-- Turns punch_logs into a table range-partitioned by month on punch_time, so
+-- time-bounded queries only touch the months they need and old months can be
+-- detached or dropped instead of deleted row by row (see PunchRetentionService).
+-- Partitions are named punch_logs_pYYYYMM and cover UTC calendar months; rows
+-- outside every partition land in punch_logs_default.
+
+alter table punch_logs rename to punch_logs_unpartitioned;
+alter table punch_logs_unpartitioned rename constraint punch_logs_pkey to punch_logs_unpartitioned_pkey;
+
+create table punch_logs (
+    id          bigint                      not null,
+    device_id   varchar(32),
+    user_id     varchar(32)                 not null,
+    name        varchar(64),
+    punch_time  timestamp(6) with time zone not null,
+    verify_mode integer,
+    in_out_mode integer,
+    work_code   varchar(16),
+    synced_at   timestamp(6) with time zone not null,
+    -- the partition key has to be part of every unique constraint
+    primary key (id, punch_time)
+) partition by range (punch_time);
+
+create table punch_logs_default partition of punch_logs default;
+
+create index idx_punch_logs_user_time on punch_logs (user_id, punch_time);
+create index idx_punch_logs_time_id on punch_logs (punch_time, id);
+
+-- Creates the partition for the month starting at month_start, moving any
+-- rows of that month out of the default partition first. Idempotent.
+create or replace function punch_logs_create_partition(month_start date) returns void
+language plpgsql as $$
+declare
+    part text := 'punch_logs_p' || to_char(month_start, 'YYYYMM');
+    lo timestamptz := month_start::timestamp at time zone 'UTC';
+    hi timestamptz := (month_start + interval '1 month')::timestamp at time zone 'UTC';
+begin
+    if to_regclass(part) is not null then
+        return;
+    end if;
+    execute format('create table %I (like punch_logs including defaults including constraints)', part);
+    execute format('with moved as (delete from punch_logs_default where punch_time >= %L and punch_time < %L returning *)'
+                   ' insert into %I select * from moved', lo, hi, part);
+    execute format('alter table punch_logs attach partition %I for values from (%L) to (%L)', part, lo, hi);
+end $$;
+
+-- One partition per month from the oldest stored punch up to three months ahead
+do $$
+declare
+    first_month date := date_trunc('month', coalesce(
+            (select min(punch_time) from punch_logs_unpartitioned), now()) at time zone 'UTC')::date;
+    last_month date := (date_trunc('month', now() at time zone 'UTC') + interval '3 month')::date;
+    m date;
+begin
+    for m in select generate_series(first_month, last_month, interval '1 month')::date loop
+        perform punch_logs_create_partition(m);
+    end loop;
+end $$;
+
+-- by name: V1 appends device_id to tables created before it existed
+insert into punch_logs (id, device_id, user_id, name, punch_time, verify_mode, in_out_mode, work_code, synced_at)
+select id, device_id, user_id, name, punch_time, verify_mode, in_out_mode, work_code, synced_at
+from punch_logs_unpartitioned;
+drop table punch_logs_unpartitioned;
@@ -0,0 +1,24 @@
+-- Daily attendance summaries maintained by AttendanceService as punches are ingested.
+
+create sequence if not exists daily_attendance_seq start with 1 increment by 50;
+
+create table if not exists daily_attendance (
+    id                bigint                      not null,
+    user_id           varchar(32)                 not null,
+    name              varchar(64),
+    work_date         date                        not null,
+    first_in          timestamp(6) with time zone,
+    last_out          timestamp(6) with time zone,
+    worked_seconds    bigint                      not null,
+    break_seconds     bigint                      not null,
+    punch_count       integer                     not null,
+    duplicate_punches integer                     not null,
+    missing_in        integer                     not null,
+    missing_out       integer                     not null,
+    updated_at        timestamp(6) with time zone not null,
+    primary key (id),
+    constraint uk_daily_attendance_user_date unique (user_id, work_date)
+);
+
+-- Timesheets over a date range for every user
+create index if not exists idx_daily_attendance_date_user on daily_attendance (work_date, user_id);
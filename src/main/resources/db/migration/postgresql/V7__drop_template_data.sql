@@ -0,0 +1,10 @@
+-- Template data now lives in biometric_template_payloads (V5, V6)
+
+-- template_data held large object ids; dropping the column would leak the objects
+select lo_unlink(template_data) from biometric_templates where template_data is not null;
+
+alter table biometric_templates alter column payload_id set not null;
+alter table biometric_templates add constraint uk_biometric_templates_payload unique (payload_id);
+alter table biometric_templates add constraint fk_biometric_templates_payload
+    foreign key (payload_id) references biometric_template_payloads (id);
+alter table biometric_templates drop column template_data;
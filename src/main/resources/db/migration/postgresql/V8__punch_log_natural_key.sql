@@ -0,0 +1,22 @@
+-- A punch is identified by its device, user, timestamp and modes, so reading
+-- the same record again cannot store it twice (BulkIngestWriter inserts with
+-- ON CONFLICT DO NOTHING). Existing duplicates keep their oldest row; daily
+-- attendance counted them, rebuild it for the affected days
+-- (POST /zkteco/attendance/rebuild). The key holds punch_time, the partition
+-- key, so it is enforced per partition and created on attached partitions.
+-- A missing device or mode is part of the key like any value: rows without
+-- one are duplicates when the rest matches (NULLS NOT DISTINCT, PostgreSQL 15+).
+
+delete from punch_logs p using punch_logs q
+where q.user_id = p.user_id
+  and q.punch_time = p.punch_time
+  and q.device_id is not distinct from p.device_id
+  and q.verify_mode is not distinct from p.verify_mode
+  and q.in_out_mode is not distinct from p.in_out_mode
+  and q.id < p.id;
+
+alter table punch_logs add constraint uk_punch_logs_natural_key
+    unique nulls not distinct (user_id, punch_time, device_id, verify_mode, in_out_mode);
+
+-- Covered by the leading columns of the natural key
+drop index idx_punch_logs_user_time;
@@ -0,0 +1,64 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveIntervalTests {
+
+    private static final Instant EIGHT_AM = Instant.parse("2024-07-01T08:00:00Z");
+
+    private final ZktecoProperties.Scheduler config = new ZktecoProperties.Scheduler();
+    private final AdaptiveInterval interval = new AdaptiveInterval(config, ZoneOffset.UTC);
+
+    @Test
+    void testIdleAndFailingDevicesBackOffUpToTheMaximum() {
+        // Given
+        interval.next(ok(500), EIGHT_AM.minusSeconds(60)); // initial backlog
+
+        // When
+        Duration busy = interval.next(ok(5), EIGHT_AM);
+        Duration idle = interval.next(ok(0), EIGHT_AM.plusSeconds(60));
+        Duration idleAgain = interval.next(ok(0), EIGHT_AM.plusSeconds(180));
+        Duration failed = interval.next(DeviceSyncResult.failed("d", 0, System.nanoTime(), "timeout"),
+                EIGHT_AM.plusSeconds(300));
+        for (int i = 0; i < 10; i++) {
+            interval.next(ok(0), EIGHT_AM.plusSeconds(400 + i));
+        }
+        Duration longIdle = interval.next(ok(0), EIGHT_AM.plusSeconds(500));
+
+        // Then
+        assertThat(busy).isEqualTo(Duration.ofSeconds(60));
+        assertThat(idle).isEqualTo(Duration.ofSeconds(120));
+        assertThat(idleAgain).isEqualTo(Duration.ofSeconds(240));
+        assertThat(failed).isEqualTo(Duration.ofSeconds(120));
+        assertThat(longIdle).isEqualTo(Duration.ofSeconds(600));
+    }
+
+    @Test
+    void testPeakShortensIntervalAndIsExpectedAtTheSameTimeNextDay() {
+        // Given
+        interval.next(ok(500), EIGHT_AM.minusSeconds(60)); // initial backlog
+
+        // When
+        Duration peak = interval.next(ok(50), EIGHT_AM); // 50 punches in a minute
+        interval.next(ok(0), EIGHT_AM.plusSeconds(3600));
+        Duration quiet = interval.next(ok(0), EIGHT_AM.plusSeconds(7200));
+        Duration nextMorning = interval.next(ok(0), EIGHT_AM.plus(Duration.ofDays(1)).minusSeconds(30));
+
+        // Then
+        assertThat(peak).isEqualTo(Duration.ofSeconds(10));
+        assertThat(quiet).isGreaterThan(Duration.ofSeconds(60));
+        assertThat(nextMorning).isEqualTo(Duration.ofSeconds(10));
+        assertThat(interval.isPeak()).isTrue();
+    }
+
+    private static DeviceSyncResult ok(int count) {
+        return DeviceSyncResult.ok("d", count, System.nanoTime());
+    }
+}
@@ -0,0 +1,81 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttendancePairingTests {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final OffsetDateTime DAY = OffsetDateTime.of(2024, 6, 3, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void testPairsWorkAndBreakIntervals() {
+        // Given
+        List<PunchLog> punches = List.of(
+                punch(8, 0, 0),     // check-in
+                punch(12, 0, 2),    // break-out
+                punch(12, 30, 3),   // break-in
+                punch(17, 0, 1));   // check-out
+
+        // When
+        AttendancePairing.DayTotals totals = AttendancePairing.pair(punches, WINDOW);
+
+        // Then
+        assertThat(totals.workedSeconds()).isEqualTo(Duration.ofHours(8).plusMinutes(30).toSeconds());
+        assertThat(totals.breakSeconds()).isEqualTo(Duration.ofMinutes(30).toSeconds());
+        assertThat(totals.firstIn()).isEqualTo(DAY.withHour(8));
+        assertThat(totals.lastOut()).isEqualTo(DAY.withHour(17));
+        assertThat(totals.missingIn()).isZero();
+        assertThat(totals.missingOut()).isZero();
+    }
+
+    @Test
+    void testIgnoresDuplicatesAndCountsMissingPunches() {
+        // Given
+        List<PunchLog> punches = List.of(
+                punch(18, 0, 1),    // second out: its in is missing (listed first, order does not matter)
+                punch(8, 0, 0),
+                punch(8, 0, 0),     // double tap
+                punch(12, 0, 0),    // in again: the morning out is missing
+                punch(16, 0, 1));
+
+        // When
+        AttendancePairing.DayTotals totals = AttendancePairing.pair(punches, WINDOW);
+
+        // Then
+        assertThat(totals.punchCount()).isEqualTo(5);
+        assertThat(totals.duplicatePunches()).isEqualTo(1);
+        assertThat(totals.workedSeconds()).isEqualTo(Duration.ofHours(4).toSeconds());
+        assertThat(totals.missingIn()).isEqualTo(1);
+        assertThat(totals.missingOut()).isEqualTo(1);
+        assertThat(totals.lastOut()).isEqualTo(DAY.withHour(18));
+    }
+
+    @Test
+    void testAlternatesPunchesOfTerminalsWithoutStateKey() {
+        // Given
+        List<PunchLog> punches = List.of(punch(8, 0, 0), punch(12, 0, 0), punch(13, 0, 0));
+
+        // When
+        AttendancePairing.DayTotals totals = AttendancePairing.pair(punches, WINDOW);
+
+        // Then
+        assertThat(totals.workedSeconds()).isEqualTo(Duration.ofHours(4).toSeconds());
+        assertThat(totals.missingOut()).isEqualTo(1);
+        assertThat(totals.lastOut()).isEqualTo(DAY.withHour(12));
+    }
+
+    private static PunchLog punch(int hour, int minute, int inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId("100");
+        punch.setPunchTime(DAY.withHour(hour).withMinute(minute));
+        punch.setInOutMode(inOutMode);
+        return punch;
+    }
+}
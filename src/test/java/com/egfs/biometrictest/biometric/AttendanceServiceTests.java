@@ -0,0 +1,87 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AttendanceServiceTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 1);
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testApplyUpdatesOnlyTouchedDaysAsPunchesArrive() {
+        // Given
+        ingest(punch("att-1", DAY, 8, 0), punch("att-2", DAY, 9, 0));
+
+        // When
+        ingest(punch("att-1", DAY, 17, 1));
+
+        // Then
+        List<DailyAttendance> days = attendanceService.findDays(DAY, DAY, null, null, 10).items().stream()
+                .filter(d -> d.getUserId().startsWith("att-")).toList();
+        assertThat(days).extracting(DailyAttendance::getUserId).containsExactly("att-1", "att-2");
+        assertThat(days.get(0).getWorkedSeconds()).isEqualTo(Duration.ofHours(9).toSeconds());
+        assertThat(days.get(0).isIncomplete()).isFalse();
+        assertThat(days.get(1).getMissingOut()).isEqualTo(1);
+    }
+
+    @Test
+    void testRebuildSummarizesPunchesStoredBeforeAndPagesByUser() {
+        // Given
+        LocalDate day = DAY.plusDays(10);
+        punchLogRepository.saveAll(List.of(
+                punch("reb-1", day, 8, 0), punch("reb-1", day, 12, 1),
+                punch("reb-2", day, 8, 0), punch("reb-2", day, 16, 1)));
+
+        // When
+        int written = attendanceService.rebuild(day, day);
+        AttendancePage first = attendanceService.findDays(day, day, null, null, 1);
+        AttendancePage second = attendanceService.findDays(day, day, null, first.nextCursor(), 1);
+
+        // Then
+        assertThat(written).isEqualTo(2);
+        assertThat(first.items()).extracting(DailyAttendance::getUserId).containsExactly("reb-1");
+        assertThat(first.items().get(0).getWorkedSeconds()).isEqualTo(Duration.ofHours(4).toSeconds());
+        assertThat(second.items()).extracting(DailyAttendance::getUserId).containsExactly("reb-2");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    /** Stores punches and applies them like an ingest batch does. */
+    private void ingest(PunchLog... punches) {
+        transactionTemplate.executeWithoutResult(status ->
+                attendanceService.apply(punchLogRepository.saveAll(List.of(punches))));
+    }
+
+    private static PunchLog punch(String userId, LocalDate day, int hour, int inOutMode) {
+        LocalDateTime time = day.atTime(hour, 0);
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setPunchTime(OffsetDateTime.of(time, ZoneId.systemDefault().getRules().getOffset(time)));
+        punch.setVerifyMode(1);
+        punch.setInOutMode(inOutMode);
+        punch.setWorkCode("0");
+        return punch;
+    }
+}
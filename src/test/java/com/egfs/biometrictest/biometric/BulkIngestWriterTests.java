@@ -0,0 +1,102 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkIngestWriterTests {
+
+    @Autowired
+    private BulkIngestWriter writer;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testWritePunchesInBatches() {
+        // Given
+        OffsetDateTime start = OffsetDateTime.now().minusDays(1);
+        List<PunchLog> punches = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            PunchLog punch = new PunchLog();
+            punch.setUserId("bulk-" + (i % 10));
+            punch.setPunchTime(start.plusSeconds(i));
+            punch.setVerifyMode(1);
+            punch.setInOutMode(i % 2);
+            punch.setWorkCode("0");
+            punches.add(punch);
+        }
+        long before = punchLogRepository.count();
+
+        // When
+        int written = writer.writePunches(punches);
+
+        // Then
+        assertThat(written).isEqualTo(1234);
+        assertThat(punchLogRepository.count()).isEqualTo(before + 1234);
+        assertThat(punches).allSatisfy(p -> assertThat(p.getId()).isNotNull());
+        assertThat(punches.stream().map(PunchLog::getId).distinct()).hasSize(1234);
+    }
+
+    @Test
+    void testWritePunchesSkipsPunchesAlreadyStored() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.now().minusDays(1).withNano(0);
+        writer.writePunches(List.of(punch("dup-1", time, 0), punch("dup-2", time, 0)));
+        long before = punchLogRepository.count();
+
+        // When
+        List<PunchLog> inserted = writer.insertNewPunches(List.of(punch("dup-1", time, 0), punch("dup-1", time, 1),
+                punch("dup-3", time, 0), punch("dup-3", time, 0)));
+
+        // Then
+        assertThat(inserted).extracting(PunchLog::getUserId, PunchLog::getInOutMode)
+                .containsExactly(tuple("dup-1", 1), tuple("dup-3", 0));
+        assertThat(punchLogRepository.count()).isEqualTo(before + 2);
+    }
+
+    @Test
+    void testWritePunchesSkipsStoredPunchesWithoutDeviceOrModes() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.now().minusDays(1).withNano(0);
+        writer.writePunches(List.of(unkeyed("null-1", time)));
+        long before = punchLogRepository.count();
+
+        // When
+        int written = writer.writePunches(List.of(unkeyed("null-1", time), unkeyed("null-2", time)));
+        int rewritten = writer.writePunches(List.of(unkeyed("null-2", time)));
+
+        // Then
+        assertThat(written).isEqualTo(1);
+        assertThat(rewritten).isZero();
+        assertThat(punchLogRepository.count()).isEqualTo(before + 1);
+    }
+
+    /** A legacy row: no device id, verify mode or in/out mode. */
+    private static PunchLog unkeyed(String userId, OffsetDateTime time) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setPunchTime(time);
+        return punch;
+    }
+
+    private static PunchLog punch(String userId, OffsetDateTime time, int inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setDeviceId("dup");
+        punch.setUserId(userId);
+        punch.setPunchTime(time);
+        punch.setVerifyMode(1);
+        punch.setInOutMode(inOutMode);
+        return punch;
+    }
+}
@@ -0,0 +1,131 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceClientFactory;
+import com.egfs.biometrictest.device.DeviceException;
+import com.egfs.biometrictest.device.MeteredDeviceClient;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeviceSessionPoolTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ZktecoProperties props = new ZktecoProperties();
+    private final Device device = new Device();
+    private DeviceSessionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSessionIsNotEvictedWhileWorkRunsOrWaits() throws Exception {
+        // Given
+        pool = pool(600, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> pool.execute(device, client -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Long> queued = CompletableFuture.supplyAsync(() -> pool.execute(device,
+                client -> client.getAttendanceCount()));
+
+        // When
+        pool.maintain();
+        boolean keptWhileBusy = pool.getStatus().containsKey(device.getId());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        Thread.sleep(10);
+        pool.maintain();
+
+        // Then
+        assertThat(keptWhileBusy).isTrue();
+        assertThat(running.get()).isTrue();
+        assertThat(calls("connect")).isEqualTo(1);
+        assertThat(pool.getStatus()).doesNotContainKey(device.getId());
+    }
+
+    @Test
+    void testKeepalivePingsOnTheSessionThread() throws Exception {
+        // Given
+        props.getSimulation().setCallLatencyMs(200);
+        pool = pool(0, 600);
+        pool.execute(device, client -> client.getAttendanceCount());
+
+        // When
+        long start = System.nanoTime();
+        pool.maintain();
+        long maintainMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertThat(maintainMs).isLessThan(200);
+        assertThat(awaitCalls("firmwareVersion", 1)).isPositive();
+        assertThat(calls("connect")).isEqualTo(1);
+        assertThat(pool.getStatus()).containsKey(device.getId());
+    }
+
+    @Test
+    void testOnlyDeviceFailuresDropTheConnection() {
+        // Given
+        pool = pool(600, 600);
+        pool.execute(device, client -> client.getAttendanceCount());
+
+        // When
+        assertThatThrownBy(() -> pool.execute(device, client -> {
+            throw new SyncCancelledException("cancelled");
+        })).isInstanceOf(DeviceException.class).hasCauseInstanceOf(SyncCancelledException.class);
+        pool.execute(device, client -> client.getAttendanceCount());
+        long connectsAfterCancel = calls("connect");
+        assertThatThrownBy(() -> pool.execute(device, client -> {
+            throw new DeviceException("link down");
+        })).isInstanceOf(DeviceException.class).hasMessage("link down");
+        long count = pool.execute(device, client -> client.getAttendanceCount());
+
+        // Then
+        assertThat(connectsAfterCancel).isEqualTo(1);
+        assertThat(calls("connect")).isEqualTo(2);
+        assertThat(count).isEqualTo(props.getSimulation().getLogSize());
+    }
+
+    private DeviceSessionPool pool(long keepaliveSeconds, long idleTimeoutSeconds) {
+        device.setId("pool-sim");
+        device.setIp("127.0.0.1");
+        props.setBackend(DeviceClientFactory.BACKEND_SIM);
+        props.getSimulation().setUsers(5);
+        props.getSimulation().setLogSize(10);
+        props.getSimulation().setPunchesPerSecond(0);
+        // The tests run maintenance themselves; the pool also runs it every keepalive period (at least 1 s)
+        props.getSession().setKeepaliveSeconds(keepaliveSeconds);
+        props.getSession().setIdleTimeoutSeconds(idleTimeoutSeconds);
+        return new DeviceSessionPool(props, new DeviceClientFactory(props, registry));
+    }
+
+    private long calls(String operation) {
+        Timer timer = registry.find(MeteredDeviceClient.CALLS)
+                .tags("device", device.getId(), "operation", operation, "outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private long awaitCalls(String operation, long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && calls(operation) < expected; i++) {
+            Thread.sleep(20);
+        }
+        return calls(operation);
+    }
+}
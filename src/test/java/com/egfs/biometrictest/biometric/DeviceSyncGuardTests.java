@@ -0,0 +1,87 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeviceSyncGuardTests {
+
+    private final DeviceSyncGuard guard = new DeviceSyncGuard();
+
+    @Test
+    void testSecondSyncOfADeviceWaitsOrSkipsWhileTheFirstRuns() throws Exception {
+        // Given
+        Device device = device("guarded");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> guard.run(device, SyncProgress.NONE, () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        Optional<String> skipped = guard.tryRun(device, () -> "tick");
+        Optional<String> other = guard.tryRun(device("other"), () -> "other device");
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> guard.run(device, SyncProgress.NONE,
+                () -> "second"));
+        Thread.sleep(300);
+        boolean secondDoneWhileFirstRuns = second.isDone();
+        release.countDown();
+
+        // Then
+        assertThat(skipped).isEmpty();
+        assertThat(other).contains("other device");
+        assertThat(secondDoneWhileFirstRuns).isFalse();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(guard.tryRun(device, () -> "tick")).contains("tick");
+    }
+
+    @Test
+    void testCancelledSyncStopsWaitingForTheDevice() throws Exception {
+        // Given
+        Device device = device("cancelled");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> guard.run(device, SyncProgress.NONE, () -> {
+            started.countDown();
+            return await(release);
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        SyncProgress cancelled = new SyncProgress() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+
+        // When / Then
+        assertThatThrownBy(() -> guard.run(device, cancelled, () -> "never"))
+                .isInstanceOf(SyncCancelledException.class);
+        release.countDown();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Device device(String id) {
+        Device device = new Device();
+        device.setId(id);
+        return device;
+    }
+}
@@ -0,0 +1,89 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Three simulated terminals answering every call after 100 ms, and one
+ * device whose backend does not exist, so it fails on every sync.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fleet-sync",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=fleet-1",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.devices[1].id=fleet-2",
+        "zkteco.devices[1].ip=127.0.0.1",
+        "zkteco.devices[2].id=fleet-broken",
+        "zkteco.devices[2].ip=127.0.0.1",
+        "zkteco.devices[2].backend=unplugged",
+        "zkteco.devices[3].id=fleet-3",
+        "zkteco.devices[3].ip=127.0.0.1",
+        "zkteco.fleet.max-concurrency=4",
+        "zkteco.simulation.users=5",
+        "zkteco.simulation.fingers-per-user=2",
+        "zkteco.simulation.log-size=20",
+        "zkteco.simulation.punches-per-second=0",
+        "zkteco.simulation.call-latency-ms=100"})
+@ActiveProfiles("test")
+class FleetSyncServiceTests {
+
+    @Autowired
+    private FleetSyncService fleetSyncService;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testDevicesAreSyncedInParallel() {
+        // Given the four devices above; a template sync reads every template again each time
+
+        // When
+        long start = System.nanoTime();
+        List<DeviceSyncResult> results = fleetSyncService.syncTemplates();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        List<DeviceSyncResult> synced = results.stream().filter(DeviceSyncResult::success).toList();
+        long sequentialMs = synced.stream().mapToLong(DeviceSyncResult::durationMs).sum();
+        long slowestMs = synced.stream().mapToLong(DeviceSyncResult::durationMs).max().orElseThrow();
+        assertThat(synced).hasSize(3);
+        assertThat(slowestMs).isGreaterThanOrEqualTo(200);
+        assertThat(elapsedMs).isLessThan(sequentialMs);
+    }
+
+    @Test
+    void testFailingDeviceDoesNotStopTheOthers() {
+        // Given the device with the unknown backend
+
+        // When
+        List<DeviceSyncResult> punches = fleetSyncService.syncPunches();
+        List<DeviceSyncResult> templates = fleetSyncService.syncTemplates();
+
+        // Then
+        assertThat(templates).extracting(DeviceSyncResult::deviceId)
+                .containsExactly("fleet-1", "fleet-2", "fleet-broken", "fleet-3");
+        assertThat(templates).filteredOn(r -> !r.deviceId().equals("fleet-broken"))
+                .allSatisfy(result -> {
+                    assertThat(result.success()).isTrue();
+                    assertThat(result.count()).isEqualTo(10);
+                });
+        assertThat(templates).filteredOn(r -> r.deviceId().equals("fleet-broken")).singleElement()
+                .satisfies(result -> {
+                    assertThat(result.success()).isFalse();
+                    assertThat(result.count()).isZero();
+                    assertThat(result.error()).contains("unplugged");
+                });
+        assertThat(punches).extracting(DeviceSyncResult::success).containsExactly(true, true, false, true);
+        assertThat(punchLogRepository.findAll()).extracting(PunchLog::getDeviceId)
+                .hasSize(60)
+                .doesNotContain("fleet-broken");
+    }
+}
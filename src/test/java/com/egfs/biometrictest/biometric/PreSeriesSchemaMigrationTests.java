@@ -0,0 +1,125 @@
+package com.egfs.biometrictest.biometric;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application on a database created by {@code ddl-auto: update}
+ * before the schema was managed by Flyway, so the migrations have to upgrade
+ * it far enough for Hibernate to validate.
+ */
+@SpringBootTest(properties = "spring.datasource.url=" + PreSeriesSchemaMigrationTests.URL)
+@ActiveProfiles("test")
+class PreSeriesSchemaMigrationTests {
+    static final String URL = "jdbc:h2:mem:preseries;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Autowired
+    private BiometricTemplateRepository templateRepository;
+
+    @Autowired
+    private DeviceSyncCursorRepository cursorRepository;
+
+    @Autowired
+    private BulkIngestWriter writer;
+
+    @Autowired
+    private PunchService punchService;
+
+    @BeforeAll
+    static void createPreSeriesSchema() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    create table biometric_templates (
+                        id bigint generated by default as identity,
+                        alg_version varchar(32),
+                        created_at timestamp(6) with time zone not null,
+                        enabled boolean,
+                        finger_index integer,
+                        name varchar(64),
+                        template_data clob not null,
+                        user_id varchar(32) not null,
+                        primary key (id))""");
+            statement.execute("alter table biometric_templates add constraint uk_user_finger unique (user_id, finger_index)");
+            statement.execute("""
+                    create table punch_logs (
+                        id bigint generated by default as identity,
+                        in_out_mode integer,
+                        name varchar(64),
+                        punch_time timestamp(6) with time zone not null,
+                        synced_at timestamp(6) with time zone not null,
+                        user_id varchar(32) not null,
+                        verify_mode integer,
+                        work_code varchar(16),
+                        primary key (id))""");
+            statement.execute("""
+                    insert into punch_logs (user_id, name, punch_time, verify_mode, in_out_mode, work_code, synced_at)
+                    values ('legacy-user', 'Legacy', timestamp with time zone '2024-03-01 08:00:00+00', 1, 0, '0', current_timestamp),
+                           ('legacy-user', 'Legacy', timestamp with time zone '2024-03-01 17:00:00+00', 1, 1, '0', current_timestamp)""");
+            statement.execute("""
+                    insert into biometric_templates (user_id, name, finger_index, template_data, alg_version, enabled, created_at)
+                    values ('legacy-user', 'Legacy', 0, 'bGVnYWN5IHRlbXBsYXRl', '10', true, current_timestamp)""");
+        }
+    }
+
+    @Test
+    @Transactional
+    void testPreSeriesDatabaseIsUpgradedAndKeepsItsRows() {
+        // Given the schema created above, migrated on startup
+
+        // When
+        List<PunchLog> punches = legacyPunches();
+        List<BiometricTemplate> templates = templateRepository.findAll();
+
+        // Then
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("8");
+        assertThat(punches).hasSize(2).allSatisfy(punch -> assertThat(punch.getDeviceId()).isNull());
+        assertThat(templates).singleElement().satisfies(template -> {
+            assertThat(template.getUserId()).isEqualTo("legacy-user");
+            assertThat(template.getTemplateData()).isEqualTo("bGVnYWN5IHRlbXBsYXRl");
+        });
+        assertThat(cursorRepository.count()).isZero();
+    }
+
+    @Test
+    void testNewRowsGetIdsAboveThoseOfTheIdentityColumns() {
+        // Given
+        long highestLegacyId = legacyPunches().stream()
+                .mapToLong(PunchLog::getId).max().orElseThrow();
+        PunchLog punch = new PunchLog();
+        punch.setUserId("new-user");
+        punch.setPunchTime(OffsetDateTime.now(ZoneOffset.UTC));
+
+        // When
+        PunchLog saved = punchLogRepository.save(punch);
+        List<Long> reserved = writer.reservePunchIds(3);
+
+        // Then
+        assertThat(saved.getId()).isGreaterThan(highestLegacyId);
+        assertThat(reserved).allSatisfy(id -> assertThat(id).isGreaterThan(highestLegacyId));
+    }
+
+    private List<PunchLog> legacyPunches() {
+        return punchService.findPunches(new PunchQuery(null, null, "legacy-user", null, null, null), null, 10).items();
+    }
+}
@@ -0,0 +1,145 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PunchBroadcasterTests {
+
+    private final ZktecoProperties props = new ZktecoProperties();
+    private final PunchLogRepository repo = mock(PunchLogRepository.class);
+    private PunchBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testResumeReplaysFromBuffer() throws Exception {
+        // Given
+        broadcaster = new PunchBroadcaster(props, repo);
+        broadcaster.publish(List.of(punch(1), punch(2), punch(3)));
+
+        // When
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(1L, emitter);
+
+        // Then
+        assertThat(emitter.awaitIds(2)).containsExactly("2", "3");
+        verify(repo, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void testResumeOlderThanBufferReadsDatabase() throws Exception {
+        // Given
+        props.getSse().setReplayBufferSize(2);
+        broadcaster = new PunchBroadcaster(props, repo);
+        broadcaster.publish(List.of(punch(10), punch(11), punch(12)));
+        when(repo.findByIdGreaterThanOrderByIdAsc(eq(5L), any(Limit.class)))
+                .thenReturn(List.of(punch(6), punch(10)));
+
+        // When
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(5L, emitter);
+
+        // Then
+        assertThat(emitter.awaitIds(4)).containsExactly("6", "10", "11", "12");
+    }
+
+    @Test
+    void testHistoryImportIsNotStreamed() {
+        // Given
+        broadcaster = new PunchBroadcaster(props, repo);
+        PunchLog old = punch(1);
+        old.setPunchTime(OffsetDateTime.now().minusDays(3));
+
+        // When
+        broadcaster.publish(List.of(old, punch(2)));
+
+        // Then
+        assertThat(broadcaster.getStats()).containsEntry("published", 1L).containsEntry("replayBuffered", 1);
+    }
+
+    @Test
+    void testRetractedPunchesLeaveTheReplayBufferAndAreWithdrawnFromSubscribers() throws Exception {
+        // Given
+        broadcaster = new PunchBroadcaster(props, repo);
+        RecordingEmitter live = new RecordingEmitter();
+        broadcaster.subscribe(null, live);
+        broadcaster.publish(List.of(punch(1), punch(2), punch(3)));
+
+        // When
+        broadcaster.retract(List.of(punch(2)));
+        RecordingEmitter resumed = new RecordingEmitter();
+        broadcaster.subscribe(0L, resumed);
+
+        // Then
+        assertThat(live.awaitIds(3)).containsExactly("1", "2", "3");
+        assertThat(live.awaitData("retract")).containsExactly("2");
+        assertThat(resumed.awaitIds(2)).containsExactly("1", "3");
+        assertThat(broadcaster.getStats()).containsEntry("retracted", 1L).containsEntry("replayBuffered", 2);
+    }
+
+    private static PunchLog punch(long id) {
+        PunchLog punch = new PunchLog();
+        punch.setId(id);
+        punch.setUserId("100");
+        punch.setPunchTime(OffsetDateTime.now());
+        punch.setVerifyMode(1);
+        punch.setInOutMode(0);
+        return punch;
+    }
+
+    /** Captures the id line of every event sent, and the data of named events without an id. */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> ids = new CopyOnWriteArrayList<>();
+        private final List<String> named = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String text = builder.build().stream().map(d -> String.valueOf(d.getData())).collect(Collectors.joining());
+            String name = null;
+            for (String line : text.split("\n")) {
+                if (line.startsWith("id:")) {
+                    ids.add(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:") && name != null && !text.contains("id:")) {
+                    named.add(name + "=" + line.substring(5));
+                }
+            }
+        }
+
+        List<String> awaitData(String name) throws InterruptedException {
+            for (int i = 0; i < 100 && named.stream().noneMatch(e -> e.startsWith(name + "=")); i++) {
+                Thread.sleep(20);
+            }
+            return named.stream().filter(e -> e.startsWith(name + "="))
+                    .map(e -> e.substring(name.length() + 1)).toList();
+        }
+
+        List<String> awaitIds(int count) throws InterruptedException {
+            for (int i = 0; i < 100 && ids.size() < count; i++) {
+                Thread.sleep(20);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.egfs.biometrictest.biometric;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PunchExportServiceTests {
+
+    @Autowired
+    private PunchExportService exportService;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testExportCsvQuotesFieldsInTimeOrder() throws Exception {
+        // Given
+        OffsetDateTime start = OffsetDateTime.of(2024, 4, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        punchLogRepository.saveAll(List.of(
+                punch("csv-user", "Doe, \"JD\" John", start.plusMinutes(5)),
+                punch("csv-user", "Doe, \"JD\" John", start)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = exportService.export(new PunchQuery(null, null, "csv-user", null, null, null),
+                PunchExportService.Format.CSV, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualTo("id,device_id,user_id,name,punch_time,verify_mode,in_out_mode,work_code,synced_at");
+        assertThat(lines[1]).contains(",csv-user,\"Doe, \"\"JD\"\" John\",2024-04-01T08:00Z,1,0,0,");
+        assertThat(lines[2]).contains("2024-04-01T08:05Z");
+    }
+
+    @Test
+    void testExportNdjsonWritesOneObjectPerLine() throws Exception {
+        // Given
+        OffsetDateTime start = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        List<PunchLog> punches = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            punches.add(punch("json-user", null, start.plusMinutes(i)));
+        }
+        punchLogRepository.saveAll(punches);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = exportService.export(new PunchQuery(start.plusMinutes(10), null, "json-user", null, null, null),
+                PunchExportService.Format.NDJSON, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(40);
+        assertThat(lines).hasSize(40);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertThat(first.get("userId").asText()).isEqualTo("json-user");
+        assertThat(first.get("name").isNull()).isTrue();
+        assertThat(first.get("verifyMode").asInt()).isEqualTo(1);
+    }
+
+    private static PunchLog punch(String userId, String name, OffsetDateTime time) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setName(name);
+        punch.setPunchTime(time);
+        punch.setVerifyMode(1);
+        punch.setInOutMode(0);
+        punch.setWorkCode("0");
+        return punch;
+    }
+}
@@ -0,0 +1,98 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PunchHotStoreTests {
+
+    private final ZktecoProperties props = new ZktecoProperties();
+    private final PunchHotStore store = new PunchHotStore(props, null);
+
+    @Test
+    void testScansReturnNewestFirstAcrossDaysAndLatePunches() {
+        // Given
+        Instant today = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        Instant yesterday = today.minus(1, ChronoUnit.DAYS);
+        store.record(List.of(punch("1", "a", yesterday.plusSeconds(3600), 1, 0),
+                punch("2", "a", yesterday.plusSeconds(7200), 1, 0),
+                punch("1", "b", today.plusSeconds(60), 2, 1)));
+        store.record(List.of(punch("2", "b", yesterday.plusSeconds(1800), null, null))); // late, from another device
+
+        // When
+        List<PunchHotStore.HotPunch> all = store.find(yesterday, today.plus(1, ChronoUnit.DAYS), null, 10);
+        List<PunchHotStore.HotPunch> user = store.find(yesterday, today.plus(1, ChronoUnit.DAYS), "1", 10);
+        List<PunchHotStore.HotPunch> firstTwo = store.find(yesterday, today, null, 2);
+
+        // Then
+        assertThat(all).extracting(PunchHotStore.HotPunch::time).containsExactly(today.plusSeconds(60),
+                yesterday.plusSeconds(7200), yesterday.plusSeconds(3600), yesterday.plusSeconds(1800));
+        assertThat(all.get(0)).isEqualTo(new PunchHotStore.HotPunch("1", "b", today.plusSeconds(60), 2, 1));
+        assertThat(all.get(3)).isEqualTo(new PunchHotStore.HotPunch("2", "b", yesterday.plusSeconds(1800), null, null));
+        assertThat(user).extracting(PunchHotStore.HotPunch::time)
+                .containsExactly(today.plusSeconds(60), yesterday.plusSeconds(3600));
+        assertThat(firstTwo).extracting(PunchHotStore.HotPunch::userId).containsExactly("2", "1");
+        assertThat(store.count(yesterday.plusSeconds(1800), yesterday.plusSeconds(7200))).isEqualTo(2);
+        assertThat(store.find(yesterday, today, "unknown", 10)).isEmpty();
+    }
+
+    @Test
+    void testPresenceFollowsEachUsersLatestPunch() {
+        // Given
+        props.getHotStore().setPresenceHours(12);
+        Instant now = Instant.now();
+        store.record(List.of(
+                punch("in", "a", now.minusSeconds(3600), 1, 0),
+                punch("out", "a", now.minusSeconds(7200), 1, 0),
+                punch("out", "a", now.minusSeconds(600), 1, 1),
+                punch("break", "a", now.minusSeconds(300), 1, 2),
+                punch("back", "a", now.minusSeconds(900), 1, 2),
+                punch("back", "b", now.minusSeconds(60), 1, 3),
+                punch("stale", "a", now.minus(13, ChronoUnit.HOURS), 1, 0)));
+
+        // When
+        List<PunchHotStore.Presence> present = store.presence(now);
+
+        // Then
+        assertThat(present).extracting(PunchHotStore.Presence::userId).containsExactly("back", "in");
+        assertThat(present.get(0).deviceId()).isEqualTo("b");
+        assertThat(present.get(0).name()).isEqualTo("User back");
+        assertThat(present.get(0).inOutMode()).isEqualTo(3);
+    }
+
+    @Test
+    void testPunchesBeforeTheWindowAreDropped() {
+        // Given
+        props.getHotStore().setDays(2);
+        Instant now = Instant.now();
+        Instant windowStart = store.windowStart(now);
+        store.record(List.of(punch("1", "a", windowStart.minusSeconds(1), 1, 0),
+                punch("1", "a", windowStart, 1, 0)));
+
+        // When
+        long count = store.count(windowStart.minus(10, ChronoUnit.DAYS), now.plusSeconds(1));
+
+        // Then
+        assertThat(windowStart).isEqualTo(now.atOffset(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS)
+                .minusDays(1).toInstant());
+        assertThat(count).isEqualTo(1);
+        assertThat(store.getStats()).containsEntry("punches", 1L).containsEntry("users", 1);
+    }
+
+    private static PunchLog punch(String userId, String deviceId, Instant time, Integer verifyMode, Integer inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setName("User " + userId);
+        punch.setDeviceId(deviceId);
+        punch.setPunchTime(time.atOffset(ZoneOffset.UTC));
+        punch.setVerifyMode(verifyMode);
+        punch.setInOutMode(inOutMode);
+        return punch;
+    }
+}
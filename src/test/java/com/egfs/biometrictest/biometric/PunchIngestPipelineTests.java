@@ -0,0 +1,214 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingest-pipeline",
+        "zkteco.ingest.ring-size=8",
+        "zkteco.ingest.group-commit-rows=200"})
+@ActiveProfiles("test")
+class PunchIngestPipelineTests {
+
+    @Autowired
+    private PunchIngestPipeline pipeline;
+
+    @Autowired
+    private DeviceSyncCursorRepository cursorRepo;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Autowired
+    private BulkIngestWriter writer;
+
+    @Autowired
+    private PunchBroadcaster broadcaster;
+
+    @Test
+    void testBatchesOfConcurrentReadersAreAllStoredWithTheirCursors() throws Exception {
+        // Given
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<List<PunchLog>>> read = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            String deviceId = "pipeline-" + r;
+            read.add(readers.submit(() -> readDevice(deviceId, 20, 25)));
+        }
+
+        // When
+        List<PunchLog> submitted = new ArrayList<>();
+        for (Future<List<PunchLog>> future : read) {
+            submitted.addAll(future.get());
+        }
+        readers.shutdown();
+
+        // Then
+        assertThat(submitted).hasSize(4 * 20 * 25);
+        assertThat(submitted.stream().map(PunchLog::getId).distinct()).hasSize(submitted.size());
+        assertThat(punchLogRepository.findAllById(submitted.stream().map(PunchLog::getId).toList()))
+                .hasSize(submitted.size());
+        for (int r = 0; r < 4; r++) {
+            DeviceSyncCursor cursor = cursorRepo.findById("pipeline-" + r).orElseThrow();
+            assertThat(cursor.getLastRecordIndex()).isEqualTo(20 * 25);
+        }
+        assertThat((Long) pipeline.getStats().get("groupCommits"))
+                .isLessThanOrEqualTo((Long) pipeline.getStats().get("storedBatches"));
+    }
+
+    @Test
+    void testFailedWriteDropsLaterBatchesOfTheDeviceAndRewindsItsCursor() {
+        // Given
+        PunchIngestPipeline.Position position = pipeline.open("failing", () -> new DeviceSyncCursor("failing"));
+        position.cursor().setLastRecordIndex(1);
+        PunchLog broken = punch(0);
+        broken.setUserId(null); // violates NOT NULL
+        CompletableFuture<Integer> failed = pipeline.submit("failing", List.of(broken), position);
+        position.cursor().setLastRecordIndex(2);
+        CompletableFuture<Integer> later = pipeline.submit("failing", List.of(punch(1)), position);
+        CompletableFuture<Integer> other = pipeline.submit("healthy", List.of(punch(2)),
+                pipeline.open("healthy", () -> new DeviceSyncCursor("healthy")));
+
+        // When
+        Integer stored = other.join();
+        PunchIngestPipeline.Position reopened = pipeline.open("failing",
+                () -> cursorRepo.findById("failing").orElseGet(() -> new DeviceSyncCursor("failing")));
+
+        // Then
+        assertThat(stored).isEqualTo(1);
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(later).isCompletedExceptionally();
+        assertThat(reopened.cursor().getLastRecordIndex()).isZero();
+        assertThat(reopened.generation()).isGreaterThan(position.generation());
+        assertThat(pipeline.submit("failing", List.of(punch(3)), reopened).join()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedWriteForgetsItsKeysAndLeavesTheCursorForTheRetry() {
+        // Given
+        DeviceSyncCursor storedCursor = new DeviceSyncCursor("retry");
+        storedCursor.setLastRecordIndex(5);
+        cursorRepo.save(storedCursor);
+        PunchIngestPipeline.Position position = pipeline.open("retry",
+                () -> cursorRepo.findById("retry").orElseThrow());
+        OffsetDateTime time = OffsetDateTime.now().minusDays(4).withNano(0);
+        PunchLog broken = keyed("retry", null, time); // violates NOT NULL, so only the write fails
+        position.cursor().setLastRecordIndex(7);
+        long keysBefore = ((Number) pipeline.getStats().get("recentKeys")).longValue();
+        long duplicatesBefore = (Long) pipeline.getStats().get("duplicatesDropped");
+
+        // When
+        CompletableFuture<Integer> failed = pipeline.submit("retry",
+                List.of(keyed("retry", "retry-0", time), broken), position);
+        Throwable failure = failed.handle((stored, e) -> e).join();
+        PunchIngestPipeline.Position retry = pipeline.open("retry",
+                () -> cursorRepo.findById("retry").orElseThrow());
+        long cursorAfterFailure = retry.cursor().getLastRecordIndex();
+        long keysAfterFailure = ((Number) pipeline.getStats().get("recentKeys")).longValue();
+        retry.cursor().setLastRecordIndex(7);
+        int stored = pipeline.submit("retry",
+                List.of(keyed("retry", "retry-0", time), keyed("retry", "retry-1", time)), retry).join();
+
+        // Then
+        assertThat(failure).isNotNull();
+        assertThat(cursorAfterFailure).isEqualTo(5);
+        assertThat(keysAfterFailure).isEqualTo(keysBefore);
+        assertThat(stored).isEqualTo(2);
+        assertThat((Long) pipeline.getStats().get("duplicatesDropped")).isEqualTo(duplicatesBefore);
+        assertThat(cursorRepo.findById("retry").orElseThrow().getLastRecordIndex()).isEqualTo(7);
+    }
+
+    @Test
+    void testPunchesReadAgainAreStoredOnce() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.now().minusDays(3).withNano(0);
+        PunchLog stored = keyed("again", "again-0", time);
+        writer.writePunches(List.of(stored)); // in the database, not in the recent keys
+        PunchIngestPipeline.Position position = pipeline.open("again", () -> new DeviceSyncCursor("again"));
+        long duplicatesBefore = (Long) pipeline.getStats().get("duplicatesDropped");
+
+        // When
+        int first = pipeline.submit("again", List.of(keyed("again", "again-0", time),
+                keyed("again", "again-1", time), keyed("again", "again-2", time)), position).join();
+        int second = pipeline.submit("again", List.of(keyed("again", "again-1", time),
+                keyed("again", "again-2", time), keyed("again", "again-3", time)), position).join();
+
+        // Then
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isEqualTo(1);
+        assertThat(punchLogRepository.findAll()).filteredOn(p -> "again".equals(p.getDeviceId()))
+                .extracting(PunchLog::getUserId)
+                .containsExactlyInAnyOrder("again-0", "again-1", "again-2", "again-3");
+        assertThat((Long) pipeline.getStats().get("duplicatesDropped")).isEqualTo(duplicatesBefore + 3);
+    }
+
+    @Test
+    void testRealtimePunchStoredBeforeIsRetractedFromTheStream() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.now().withNano(0);
+        writer.writePunches(List.of(keyed("retract", "retract-0", time))); // not in the recent keys
+        PunchIngestPipeline.Position position = pipeline.open("retract", () -> new DeviceSyncCursor("retract"));
+        long publishedBefore = (Long) broadcaster.getStats().get("published");
+        long retractedBefore = (Long) broadcaster.getStats().get("retracted");
+
+        // When
+        int stored = pipeline.submit("retract", List.of(keyed("retract", "retract-0", time),
+                keyed("retract", "retract-1", time)), position).join();
+
+        // Then
+        assertThat(stored).isEqualTo(1);
+        assertThat((Long) broadcaster.getStats().get("published")).isEqualTo(publishedBefore + 2);
+        assertThat((Long) broadcaster.getStats().get("retracted")).isEqualTo(retractedBefore + 1);
+    }
+
+    /** Reads {@code batches} batches as a sync does: each awaited, the cursor advanced each time. */
+    private List<PunchLog> readDevice(String deviceId, int batches, int batchSize) {
+        PunchIngestPipeline.Position position = pipeline.open(deviceId, () -> new DeviceSyncCursor(deviceId));
+        List<PunchLog> all = new ArrayList<>();
+        List<CompletableFuture<Integer>> stored = new ArrayList<>();
+        for (int b = 0; b < batches; b++) {
+            List<PunchLog> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                PunchLog punch = punch(b * batchSize + i);
+                punch.setDeviceId(deviceId);
+                punch.setUserId(deviceId + "-" + i);
+                batch.add(punch);
+            }
+            position.cursor().setLastRecordIndex((long) (b + 1) * batchSize);
+            stored.add(pipeline.submit(deviceId, batch, position));
+            all.addAll(batch);
+        }
+        stored.forEach(CompletableFuture::join);
+        return all;
+    }
+
+    private static PunchLog keyed(String deviceId, String userId, OffsetDateTime time) {
+        PunchLog punch = new PunchLog();
+        punch.setDeviceId(deviceId);
+        punch.setUserId(userId);
+        punch.setPunchTime(time);
+        punch.setVerifyMode(1);
+        punch.setInOutMode(0);
+        return punch;
+    }
+
+    private static PunchLog punch(int i) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId("pipe-" + (i % 20));
+        punch.setPunchTime(OffsetDateTime.now().minusDays(2).plusSeconds(i));
+        punch.setVerifyMode(1);
+        punch.setInOutMode(i % 2);
+        return punch;
+    }
+}
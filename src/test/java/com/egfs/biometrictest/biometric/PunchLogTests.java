@@ -6,6 +6,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -16,6 +18,9 @@ class PunchLogTests {
     @Autowired
     private PunchLogRepository punchLogRepository;
 
+    @Autowired
+    private PunchService punchService;
+
     @Test
     void testPunchLogCreation() {
         // Given
@@ -58,7 +63,7 @@ class PunchLogTests {
         punchLogRepository.save(punch2);
 
         // When
-        var punches = punchLogRepository.findByUserIdOrderByPunchTimeDesc("101");
+        var punches = punchService.findPunches(new PunchQuery(null, null, "101", null, null, null), null, 10).items();
 
         // Then
         assertThat(punches).hasSize(2);
@@ -83,10 +88,17 @@ class PunchLogTests {
         punchLogRepository.save(punch2);
 
         // When
-        var allPunches = punchLogRepository.findAllByOrderByPunchTimeDesc();
+        List<PunchLog> allPunches = new ArrayList<>();
+        PunchQuery everything = new PunchQuery(null, null, null, null, null, null);
+        String cursor = null;
+        do {
+            PunchPage page = punchService.findPunches(everything, cursor, 2);
+            allPunches.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
 
         // Then
-        assertThat(allPunches).isNotEmpty();
+        assertThat(allPunches).extracting(PunchLog::getUserId).contains("102", "103");
         // Verify descending order
         for (int i = 0; i < allPunches.size() - 1; i++) {
             assertThat(allPunches.get(i).getPunchTime())
@@ -0,0 +1,92 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PunchQueryTests {
+
+    @Autowired
+    private PunchService punchService;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testPagesWalkAllMatchingPunchesNewestFirst() {
+        // Given: 25 punches, pairs sharing the same time so the id tiebreak matters
+        OffsetDateTime start = OffsetDateTime.of(2024, 2, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        List<PunchLog> punches = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            punches.add(punch("page-user", start.plusMinutes(i / 2), i % 2));
+        }
+        punchLogRepository.saveAll(punches);
+        PunchQuery query = new PunchQuery(null, null, "page-user", null, null, null);
+
+        // When
+        List<PunchLog> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PunchPage page = punchService.findPunches(query, cursor, 10);
+            seen.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(25).extracting(PunchLog::getId).doesNotHaveDuplicates();
+        for (int i = 1; i < seen.size(); i++) {
+            assertThat(seen.get(i).getPunchTime()).isBeforeOrEqualTo(seen.get(i - 1).getPunchTime());
+        }
+    }
+
+    @Test
+    void testFiltersByTimeRangeAndModes() {
+        // Given
+        OffsetDateTime start = OffsetDateTime.of(2024, 3, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+        List<PunchLog> punches = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            punches.add(punch("filter-user", start.plusHours(i), i % 2));
+        }
+        punchLogRepository.saveAll(punches);
+
+        // When
+        PunchPage page = punchService.findPunches(
+                new PunchQuery(start.plusHours(2), start.plusHours(8), "filter-user", null, 1, 1), null, 100);
+
+        // Then: hours 3, 5 and 7 are check-outs inside [2, 8)
+        assertThat(page.items()).extracting(p -> p.getPunchTime().getHour())
+                .containsExactly(15, 13, 11);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void testRejectsMalformedCursor() {
+        assertThatThrownBy(() -> punchService.findPunches(
+                new PunchQuery(null, null, null, null, null, null), "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PunchLog punch(String userId, OffsetDateTime time, int inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setPunchTime(time);
+        punch.setVerifyMode(1);
+        punch.setInOutMode(inOutMode);
+        punch.setWorkCode("0");
+        return punch;
+    }
+}
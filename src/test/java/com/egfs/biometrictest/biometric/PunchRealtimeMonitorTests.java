@@ -0,0 +1,94 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.AttendanceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the realtime monitor against a simulated terminal that loses half of
+ * its realtime events, so the event counts rarely line up with the record
+ * count and the monitor has to fall back to cursor reads.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:realtime-monitor",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=realtime-sim",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.simulation.users=20",
+        "zkteco.simulation.log-size=0",
+        "zkteco.simulation.punches-per-second=40",
+        "zkteco.simulation.event-loss-rate=0.5",
+        "zkteco.realtime.poll-interval-ms=50"})
+@ActiveProfiles("test")
+class PunchRealtimeMonitorTests {
+
+    @Autowired
+    private PunchService punchService;
+
+    @Autowired
+    private DeviceRegistry devices;
+
+    @Autowired
+    private DeviceSessionPool sessions;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @AfterEach
+    void stopMonitor() {
+        punchService.stopMonitoring();
+    }
+
+    @Test
+    void testPunchesWithLostEventsAreStillStoredOnce() throws Exception {
+        // Given
+        Device device = devices.getDefault();
+        punchService.registerForRealtimeUpdates(null);
+        Thread.sleep(1500);
+
+        // When
+        List<AttendanceRecord> log = sessions.execute(device, client -> {
+            List<AttendanceRecord> records = new ArrayList<>();
+            client.readAttendance(0, records::add);
+            return records;
+        });
+        List<PunchLog> stored = awaitStored(device, log.size());
+
+        // Then
+        assertThat(log).hasSizeGreaterThan(10);
+        Set<String> storedKeys = stored.stream()
+                .map(p -> key(p.getUserId(), p.getPunchTime().toLocalDateTime()))
+                .collect(Collectors.toSet());
+        assertThat(storedKeys).hasSize(stored.size());
+        assertThat(log).allSatisfy(record -> assertThat(storedKeys).contains(key(record.userId(), record.time())));
+    }
+
+    /** Punch times are stored rounded to the microsecond. */
+    private static String key(String userId, LocalDateTime time) {
+        return userId + "@" + time.plusNanos(500).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private List<PunchLog> awaitStored(Device device, int expected) throws InterruptedException {
+        List<PunchLog> stored = List.of();
+        for (int i = 0; i < 100 && stored.size() < expected; i++) {
+            Thread.sleep(50);
+            stored = punchLogRepository.findAll().stream()
+                    .filter(p -> device.getId().equals(p.getDeviceId()))
+                    .toList();
+        }
+        return stored;
+    }
+}
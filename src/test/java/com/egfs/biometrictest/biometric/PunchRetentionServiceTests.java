@@ -0,0 +1,81 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PunchRetentionServiceTests {
+
+    @Autowired
+    private PunchRetentionService retentionService;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Autowired
+    private PunchService punchService;
+
+    @Autowired
+    private ZktecoProperties props;
+
+    @AfterEach
+    void restoreRetention() {
+        props.getRetention().setMonths(0);
+    }
+
+    @Test
+    void testMaintenanceDeletesPunchesOlderThanRetention() {
+        // Given
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        punchLogRepository.saveAll(List.of(
+                punch("retention-user", now.minusYears(20)),
+                punch("retention-user", now)));
+        props.getRetention().setMonths(120);
+
+        // When
+        retentionService.runMaintenance();
+
+        // Then
+        List<PunchLog> left = punchesOf("retention-user");
+        assertThat(left).hasSize(1);
+        assertThat(left.get(0).getPunchTime().getYear()).isEqualTo(now.getYear());
+    }
+
+    @Test
+    void testMaintenanceKeepsEverythingWhenRetentionDisabled() {
+        // Given
+        punchLogRepository.save(punch("kept-user", OffsetDateTime.now(ZoneOffset.UTC).minusYears(30)));
+
+        // When
+        int expired = retentionService.runMaintenance();
+
+        // Then
+        assertThat(expired).isZero();
+        assertThat(punchesOf("kept-user")).hasSize(1);
+    }
+
+    private List<PunchLog> punchesOf(String userId) {
+        return punchService.findPunches(new PunchQuery(null, null, userId, null, null, null), null, 10).items();
+    }
+
+    private static PunchLog punch(String userId, OffsetDateTime time) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId(userId);
+        punch.setPunchTime(time);
+        punch.setVerifyMode(1);
+        punch.setInOutMode(0);
+        punch.setWorkCode("0");
+        return punch;
+    }
+}
@@ -0,0 +1,157 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:punch-cursor",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=cursor-skip",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.devices[1].id=cursor-reset",
+        "zkteco.devices[1].ip=127.0.0.1",
+        "zkteco.devices[2].id=cursor-commit",
+        "zkteco.devices[2].ip=127.0.0.1",
+        "zkteco.devices[3].id=cursor-reread",
+        "zkteco.devices[3].ip=127.0.0.1",
+        "zkteco.simulation.users=5",
+        "zkteco.simulation.log-size=30",
+        "zkteco.simulation.punches-per-second=0",
+        "zkteco.ingest.batch-size=10"})
+@ActiveProfiles("test")
+class PunchServiceTests {
+
+    @Autowired
+    private PunchService punchService;
+
+    @Autowired
+    private DeviceRegistry devices;
+
+    @Autowired
+    private DeviceSessionPool sessions;
+
+    @Autowired
+    private DeviceSyncCursorRepository cursorRepo;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testSyncSkipsRecordsUpToTheCursor() {
+        // Given
+        Device device = devices.find("cursor-skip").orElseThrow();
+        DeviceSyncCursor cursor = new DeviceSyncCursor(device.getId());
+        cursor.setLastRecordIndex(20);
+        cursorRepo.save(cursor);
+
+        // When
+        DeviceSyncResult first = punchService.syncPunches(device);
+        DeviceSyncResult second = punchService.syncPunches(device);
+
+        // Then
+        assertThat(first.success()).isTrue();
+        assertThat(first.count()).isEqualTo(10);
+        assertThat(second.count()).isZero();
+        assertThat(storedPunches(device)).isEqualTo(10);
+        assertThat(cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex()).isEqualTo(30);
+    }
+
+    @Test
+    void testCursorRestartsWhenTheDeviceLogShrinksOrIsCleared() {
+        // Given
+        Device device = devices.find("cursor-reset").orElseThrow();
+        DeviceSyncCursor cursor = new DeviceSyncCursor(device.getId());
+        cursor.setLastRecordIndex(100); // more records than the device has now
+        cursorRepo.save(cursor);
+
+        // When
+        DeviceSyncResult shrunk = punchService.syncPunches(device);
+        long afterShrink = cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex();
+        sessions.execute(device, client -> {
+            client.clearAttendance();
+            return null;
+        });
+        DeviceSyncResult cleared = punchService.syncPunches(device);
+
+        // Then
+        assertThat(shrunk.count()).isEqualTo(30);
+        assertThat(afterShrink).isEqualTo(30);
+        assertThat(cleared.success()).isTrue();
+        assertThat(cleared.count()).isZero();
+        assertThat(cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex()).isZero();
+        assertThat(storedPunches(device)).isEqualTo(30);
+    }
+
+    @Test
+    void testCursorOnlyAdvancesOverCommittedBatches() {
+        // Given
+        Device device = devices.find("cursor-commit").orElseThrow();
+        List<Long> storedCursors = new ArrayList<>();
+        SyncProgress cancelAfterFirstBatch = new SyncProgress() {
+            @Override
+            public void onRecords(int records) {
+                storedCursors.add(cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex());
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return !storedCursors.isEmpty();
+            }
+        };
+
+        // When
+        DeviceSyncResult cancelled = punchService.syncPunches(device, cancelAfterFirstBatch);
+        long afterCancel = cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex();
+        DeviceSyncResult resumed = punchService.syncPunches(device);
+
+        // Then
+        assertThat(storedCursors).containsExactly(10L);
+        assertThat(cancelled.success()).isFalse();
+        assertThat(cancelled.count()).isEqualTo(10);
+        assertThat(afterCancel).isEqualTo(10);
+        assertThat(resumed.count()).isEqualTo(20);
+        assertThat(storedPunches(device)).isEqualTo(30);
+        assertThat(cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex()).isEqualTo(30);
+    }
+
+    @Test
+    void testCursorCountsRecordsReadAgainThatAreNotStored() {
+        // Given
+        Device device = devices.find("cursor-reread").orElseThrow();
+        punchService.syncPunches(device);
+        DeviceSyncCursor cursor = cursorRepo.findById(device.getId()).orElseThrow();
+        cursor.setLastRecordIndex(0); // as if a failed sync had not stored its cursor
+        cursorRepo.save(cursor);
+        List<Long> storedCursors = new ArrayList<>();
+        List<Integer> storedRecords = new ArrayList<>();
+        SyncProgress recordCursors = new SyncProgress() {
+            @Override
+            public void onRecords(int records) {
+                storedRecords.add(records);
+                storedCursors.add(cursorRepo.findById(device.getId()).orElseThrow().getLastRecordIndex());
+            }
+        };
+
+        // When
+        DeviceSyncResult reread = punchService.syncPunches(device, recordCursors);
+
+        // Then
+        assertThat(reread.success()).isTrue();
+        assertThat(reread.count()).isZero();
+        assertThat(storedRecords).containsOnly(0);
+        assertThat(storedCursors).containsExactly(10L, 20L, 30L, 30L);
+        assertThat(storedPunches(device)).isEqualTo(30);
+    }
+
+    private long storedPunches(Device device) {
+        return punchLogRepository.findAll().stream().filter(p -> device.getId().equals(p.getDeviceId())).count();
+    }
+}
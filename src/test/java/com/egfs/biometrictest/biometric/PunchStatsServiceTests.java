@@ -0,0 +1,77 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PunchStatsServiceTests {
+
+    @Autowired
+    private PunchStatsService statsService;
+
+    @Test
+    void testCountsAreMergedAcrossFlushes() {
+        // Given
+        OffsetDateTime minute = OffsetDateTime.of(2023, 3, 1, 9, 15, 0, 0, ZoneOffset.UTC);
+        statsService.record(List.of(punch(minute.plusSeconds(5), 1, 0), punch(minute.plusSeconds(30), 2, 0)));
+        statsService.flush();
+
+        // When
+        statsService.record(List.of(punch(minute.plusSeconds(50), 1, 1)));
+        List<PunchStatsBucket> beforeFlush = query(minute);
+        int flushed = statsService.flush();
+        List<PunchStatsBucket> afterFlush = query(minute);
+
+        // Then
+        assertThat(flushed).isEqualTo(3);
+        assertThat(afterFlush).isEqualTo(beforeFlush);
+        assertThat(afterFlush).hasSize(1);
+        PunchStatsBucket bucket = afterFlush.get(0);
+        assertThat(bucket.start()).isEqualTo(minute.toInstant());
+        assertThat(bucket.total()).isEqualTo(3);
+        assertThat(bucket.verifyModes()).containsOnly(entry(1, 2L), entry(2, 1L));
+        assertThat(bucket.inOutModes()).containsOnly(entry(0, 2L), entry(1, 1L));
+    }
+
+    @Test
+    void testDayBucketsAddUpTheMinutes() {
+        // Given
+        OffsetDateTime morning = OffsetDateTime.of(2023, 4, 2, 8, 0, 0, 0, ZoneOffset.UTC);
+        statsService.record(List.of(punch(morning, 1, 0), punch(morning.plusHours(9), 1, 1)));
+
+        // When
+        Instant day = statsService.bucketOf(morning.toInstant(), PunchStatsService.Granularity.DAY);
+        List<PunchStatsBucket> days = statsService.query(PunchStatsService.Granularity.DAY,
+                day, day.plus(1, ChronoUnit.DAYS));
+
+        // Then
+        assertThat(days).hasSize(1);
+        assertThat(days.get(0).total()).isEqualTo(2);
+    }
+
+    private List<PunchStatsBucket> query(OffsetDateTime minute) {
+        return statsService.query(PunchStatsService.Granularity.MINUTE,
+                minute.toInstant(), minute.plusMinutes(1).toInstant());
+    }
+
+    private static PunchLog punch(OffsetDateTime time, int verifyMode, int inOutMode) {
+        PunchLog punch = new PunchLog();
+        punch.setUserId("stats-user");
+        punch.setPunchTime(time);
+        punch.setVerifyMode(verifyMode);
+        punch.setInOutMode(inOutMode);
+        return punch;
+    }
+}
@@ -0,0 +1,106 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferTests {
+
+    @Test
+    void testConcurrentProducersPublishEveryElementOnceInSequence() throws Exception {
+        // Given
+        RingBuffer<String> ring = new RingBuffer<>(16);
+        int producers = 4;
+        int perProducer = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        List<Future<?>> puts = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            puts.add(pool.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    ring.put(producer + "-" + i);
+                }
+            }));
+        }
+
+        // When
+        List<String> consumed = new ArrayList<>();
+        for (long sequence = 0; sequence < producers * perProducer; sequence++) {
+            String element;
+            while ((element = ring.get(sequence)) == null) {
+                Thread.onSpinWait();
+            }
+            consumed.add(element);
+            ring.release(sequence);
+        }
+        for (Future<?> put : puts) {
+            put.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Then
+        assertThat(consumed).hasSize(producers * perProducer).doesNotHaveDuplicates();
+        for (int p = 0; p < producers; p++) {
+            String prefix = p + "-";
+            // Each producer's own elements keep their order
+            List<String> own = consumed.stream().filter(e -> e.startsWith(prefix)).toList();
+            assertThat(own).hasSize(perProducer);
+            for (int i = 0; i < perProducer; i++) {
+                assertThat(own.get(i)).isEqualTo(prefix + i);
+            }
+        }
+        assertThat(ring.getClaimed()).isEqualTo(producers * perProducer - 1);
+    }
+
+    @Test
+    void testSlotsAreReusedAfterWraparound() {
+        // Given
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        Set<Long> sequences = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            long sequence = ring.put(i);
+            sequences.add(sequence);
+            assertThat(ring.get(sequence)).isEqualTo(i);
+            ring.release(sequence);
+        }
+
+        // Then
+        assertThat(ring.capacity()).isEqualTo(4);
+        assertThat(sequences).containsExactlyInAnyOrder(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(ring.get(5)).isNull(); // slot now belongs to sequence 9
+        assertThat(ring.get(9)).isNull(); // released
+        assertThat(ring.getReleased()).isEqualTo(9);
+    }
+
+    @Test
+    void testFullRingStallsProducersUntilTheLastStageReleases() throws Exception {
+        // Given
+        RingBuffer<String> ring = new RingBuffer<>(2);
+        ring.put("a");
+        ring.put("b");
+
+        // When
+        CompletableFuture<Long> third = CompletableFuture.supplyAsync(() -> ring.put("c"));
+        Thread.sleep(200);
+        boolean doneWhileFull = third.isDone();
+        ring.release(0);
+
+        // Then
+        assertThat(doneWhileFull).isFalse();
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(ring.get(1)).isEqualTo("b");
+        assertThat(ring.get(2)).isEqualTo("c");
+    }
+}
@@ -0,0 +1,107 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Sse.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseSubscriberTests {
+
+    /** Runs drains only when the test asks, like a dispatch pool that is busy. */
+    private final List<Runnable> pending = new ArrayList<>();
+    private final RecordingEmitter emitter = new RecordingEmitter();
+
+    @Test
+    void testDropOldestKeepsNewestEvents() {
+        // Given
+        SseSubscriber subscriber = new SseSubscriber(emitter, 2, OverflowPolicy.DROP_OLDEST, pending::add, s -> {});
+
+        // When
+        subscriber.offer(punch("1"));
+        subscriber.offer(punch("2"));
+        int dropped = subscriber.offer(punch("3"));
+        runPending();
+
+        // Then
+        assertThat(dropped).isEqualTo(1);
+        assertThat(emitter.sent).isEqualTo(2);
+        assertThat(subscriber.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void testCoalesceReplacesQueuedPunchOfSameUser() {
+        // Given
+        SseSubscriber subscriber = new SseSubscriber(emitter, 2, OverflowPolicy.COALESCE, pending::add, s -> {});
+        subscriber.offer(punch("100"));
+        subscriber.offer(punch("200"));
+
+        // When
+        subscriber.offer(punch("100"));
+
+        // Then
+        assertThat(subscriber.getQueueSize()).isEqualTo(2);
+        assertThat(subscriber.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void testDisconnectClosesSubscriberThatFallsBehind() {
+        // Given
+        AtomicBoolean removed = new AtomicBoolean();
+        SseSubscriber subscriber = new SseSubscriber(emitter, 1, OverflowPolicy.DISCONNECT, pending::add,
+                s -> removed.set(true));
+        subscriber.offer(punch("1"));
+
+        // When
+        subscriber.offer(punch("2"));
+
+        // Then
+        assertThat(subscriber.isClosed()).isTrue();
+        assertThat(removed).isTrue();
+    }
+
+    @Test
+    void testFailedSendClosesSubscriber() {
+        // Given
+        emitter.fail = true;
+        AtomicBoolean removed = new AtomicBoolean();
+        SseSubscriber subscriber = new SseSubscriber(emitter, 4, OverflowPolicy.DROP_OLDEST, pending::add,
+                s -> removed.set(true));
+
+        // When
+        subscriber.offer(SseEvent.heartbeat());
+        runPending();
+
+        // Then
+        assertThat(subscriber.isClosed()).isTrue();
+        assertThat(removed).isTrue();
+    }
+
+    private static SseEvent punch(String userId) {
+        return new SseEvent(null, "punch", "User: " + userId, userId);
+    }
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        int sent;
+        boolean fail;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            sent++;
+        }
+    }
+}
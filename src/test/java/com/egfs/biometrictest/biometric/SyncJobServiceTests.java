@@ -0,0 +1,107 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sync-jobs",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=job-sim",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.devices[1].id=job-sim-2",
+        "zkteco.devices[1].ip=127.0.0.1",
+        "zkteco.ingest.batch-size=100",
+        "zkteco.simulation.users=40",
+        "zkteco.simulation.fingers-per-user=2",
+        "zkteco.simulation.log-size=250",
+        "zkteco.simulation.punches-per-second=0"})
+@ActiveProfiles("test")
+class SyncJobServiceTests {
+
+    @Autowired
+    private SyncJobService jobService;
+
+    @Autowired
+    private PunchService punchService;
+
+    @Autowired
+    private DeviceRegistry devices;
+
+    @Autowired
+    private PunchLogRepository punchLogRepository;
+
+    @Test
+    void testCancelledSyncKeepsCommittedChunksAndResumes() {
+        // Given
+        Device device = devices.getDefault();
+        SyncProgress cancelAfterFirstChunk = new SyncProgress() {
+            private volatile boolean cancelled;
+
+            @Override
+            public void onRecords(int records) {
+                cancelled = true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        };
+
+        // When
+        DeviceSyncResult cancelled = punchService.syncPunches(device, cancelAfterFirstChunk);
+        long storedAfterCancel = punchLogRepository.count();
+        DeviceSyncResult resumed = punchService.syncPunches(device);
+
+        // Then
+        assertThat(cancelled.success()).isFalse();
+        assertThat(cancelled.count()).isEqualTo(100);
+        assertThat(storedAfterCancel).isEqualTo(100);
+        assertThat(resumed.success()).isTrue();
+        assertThat(resumed.count()).isEqualTo(150);
+        assertThat(punchLogRepository.count()).isEqualTo(250);
+    }
+
+    @Test
+    void testJobRunsInBackgroundAndReportsProgress() throws InterruptedException {
+        // Given
+        Device device = devices.getDefault();
+
+        // When
+        SyncJob job = jobService.submit(SyncJob.Type.TEMPLATES, device);
+        for (int i = 0; i < 100 && !job.getStatus().isFinished(); i++) {
+            Thread.sleep(100);
+        }
+
+        // Then
+        assertThat(jobService.find(job.getId())).containsSame(job);
+        assertThat(job.getStatus()).isEqualTo(SyncJob.Status.SUCCEEDED);
+        assertThat(job.getProcessed()).isEqualTo(80);
+        assertThat(job.getFinishedAt()).isNotNull();
+        assertThat(jobService.cancel(job.getId()).map(SyncJob::getStatus)).contains(SyncJob.Status.SUCCEEDED);
+    }
+
+    @Test
+    void testFleetJobAddsUpItsDevicesAndKeepsTheirResults() throws InterruptedException {
+        // Given the two simulated devices
+
+        // When
+        SyncJob job = jobService.submitFleet(SyncJob.Type.TEMPLATES);
+        for (int i = 0; i < 100 && !job.getStatus().isFinished(); i++) {
+            Thread.sleep(100);
+        }
+
+        // Then
+        assertThat(job.getDeviceId()).isNull();
+        assertThat(job.getStatus()).isEqualTo(SyncJob.Status.SUCCEEDED);
+        assertThat(job.getProcessed()).isEqualTo(160);
+        assertThat(job.getResults()).extracting(DeviceSyncResult::deviceId)
+                .containsExactlyInAnyOrder("job-sim", "job-sim-2");
+        assertThat(job.getResults()).allSatisfy(result -> assertThat(result.count()).isEqualTo(80));
+    }
+}
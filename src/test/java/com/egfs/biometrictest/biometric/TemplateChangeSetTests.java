@@ -0,0 +1,55 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateChangeSetTests {
+
+    record Digest(Long id, String userId, Integer fingerIndex, String templateHash, String name, Boolean enabled)
+            implements TemplateDigest {
+        public Long getId() { return id; }
+        public String getUserId() { return userId; }
+        public Integer getFingerIndex() { return fingerIndex; }
+        public String getTemplateHash() { return templateHash; }
+        public String getName() { return name; }
+        public Boolean getEnabled() { return enabled; }
+    }
+
+    @Test
+    void testOnlyChangedTemplatesAreWritten() {
+        // Given
+        TemplateChangeSet changes = new TemplateChangeSet("default", List.of(
+                new Digest(1L, "100", 0, BiometricTemplate.hashOf("AAA"), "John", true),
+                new Digest(2L, "100", 1, BiometricTemplate.hashOf("BBB"), "John", true),
+                new Digest(3L, "101", 0, BiometricTemplate.hashOf("CCC"), "Jane", true)));
+
+        // When
+        changes.offer("100", "John", true, 0, "AAA");   // unchanged
+        changes.offer("100", "John", true, 1, "BBX");   // template changed
+        changes.offer("102", "Bob", true, 0, "DDD");    // new user
+        // 101/0 is no longer on the device
+
+        // Then
+        assertThat(changes.getUnchanged()).isEqualTo(1);
+        assertThat(changes.getUpdates()).containsOnlyKeys(2L);
+        assertThat(changes.getInserts()).extracting(BiometricTemplate::getUserId).containsExactly("102");
+        assertThat(changes.getDeletedIds()).containsExactly(3L);
+    }
+
+    @Test
+    void testNameChangeIsAnUpdate() {
+        // Given
+        TemplateChangeSet changes = new TemplateChangeSet("default", List.of(
+                new Digest(1L, "100", 0, BiometricTemplate.hashOf("AAA"), "John", true)));
+
+        // When
+        changes.offer("100", "Johnny", true, 0, "AAA");
+
+        // Then
+        assertThat(changes.getUpdates()).containsOnlyKeys(1L);
+        assertThat(changes.getUnchanged()).isZero();
+    }
+}
@@ -0,0 +1,49 @@
+package com.egfs.biometrictest.biometric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplatePayloadTests {
+
+    @Test
+    void testTemplateTextIsStoredAsCompactBinary() {
+        // Given
+        byte[] repetitive = new byte[1024];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) (i % 16);
+        }
+        byte[] random = new byte[1024];
+        new Random(7).nextBytes(random);
+        String compressible = Base64.getEncoder().encodeToString(repetitive);
+        String incompressible = Base64.getEncoder().encodeToString(random);
+
+        // When
+        TemplatePayload deflated = new TemplatePayload(compressible);
+        TemplatePayload binary = new TemplatePayload(incompressible);
+
+        // Then
+        assertThat(deflated.getEncoding()).isEqualTo(TemplatePayload.ENCODING_DEFLATE);
+        assertThat(deflated.getData().length).isLessThan(repetitive.length);
+        assertThat(deflated.getTemplateData()).isEqualTo(compressible);
+        assertThat(binary.getEncoding()).isEqualTo(TemplatePayload.ENCODING_BINARY);
+        assertThat(binary.getData()).hasSize(1024);
+        assertThat(binary.getTemplateData()).isEqualTo(incompressible);
+    }
+
+    @Test
+    void testTextThatIsNotCanonicalBase64IsKeptAsIs() {
+        // Given
+        String noPadding = "TWE"; // decodes, but encodes back as "TWE="
+
+        // When
+        TemplatePayload payload = new TemplatePayload(noPadding);
+
+        // Then
+        assertThat(payload.getEncoding()).isEqualTo(TemplatePayload.ENCODING_TEXT);
+        assertThat(payload.getTemplateData()).isEqualTo(noPadding);
+    }
+}
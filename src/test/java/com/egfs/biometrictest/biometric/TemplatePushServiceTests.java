@@ -0,0 +1,80 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import com.egfs.biometrictest.device.DeviceTemplate;
+import com.egfs.biometrictest.device.DeviceUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:template-push",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=enroll",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.devices[1].id=gate",
+        "zkteco.devices[1].ip=127.0.0.2",
+        "zkteco.simulation.users=20",
+        "zkteco.simulation.fingers-per-user=2",
+        "zkteco.push.batch-size=15"})
+@ActiveProfiles("test")
+class TemplatePushServiceTests {
+
+    @Autowired
+    private FleetSyncService fleetSyncService;
+
+    @Autowired
+    private ZktecoSyncService syncService;
+
+    @Autowired
+    private DeviceSessionPool sessions;
+
+    @Autowired
+    private DeviceRegistry devices;
+
+    @Autowired
+    private BiometricTemplateRepository templateRepository;
+
+    @Test
+    void testOnlyTemplatesMissingOnTheTargetArePushed() {
+        // Given
+        Device enroll = devices.find("enroll").orElseThrow();
+        Device gate = devices.find("gate").orElseThrow();
+        syncService.syncTemplates(enroll);
+        List<DeviceSyncResult> initial = fleetSyncService.pushTemplates(enroll, List.of(gate), null);
+        String newTemplate = Base64.getEncoder().encodeToString(new byte[]{4, 8, 15, 16, 23, 42});
+        sessions.execute(enroll, client -> {
+            client.writeTemplates(List.of(new DeviceUser("900", "New Hire", 0, true)),
+                    List.of(new DeviceTemplate("900", 5, newTemplate)));
+            return null;
+        });
+        syncService.syncTemplates(enroll);
+
+        // When
+        List<DeviceSyncResult> pushed = fleetSyncService.pushTemplates(enroll, List.of(gate), null);
+        List<DeviceSyncResult> again = fleetSyncService.pushTemplates(enroll, List.of(gate), null);
+        List<DeviceTemplate> onGate = new ArrayList<>();
+        List<DeviceUser> gateUsers = sessions.execute(gate, client -> {
+            client.readTemplates(onGate::add);
+            return client.readUsers();
+        });
+
+        // Then
+        assertThat(initial).singleElement().satisfies(r -> assertThat(r.count()).isEqualTo(40));
+        assertThat(pushed).singleElement().satisfies(r -> {
+            assertThat(r.success()).isTrue();
+            assertThat(r.count()).isEqualTo(1);
+        });
+        assertThat(again).singleElement().satisfies(r -> assertThat(r.count()).isZero());
+        assertThat(onGate).contains(new DeviceTemplate("900", 5, newTemplate)).hasSize(41);
+        assertThat(gateUsers).extracting(DeviceUser::userId).contains("900");
+        assertThat(templateRepository.findDigestsByDeviceId("gate")).hasSize(41);
+    }
+}
@@ -0,0 +1,46 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UserDirectoryTests {
+
+    @Test
+    void testResolveNameCountsHitsAndMisses() {
+        // Given
+        UserDirectory directory = new UserDirectory(new ZktecoProperties(), mock(BiometricTemplateRepository.class));
+        directory.put("100", "John Doe", true);
+
+        // When
+        String known = directory.resolveName("100");
+        String unknown = directory.resolveName("999");
+
+        // Then
+        assertThat(known).isEqualTo("John Doe");
+        assertThat(unknown).isNull();
+        assertThat(directory.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void testLeastRecentlyUsedUserIsEvicted() {
+        // Given
+        ZktecoProperties props = new ZktecoProperties();
+        props.getDirectory().setMaxSize(2);
+        UserDirectory directory = new UserDirectory(props, mock(BiometricTemplateRepository.class));
+        directory.put("1", "A", true);
+        directory.put("2", "B", true);
+        directory.resolveName("1");
+
+        // When
+        directory.put("3", "C", false);
+
+        // Then
+        assertThat(directory.resolveName("2")).isNull();
+        assertThat(directory.resolveName("1")).isEqualTo("A");
+        assertThat(directory.isEnabled("3")).isFalse();
+        assertThat(directory.getStats()).containsEntry("size", 2).containsEntry("evictions", 1L);
+    }
+}
@@ -0,0 +1,61 @@
+package com.egfs.biometrictest.biometric;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:template-sync",
+        "zkteco.backend=sim",
+        "zkteco.devices[0].id=template-sim",
+        "zkteco.devices[0].ip=127.0.0.1",
+        "zkteco.simulation.users=30",
+        "zkteco.simulation.fingers-per-user=2",
+        "zkteco.simulation.template-bytes=512"})
+@ActiveProfiles("test")
+class ZktecoSyncServiceTests {
+
+    @Autowired
+    private ZktecoSyncService syncService;
+
+    @Autowired
+    private DeviceRegistry devices;
+
+    @Autowired
+    private BiometricTemplateRepository templateRepository;
+
+    @Autowired
+    private TemplatePayloadRepository payloadRepository;
+
+    @Test
+    void testTemplatesAreStoredAsBinaryPayloadsAndLoadedLazily() {
+        // Given
+        Device device = devices.getDefault();
+
+        // When
+        DeviceSyncResult first = syncService.syncTemplates(device);
+        DeviceSyncResult second = syncService.syncTemplates(device);
+        List<UserListing> users = syncService.listUsers(device.getId());
+        BiometricTemplate template = templateRepository.findAll().get(0);
+
+        // Then
+        assertThat(first.count()).isEqualTo(60);
+        assertThat(second.count()).isEqualTo(60);
+        assertThat(payloadRepository.count()).isEqualTo(60);
+        assertThat(payloadRepository.findAll()).allSatisfy(p -> assertThat(p.getData()).hasSize(512));
+        assertThat(users).hasSize(30).allSatisfy(u -> {
+            assertThat(u.getTemplateCount()).isEqualTo(2);
+            assertThat(u.getDeviceId()).isEqualTo("template-sim");
+        });
+        assertThat(Hibernate.isInitialized(template.getPayload())).isFalse();
+        assertThat(BiometricTemplate.hashOf(payloadRepository.findById(template.getPayload().getId())
+                .orElseThrow().getTemplateData())).isEqualTo(template.getTemplateHash());
+    }
+}
@@ -0,0 +1,68 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeteredDeviceClientTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ZkProtocolSimulator simulator;
+    private MeteredDeviceClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        simulator = new ZkProtocolSimulator();
+        Device device = new Device();
+        device.setId("sim");
+        device.setIp("127.0.0.1");
+        device.setPort(simulator.getPort());
+        client = new MeteredDeviceClient(new ZkTcpDeviceClient(device, 2000), registry, "sim");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        simulator.close();
+    }
+
+    @Test
+    void testCallsAreTimedAndRecordsCountedPerOperation() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 8, 0);
+        simulator.attendance.add(new AttendanceRecord("100", 1, 0, time, "0"));
+        simulator.attendance.add(new AttendanceRecord("101", 1, 0, time.plusMinutes(1), "0"));
+        client.connect();
+
+        // When
+        client.readAttendance(0, record -> { });
+        client.readAttendance(1, record -> { });
+
+        // Then
+        assertThat(registry.get(MeteredDeviceClient.CALLS)
+                .tags("device", "sim", "operation", "readAttendance", "outcome", "success").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get(MeteredDeviceClient.CALLS).tags("operation", "connect").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get(MeteredDeviceClient.RECORDS).tags("operation", "readAttendance").counter().count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void testFailedCallIsTimedAsError() throws Exception {
+        // Given
+        simulator.close();
+
+        // When / Then
+        assertThatThrownBy(client::connect).isInstanceOf(DeviceException.class);
+        assertThat(registry.get(MeteredDeviceClient.CALLS)
+                .tags("operation", "connect", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimulatedDeviceClientTests {
+
+    @Test
+    void testLogSurvivesReconnectAndIsReadFromCursor() {
+        // Given
+        Simulation config = new Simulation();
+        config.setLogSize(100);
+        config.setPunchesPerSecond(0);
+        SimulatedTerminal terminal = new SimulatedTerminal("sim-1", config);
+        SimulatedDeviceClient first = new SimulatedDeviceClient(terminal);
+        first.connect();
+        List<AttendanceRecord> head = new ArrayList<>();
+        first.readAttendance(0, head::add);
+        first.close();
+
+        // When
+        SimulatedDeviceClient second = new SimulatedDeviceClient(terminal);
+        second.connect();
+        List<AttendanceRecord> tail = new ArrayList<>();
+        long total = second.readAttendance(60, tail::add);
+
+        // Then
+        assertThat(head).hasSize(100);
+        assertThat(total).isEqualTo(100);
+        assertThat(tail).containsExactlyElementsOf(head.subList(60, 100));
+        assertThat(second.getAttendanceCount()).isEqualTo(100);
+    }
+
+    @Test
+    void testPunchesArriveAsEventsAndInLog() {
+        // Given
+        Simulation config = new Simulation();
+        config.setLogSize(0);
+        config.setPunchesPerSecond(200);
+        SimulatedDeviceClient client = new SimulatedDeviceClient(new SimulatedTerminal("sim-2", config));
+        client.connect();
+        client.registerEvents();
+
+        // When
+        List<AttendanceRecord> events = client.pollEvents(1000);
+
+        // Then
+        assertThat(events).isNotEmpty();
+        assertThat(client.getAttendanceCount()).isGreaterThanOrEqualTo(events.size());
+        List<AttendanceRecord> log = new ArrayList<>();
+        client.readAttendance(0, log::add);
+        assertThat(log).containsSubsequence(events);
+    }
+}
@@ -0,0 +1,238 @@
+package com.egfs.biometrictest.device;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal terminal on a local TCP port for protocol tests. It answers the
+ * commands {@link ZkTcpDeviceClient} sends, serving attendance in 40 byte
+ * records and users in 72 byte records. Tables larger than the inline limit
+ * go through the prepared-buffer path and are sent in small data packets.
+ * Uploaded users and templates are saved into its tables.
+ */
+class ZkProtocolSimulator implements AutoCloseable {
+    private static final int SESSION_ID = 0x1234;
+    private static final int DATA_PACKET_SIZE = 1024;
+
+    final List<AttendanceRecord> attendance = new CopyOnWriteArrayList<>();
+    final List<DeviceUser> users = new CopyOnWriteArrayList<>();
+    final List<DeviceTemplate> templates = new CopyOnWriteArrayList<>();
+    volatile boolean enabled = true;
+    volatile int inlineLimit = 1024;
+    volatile int eventAcks;
+    volatile int attendanceCountSkew; // added to the reported record count, as if punches arrived meanwhile
+    volatile byte[] templateTail = new byte[0]; // raw bytes after the template records
+
+    private final ServerSocket server;
+    private byte[] prepared = new byte[0];
+    private final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    private volatile OutputStream client;
+
+    ZkProtocolSimulator() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this::serve, "zk-simulator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                client = socket.getOutputStream();
+                handle(socket.getInputStream(), client);
+            } catch (IOException e) {
+                // connection dropped or server closed, wait for the next client
+            }
+        }
+    }
+
+    private void handle(InputStream in, OutputStream out) throws IOException {
+        while (true) {
+            byte[] header = in.readNBytes(ZkPacket.TCP_HEADER_SIZE);
+            if (header.length < ZkPacket.TCP_HEADER_SIZE) {
+                return;
+            }
+            byte[] payload = in.readNBytes(ZkPacket.payloadLength(ByteBuffer.wrap(header)));
+            ZkPacket request = ZkPacket.fromPayload(ByteBuffer.wrap(payload));
+            int reply = request.getReply();
+            ByteBuffer data = ByteBuffer.wrap(request.getData()).order(ByteOrder.LITTLE_ENDIAN);
+
+            switch (request.getCommand()) {
+                case ZkPacket.CMD_GET_FREE_SIZES -> {
+                    ByteBuffer sizes = le(80);
+                    sizes.putInt(16, users.size()).putInt(32, attendance.size() + attendanceCountSkew);
+                    write(out, ZkPacket.CMD_ACK_OK, reply, sizes.array());
+                }
+                case ZkPacket.CMD_GET_VERSION -> write(out, ZkPacket.CMD_ACK_OK, reply, "Ver 6.60 SIM\0".getBytes());
+                case ZkPacket.CMD_PREPARE_BUFFER -> {
+                    byte[] table = table(data.getShort(1), data.getInt(3));
+                    if (table.length <= inlineLimit) {
+                        write(out, ZkPacket.CMD_DATA, reply, table);
+                    } else {
+                        prepared = table;
+                        write(out, ZkPacket.CMD_ACK_OK, reply, le(5).put((byte) 0).putInt(table.length).array());
+                    }
+                }
+                case ZkPacket.CMD_READ_BUFFER -> {
+                    int start = data.getInt(0);
+                    int size = data.getInt(4);
+                    write(out, ZkPacket.CMD_PREPARE_DATA, reply, le(4).putInt(size).array());
+                    for (int off = start; off < start + size; off += DATA_PACKET_SIZE) {
+                        write(out, ZkPacket.CMD_DATA, reply,
+                                Arrays.copyOfRange(prepared, off, Math.min(off + DATA_PACKET_SIZE, start + size)));
+                    }
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_PREPARE_DATA -> {
+                    uploaded.reset();
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_DATA -> {
+                    uploaded.writeBytes(request.getData());
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_SAVE_USERTEMPS -> {
+                    saveUserTemplates(ByteBuffer.wrap(uploaded.toByteArray()).order(ByteOrder.LITTLE_ENDIAN));
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_CLEAR_ATTLOG -> {
+                    attendance.clear();
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_ENABLEDEVICE, ZkPacket.CMD_DISABLEDEVICE -> {
+                    enabled = request.getCommand() == ZkPacket.CMD_ENABLEDEVICE;
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                }
+                case ZkPacket.CMD_CONNECT, ZkPacket.CMD_FREE_DATA, ZkPacket.CMD_REFRESHDATA, ZkPacket.CMD_REG_EVENT ->
+                        write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                case ZkPacket.CMD_ACK_OK -> eventAcks++;
+                case ZkPacket.CMD_EXIT -> {
+                    write(out, ZkPacket.CMD_ACK_OK, reply, new byte[0]);
+                    return;
+                }
+                default -> write(out, ZkPacket.CMD_ACK_ERROR, reply, new byte[0]);
+            }
+        }
+    }
+
+    /** Stores a punch and pushes it to the connected client as a 52 byte realtime event. */
+    void punch(AttendanceRecord record) throws IOException {
+        attendance.add(record);
+        ByteBuffer event = le(52);
+        ZkPacket.writeString(event, record.userId(), 24);
+        event.put((byte) record.verifyMode()).put((byte) record.inOutMode())
+                .put((byte) (record.time().getYear() - 2000)).put((byte) record.time().getMonthValue())
+                .put((byte) record.time().getDayOfMonth()).put((byte) record.time().getHour())
+                .put((byte) record.time().getMinute()).put((byte) record.time().getSecond());
+        write(client, ZkPacket.CMD_REG_EVENT, 0, event.array());
+    }
+
+    private byte[] table(int command, int fct) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        if (command == ZkPacket.CMD_ATTLOG_RRQ) {
+            int uid = 1;
+            for (AttendanceRecord r : attendance) {
+                ByteBuffer buf = le(40).putShort((short) uid++);
+                ZkPacket.writeString(buf, r.userId(), 24);
+                buf.put((byte) r.verifyMode()).putInt((int) ZkPacket.encodeTime(r.time())).put((byte) r.inOutMode());
+                records.writeBytes(buf.array());
+            }
+        } else if (command == ZkPacket.CMD_USERTEMP_RRQ && fct == ZkPacket.FCT_USER) {
+            for (int i = 0; i < users.size(); i++) {
+                DeviceUser user = users.get(i);
+                ByteBuffer buf = le(72).putShort((short) (i + 1)).put((byte) (user.enabled() ? 0 : 1));
+                buf.position(11);
+                ZkPacket.writeString(buf, user.name(), 24);
+                buf.position(48);
+                ZkPacket.writeString(buf, user.userId(), 24);
+                records.writeBytes(buf.array());
+            }
+        } else if (command == ZkPacket.CMD_DB_RRQ && fct == ZkPacket.FCT_FINGERTMP) {
+            for (DeviceTemplate template : templates) {
+                byte[] raw = Base64.getDecoder().decode(template.data());
+                ByteBuffer buf = le(6 + raw.length).putShort((short) (6 + raw.length))
+                        .putShort((short) uidOf(template.userId())).put((byte) template.fingerIndex()).put((byte) 1).put(raw);
+                records.writeBytes(buf.array());
+            }
+            records.writeBytes(templateTail);
+        }
+        byte[] body = records.toByteArray();
+        return le(4 + body.length).putInt(body.length).put(body).array();
+    }
+
+    /** Applies an upload of 73 byte user records, the template table and the templates. */
+    private void saveUserTemplates(ByteBuffer buf) {
+        int usersSize = buf.getInt();
+        int tableSize = buf.getInt();
+        buf.getInt(); // templates size
+        Map<Integer, String> userIds = new HashMap<>();
+        while (buf.position() < 12 + usersSize) {
+            int start = buf.position();
+            buf.get(); // record marker
+            int uid = Short.toUnsignedInt(buf.getShort());
+            int privilege = Byte.toUnsignedInt(buf.get());
+            buf.position(start + 12);
+            String name = ZkPacket.readString(buf, 24);
+            buf.position(start + 49);
+            String userId = ZkPacket.readString(buf, 24);
+            userIds.put(uid, userId);
+            if (uidOf(userId) == 0) {
+                users.add(new DeviceUser(userId, name, privilege & ~1, (privilege & 1) == 0));
+            }
+        }
+        int templatesStart = 12 + usersSize + tableSize;
+        while (buf.position() < templatesStart) {
+            buf.get(); // entry type
+            String userId = userIds.get(Short.toUnsignedInt(buf.getShort()));
+            int fingerIndex = buf.get() - ZkPacket.FINGER_VALID;
+            ByteBuffer template = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(templatesStart + buf.getInt());
+            byte[] raw = new byte[Short.toUnsignedInt(template.getShort())];
+            template.get(raw);
+            templates.removeIf(t -> t.userId().equals(userId) && t.fingerIndex() == fingerIndex);
+            templates.add(new DeviceTemplate(userId, fingerIndex, Base64.getEncoder().encodeToString(raw)));
+        }
+    }
+
+    private int uidOf(String userId) {
+        for (int i = 0; i < users.size(); i++) {
+            if (users.get(i).userId().equals(userId)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void write(OutputStream out, int command, int reply, byte[] data) throws IOException {
+        ByteBuffer frame = new ZkPacket(command, SESSION_ID, reply, data).toTcpFrame();
+        synchronized (out) {
+            out.write(frame.array(), 0, frame.limit());
+            out.flush();
+        }
+    }
+
+    private static ByteBuffer le(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,243 @@
+package com.egfs.biometrictest.device;
+
+import com.egfs.biometrictest.ZktecoProperties.Device;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ZkTcpDeviceClientTests {
+
+    private ZkProtocolSimulator simulator;
+    private ZkTcpDeviceClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        simulator = new ZkProtocolSimulator();
+        Device device = new Device();
+        device.setId("sim");
+        device.setIp("127.0.0.1");
+        device.setPort(simulator.getPort());
+        client = new ZkTcpDeviceClient(device, 2000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        simulator.close();
+    }
+
+    @Test
+    void testReadAttendanceSkipsAlreadyImportedRecords() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 8, 59, 31);
+        simulator.attendance.add(new AttendanceRecord("100", 1, 0, time, "0"));
+        simulator.attendance.add(new AttendanceRecord("101", 15, 1, time.plusMinutes(1), "0"));
+        simulator.attendance.add(new AttendanceRecord("102", 1, 0, time.plusMinutes(2), "0"));
+        client.connect();
+
+        // When
+        List<AttendanceRecord> records = new ArrayList<>();
+        long total = client.readAttendance(1, records::add);
+
+        // Then
+        assertThat(total).isEqualTo(3);
+        assertThat(client.getAttendanceCount()).isEqualTo(3);
+        assertThat(records).extracting(AttendanceRecord::userId).containsExactly("101", "102");
+        assertThat(records.get(0).verifyMode()).isEqualTo(15);
+        assertThat(records.get(0).inOutMode()).isEqualTo(1);
+        assertThat(records.get(0).time()).isEqualTo(time.plusMinutes(1));
+    }
+
+    @Test
+    void testRecordSizeComesFromTheTableWhenTheCountIsStale() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            simulator.attendance.add(new AttendanceRecord(String.valueOf(100 + i), 1, 0, time.plusMinutes(i), "0"));
+        }
+        simulator.attendanceCountSkew = -1;
+        client.connect();
+
+        // When
+        List<AttendanceRecord> records = new ArrayList<>();
+        long total = client.readAttendance(0, records::add);
+
+        // Then
+        assertThat(total).isEqualTo(3);
+        assertThat(records).extracting(AttendanceRecord::userId).containsExactly("100", "101", "102");
+    }
+
+    @Test
+    void testAttendanceIsStreamedPacketByPacketAndAFailingSinkKeepsTheConnection() {
+        // Given
+        simulator.inlineLimit = 0;
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 8, 0);
+        for (int i = 0; i < 100; i++) {
+            simulator.attendance.add(new AttendanceRecord(String.valueOf(1000 + i), 1, i % 2, time.plusMinutes(i), "0"));
+        }
+        client.connect();
+
+        // When
+        List<AttendanceRecord> records = new ArrayList<>();
+        long total = client.readAttendance(0, records::add);
+        Throwable failure = catchThrowable(() -> client.readAttendance(0, record -> {
+            throw new IllegalStateException("sink failed");
+        }));
+
+        // Then
+        assertThat(total).isEqualTo(100);
+        assertThat(records).extracting(AttendanceRecord::userId)
+                .containsExactlyElementsOf(simulator.attendance.stream().map(AttendanceRecord::userId).toList());
+        assertThat(records.get(99).time()).isEqualTo(time.plusMinutes(99));
+        assertThat(failure).isInstanceOf(IllegalStateException.class).hasMessage("sink failed");
+        assertThat(client.getAttendanceCount()).isEqualTo(100);
+    }
+
+    @Test
+    void testTruncatedTemplateRecordFailsTheRead() {
+        // Given
+        simulator.users.add(new DeviceUser("100", "John Doe", 0, true));
+        String data = Base64.getEncoder().encodeToString(new byte[] {1, 2, 3});
+        simulator.templates.add(new DeviceTemplate("100", 0, data));
+        simulator.templateTail = new byte[] {3, 0, 1, 0, 0, 1};
+        client.connect();
+
+        // When
+        List<DeviceTemplate> templates = new ArrayList<>();
+        Throwable failure = catchThrowable(() -> client.readTemplates(templates::add));
+
+        // Then
+        assertThat(failure).isInstanceOf(DeviceException.class).hasMessageContaining("Truncated template record");
+        assertThat(templates).containsExactly(new DeviceTemplate("100", 0, data));
+        assertThat(client.getFirmwareVersion()).isNotBlank();
+    }
+
+    @Test
+    void testReadUsersAndTemplatesThroughPreparedBuffer() {
+        // Given
+        simulator.inlineLimit = 0;
+        simulator.users.add(new DeviceUser("100", "John Doe", 0, true));
+        simulator.users.add(new DeviceUser("101", "Jane Roe", 1, false));
+        byte[] raw = new byte[1500];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) i;
+        }
+        String data = Base64.getEncoder().encodeToString(raw);
+        simulator.templates.add(new DeviceTemplate("101", 6, data));
+        client.connect();
+
+        // When
+        List<DeviceUser> users = client.readUsers();
+        List<DeviceTemplate> templates = new ArrayList<>();
+        client.readTemplates(templates::add);
+
+        // Then
+        assertThat(users).extracting(DeviceUser::userId, DeviceUser::name, DeviceUser::enabled)
+                .containsExactlyInAnyOrder(
+                        tuple("100", "John Doe", true),
+                        tuple("101", "Jane Roe", false));
+        assertThat(templates).containsExactly(new DeviceTemplate("101", 6, data));
+    }
+
+    @Test
+    void testWriteTemplatesUploadsUsersAndTemplatesInOneBuffer() {
+        // Given
+        simulator.users.add(new DeviceUser("100", "John Doe", 0, true));
+        simulator.templates.add(new DeviceTemplate("100", 0, Base64.getEncoder().encodeToString(new byte[]{1, 2, 3})));
+        byte[] raw = new byte[1500];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) (i * 7);
+        }
+        String replaced = Base64.getEncoder().encodeToString(new byte[]{9, 9, 9, 9});
+        String enrolled = Base64.getEncoder().encodeToString(raw);
+        client.connect();
+
+        // When
+        client.writeTemplates(List.of(new DeviceUser("200", "New Hire", 0, true)), List.of(
+                new DeviceTemplate("100", 0, replaced),
+                new DeviceTemplate("200", 3, enrolled)));
+        List<DeviceTemplate> templates = new ArrayList<>();
+        client.readTemplates(templates::add);
+
+        // Then
+        assertThat(client.readUsers()).extracting(DeviceUser::userId, DeviceUser::name)
+                .containsExactlyInAnyOrder(tuple("100", "John Doe"), tuple("200", "New Hire"));
+        assertThat(templates).containsExactlyInAnyOrder(
+                new DeviceTemplate("100", 0, replaced),
+                new DeviceTemplate("200", 3, enrolled));
+    }
+
+    @Test
+    void testClearAttendanceAndToggleDevice() {
+        // Given
+        simulator.attendance.add(new AttendanceRecord("100", 1, 0, LocalDateTime.of(2025, 1, 1, 0, 0), "0"));
+        client.connect();
+
+        // When
+        client.setEnabled(false);
+        boolean disabled = !simulator.enabled;
+        client.clearAttendance();
+        client.setEnabled(true);
+
+        // Then
+        assertThat(disabled).isTrue();
+        assertThat(simulator.enabled).isTrue();
+        assertThat(client.getAttendanceCount()).isZero();
+        assertThat(client.getFirmwareVersion()).isEqualTo("Ver 6.60 SIM");
+    }
+
+    @Test
+    void testPollEventsReturnsPushedPunches() throws Exception {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2025, 6, 2, 7, 45, 12);
+        client.connect();
+        client.registerEvents();
+
+        // When
+        List<AttendanceRecord> idle = client.pollEvents(50);
+        simulator.punch(new AttendanceRecord("100", 1, 0, time, "0"));
+        simulator.punch(new AttendanceRecord("101", 15, 1, time.plusSeconds(1), "0"));
+        List<AttendanceRecord> events = new ArrayList<>(client.pollEvents(2000));
+        if (events.size() < 2) {
+            events.addAll(client.pollEvents(2000));
+        }
+
+        // Then
+        assertThat(idle).isEmpty();
+        assertThat(events).containsExactly(
+                new AttendanceRecord("100", 1, 0, time, "0"),
+                new AttendanceRecord("101", 15, 1, time.plusSeconds(1), "0"));
+        assertThat(client.getAttendanceCount()).isEqualTo(2);
+        assertThat(simulator.eventAcks).isEqualTo(2);
+    }
+
+    @Test
+    void testPacketAndTimeEncodingRoundTrip() {
+        // Given
+        ZkPacket packet = new ZkPacket(ZkPacket.CMD_GET_VERSION, 7, 42, new byte[]{1, 2, 3});
+        LocalDateTime time = LocalDateTime.of(2031, 12, 31, 23, 59, 59);
+
+        // When
+        ByteBuffer frame = packet.toTcpFrame();
+        int length = ZkPacket.payloadLength(frame.duplicate());
+        ZkPacket decoded = ZkPacket.fromPayload(frame.position(ZkPacket.TCP_HEADER_SIZE).slice());
+
+        // Then
+        assertThat(length).isEqualTo(ZkPacket.HEADER_SIZE + 3);
+        assertThat(decoded.getCommand()).isEqualTo(ZkPacket.CMD_GET_VERSION);
+        assertThat(decoded.getSession()).isEqualTo(7);
+        assertThat(decoded.getReply()).isEqualTo(42);
+        assertThat(decoded.getData()).containsExactly(1, 2, 3);
+        assertThat(ZkPacket.decodeTime(ZkPacket.encodeTime(time))).isEqualTo(time);
+    }
+}